@@ -0,0 +1,182 @@
+import java.util.function.IntPredicate;
+
+/**
+ * Populated Bank used by the JMH suite in {@code bench/benchmarks}.
+ *
+ * JMH cannot generate code for classes in the default package, and classes in
+ * a named package cannot refer to ours, so the benchmarks create this fixture
+ * reflectively once per trial and then only call the {@link IntPredicate}s
+ * returned by {@link #operation}. Each predicate takes a random int and
+ * performs one operation on the accounts it selects.
+ *
+ * Mixes:
+ * <ul>
+ *   <li>{@code uncontended}: each thread works on its own slice of the accounts</li>
+ *   <li>{@code contended}: all threads share {@link #HOT_ACCOUNTS} accounts</li>
+ * </ul>
+ */
+public final class BankFixture {
+
+    public static final int HOT_ACCOUNTS = 8;
+
+    // Request IDs per thread for transferIdempotent; more than the dedupe cache
+    // holds, so a reused ID has long been evicted and every call is a first attempt
+    private static final int REQUEST_IDS = 1 << 18;
+
+    // Large enough that no benchmark run drains a balance or reaches a daily limit
+    private static final long START_CENTS = Long.MAX_VALUE / 4;
+
+    private final Bank bank = new Bank();
+    private final BankAccount[] accounts;
+    private final String[] numbers;
+    private final String[] owners;
+
+    public BankFixture(int accountCount) {
+        this(accountCount, false);
+    }
+
+    /**
+     * @param metrics whether the bank records {@link BankMetrics}
+     */
+    public BankFixture(int accountCount, boolean metrics) {
+        this(accountCount, metrics, "standard");
+    }
+
+    /**
+     * @param metrics whether the bank records {@link BankMetrics}
+     * @param policy  standard, or tiered for an {@link AccountPolicy} whose
+     *                caps, minimum balance and three velocity windows are set
+     *                but never reached
+     */
+    public BankFixture(int accountCount, boolean metrics, String policy) {
+        AccountPolicy accountPolicy;
+        if ("standard".equals(policy)) {
+            accountPolicy = AccountPolicy.STANDARD;
+        } else if ("tiered".equals(policy)) {
+            accountPolicy = AccountPolicy.builder("tiered")
+                    .maxPerTransaction(START_CENTS)
+                    .minBalance(1)
+                    .velocityLimit(60_000L, START_CENTS)
+                    .velocityLimit(3_600_000L, START_CENTS)
+                    .velocityLimit(86_400_000L, START_CENTS)
+                    .build();
+        } else {
+            throw new IllegalArgumentException("Unknown policy: " + policy);
+        }
+        if (accountCount < HOT_ACCOUNTS) {
+            throw new IllegalArgumentException("Need at least " + HOT_ACCOUNTS + " accounts.");
+        }
+        accounts = new BankAccount[accountCount];
+        numbers = new String[accountCount];
+        owners = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            BankAccount account = BankAccount.ofCents("ACC" + i, "Owner " + i, START_CENTS, START_CENTS);
+            account.setPolicy(accountPolicy);
+            bank.addAccount(account);
+            accounts[i] = account;
+            // Fresh strings, as if read from a request rather than reused from the map key
+            numbers[i] = new String("ACC" + i);
+            owners[i] = new String("Owner " + i);
+        }
+        if (metrics) {
+            bank.enableMetrics();
+        }
+    }
+
+    /**
+     * Returns the operation one benchmark thread runs.
+     *
+     * @param name   deposit, withdraw, transferTo, findAccount, findAccountsByOwner, transfer,
+     *               transferIdempotent, readView, mixedReads, mixedLockedReads, changeStatus or
+     *               setDailyLimit
+     * @param mix    uncontended or contended
+     * @param thread index of the calling thread
+     * @param threads number of benchmark threads
+     */
+    public IntPredicate operation(String name, String mix, int thread, int threads) {
+        int base;
+        int span;
+        if ("contended".equals(mix)) {
+            base = 0;
+            span = HOT_ACCOUNTS;
+        } else if ("uncontended".equals(mix)) {
+            span = Math.max(2, accounts.length / threads);
+            base = Math.min(thread * span, accounts.length - span);
+        } else {
+            throw new IllegalArgumentException("Unknown mix: " + mix);
+        }
+
+        switch (name) {
+            case "deposit":
+                return r -> accounts[base + index(r, span)].deposit(0.01);
+            case "withdraw":
+                return r -> accounts[base + index(r, span)].withdraw(0.01);
+            case "transferTo":
+                return r -> {
+                    int from = index(r, span);
+                    return accounts[base + from].transferTo(accounts[base + other(from, r, span)], 0.01);
+                };
+            case "findAccount":
+                return r -> bank.findAccount(numbers[base + index(r, span)]) != null;
+            case "findAccountsByOwner":
+                return r -> !bank.findAccountsByOwner(owners[base + index(r, span)]).isEmpty();
+            case "transfer":
+                return r -> {
+                    int from = index(r, span);
+                    return bank.transfer(numbers[base + from], numbers[base + other(from, r, span)], 0.01);
+                };
+            case "transferIdempotent": {
+                String[] ids = new String[REQUEST_IDS];
+                for (int i = 0; i < REQUEST_IDS; i++) {
+                    ids[i] = "T" + thread + "-" + i;
+                }
+                int[] next = new int[1];
+                return r -> {
+                    int from = index(r, span);
+                    String id = ids[next[0]++ & (REQUEST_IDS - 1)];
+                    return bank.transfer(id, numbers[base + from], numbers[base + other(from, r, span)], 0.01);
+                };
+            }
+            case "readView":
+                return r -> accounts[base + index(r, span)].readView().balanceCents() > 0;
+            case "mixedReads":
+                // Four optimistic balance inquiries to one withdrawal, as in production traffic
+                return r -> {
+                    BankAccount account = accounts[base + index(r, span)];
+                    return (r >>> 8) % 5 == 0 ? account.withdraw(0.01) : account.readView().balanceCents() > 0;
+                };
+            case "mixedLockedReads":
+                // Same mix with inquiries that take the account lock, for comparison
+                return r -> {
+                    BankAccount account = accounts[base + index(r, span)];
+                    return (r >>> 8) % 5 == 0 ? account.withdraw(0.01) : lockedBalance(account) > 0;
+                };
+            case "changeStatus":
+                // Alternates between the two states so most calls make a change
+                return r -> bank.changeStatus(numbers[base + index(r, span)],
+                        (r & 1) == 0 ? AccountStatus.ACTIVE : AccountStatus.FROZEN);
+            case "setDailyLimit":
+                return r -> bank.setDailyLimit(numbers[base + index(r, span)], 100 + (r & 4095));
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + name);
+        }
+    }
+
+    private static long lockedBalance(BankAccount account) {
+        account.getLock().lock();
+        try {
+            return account.getBalanceCents() + account.getDailyWithdrawnAmountCents();
+        } finally {
+            account.getLock().unlock();
+        }
+    }
+
+    private static int index(int r, int span) {
+        return (r >>> 1) % span;
+    }
+
+    // A second account in the same range, never equal to first
+    private static int other(int first, int r, int span) {
+        return (first + 1 + (r >>> 16) % (span - 1)) % span;
+    }
+}
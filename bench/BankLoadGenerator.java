@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Closed-loop load generator for {@link BankServer}.
+ *
+ * Opens many connections; each one sends a request, waits for the response,
+ * records the latency and immediately sends the next request. The mix is 95%
+ * transfers between random accounts and 5% account lookups. Prints
+ * throughput and latency percentiles for the measured period (after warmup).
+ *
+ * Without a port an in-process server with a fresh bank is started. Every
+ * connection uses one file descriptor on each side, so raise {@code ulimit -n}
+ * for very large connection counts.
+ *
+ * Usage: java BankLoadGenerator [connections] [seconds] [accounts] [port]
+ */
+public class BankLoadGenerator {
+
+    private static final int WARMUP_SECONDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        BankServer server = null;
+        if (port == 0) {
+            Bank bank = new Bank();
+            for (int i = 0; i < accounts; i++) {
+                bank.addAccount(BankAccount.ofCents("ACC" + i, "Owner " + i, Long.MAX_VALUE / 4, 100));
+            }
+            server = BankServer.start(bank, 0);
+            port = server.port();
+        }
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        int loopCount = Math.min(connections, Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP_SECONDS * 1_000_000_000L;
+        long deadline = measureFrom + seconds * 1_000_000_000L;
+
+        ClientLoop[] loops = new ClientLoop[loopCount];
+        CountDownLatch done = new CountDownLatch(loopCount);
+        for (int i = 0; i < loopCount; i++) {
+            int share = connections / loopCount + (i < connections % loopCount ? 1 : 0);
+            ClientLoop loop = new ClientLoop(address, share, accounts, measureFrom, deadline, i);
+            loops[i] = loop;
+            new Thread(() -> {
+                try {
+                    loop.run();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + i).start();
+        }
+        done.await();
+
+        long[] all = new long[0];
+        long errors = 0;
+        for (ClientLoop loop : loops) {
+            int from = all.length;
+            all = Arrays.copyOf(all, from + loop.count);
+            System.arraycopy(loop.latencies, 0, all, from, loop.count);
+            errors += loop.errors;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("connections=%,d accounts=%,d measured=%ds%n", connections, accounts, seconds);
+        System.out.printf("requests=%,d (%,.0f/s), failed=%,d%n", all.length, all.length / (double) seconds,
+                errors);
+        System.out.printf("latency us: p50=%.0f p90=%.0f p99=%.0f p99.9=%.0f max=%.0f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 0.999),
+                percentile(all, 1.0));
+
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double p) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1_000.0;
+    }
+
+    private static final class Client {
+        final ByteBuffer out = ByteBuffer.allocate(256);
+        final ByteBuffer in = ByteBuffer.allocate(256);
+        long sentNanos;
+    }
+
+    private static final class ClientLoop {
+
+        final InetSocketAddress address;
+        final int connections;
+        final int accounts;
+        final long measureFrom;
+        final long deadline;
+        final SplittableRandom random;
+
+        long[] latencies = new long[1 << 16];
+        int count;
+        long errors;
+
+        ClientLoop(InetSocketAddress address, int connections, int accounts, long measureFrom, long deadline,
+                   int seed) {
+            this.address = address;
+            this.connections = connections;
+            this.accounts = accounts;
+            this.measureFrom = measureFrom;
+            this.deadline = deadline;
+            this.random = new SplittableRandom(seed);
+        }
+
+        void run() throws IOException {
+            try (Selector selector = Selector.open()) {
+                for (int i = 0; i < connections; i++) {
+                    SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    channel.connect(address);
+                    channel.register(selector, SelectionKey.OP_CONNECT, new Client());
+                }
+
+                int open = connections;
+                while (open > 0) {
+                    selector.select(100);
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        SocketChannel channel = (SocketChannel) key.channel();
+                        Client client = (Client) key.attachment();
+                        if (key.isConnectable()) {
+                            channel.finishConnect();
+                            send(key, client);
+                        } else if (key.isWritable()) {
+                            channel.write(client.out);
+                            if (!client.out.hasRemaining()) {
+                                key.interestOps(SelectionKey.OP_READ);
+                            }
+                        } else if (key.isReadable()) {
+                            if (channel.read(client.in) < 0) {
+                                // Dropped by the server
+                                channel.close();
+                                open--;
+                                errors++;
+                            } else if (receive(client)) {
+                                if (System.nanoTime() >= deadline) {
+                                    channel.close();
+                                    open--;
+                                } else {
+                                    send(key, client);
+                                }
+                            }
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            }
+        }
+
+        private void send(SelectionKey key, Client client) throws IOException {
+            client.out.clear();
+            String from = "ACC" + random.nextInt(accounts);
+            if (random.nextInt(100) < 95) {
+                String to = "ACC" + random.nextInt(accounts);
+                BankProtocol.putTransfer(client.out, from, to, 1 + random.nextInt(100));
+            } else {
+                BankProtocol.putFindAccount(client.out, from);
+            }
+            client.out.flip();
+            client.sentNanos = System.nanoTime();
+            ((SocketChannel) key.channel()).write(client.out);
+            key.interestOps(client.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        // True once a whole response has arrived
+        private boolean receive(Client client) {
+            client.in.flip();
+            int length = BankProtocol.frameLength(client.in);
+            if (length < 0) {
+                client.in.compact();
+                return false;
+            }
+            long now = System.nanoTime();
+            byte status = client.in.get(client.in.position() + BankProtocol.LENGTH_BYTES);
+            client.in.position(client.in.position() + length);
+            client.in.compact();
+
+            if (client.sentNanos >= measureFrom && now <= deadline) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = now - client.sentNanos;
+                // Transfers between two random accounts may hit the same account; those are rejected
+                if (status != BankProtocol.STATUS_OK && status != BankProtocol.STATUS_REJECTED) {
+                    errors++;
+                }
+            }
+            return true;
+        }
+    }
+}
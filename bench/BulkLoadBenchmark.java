@@ -0,0 +1,65 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares loading an account file line by line with
+ * {@code new BankAccount} + {@link Bank#addAccount} against
+ * {@link AccountLoader} for CSV and binary files.
+ *
+ * Usage: java -Xmx8g BulkLoadBenchmark [accounts]
+ */
+public class BulkLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("load-bench");
+        Path csv = dir.resolve("accounts.csv");
+        Path binary = dir.resolve("accounts.bin");
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < accounts; i++) {
+                out.write("ACC" + i + ",Owner " + i + "," + (i % 100_000) + ".25,500\n");
+            }
+        }
+        System.out.printf("%,d accounts, %d cores, CSV %,d MB%n", accounts,
+                Runtime.getRuntime().availableProcessors(), Files.size(csv) >> 20);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            Bank naive = new Bank();
+            try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] f = line.split(",");
+                    naive.addAccount(new BankAccount(f[0], f[1], Double.parseDouble(f[2]),
+                            Double.parseDouble(f[3])));
+                }
+            }
+            report("line by line", naive.size(), start);
+
+            start = System.nanoTime();
+            Bank bulk = new Bank(accounts);
+            report("loadCsv", AccountLoader.loadCsv(bulk, csv).loaded(), start);
+
+            if (round == 0) {
+                try (OutputStream out = Files.newOutputStream(binary)) {
+                    AccountExport.writeBinary(bulk, out);
+                }
+            }
+            start = System.nanoTime();
+            report("loadBinary", AccountLoader.loadBinary(new Bank(accounts), binary).loaded(), start);
+            System.gc();
+        }
+        Files.delete(csv);
+        Files.delete(binary);
+        Files.delete(dir);
+    }
+
+    private static void report(String name, long loaded, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-14s %,d accounts in %.2fs (%,.0f/s)%n", name, loaded, seconds, loaded / seconds);
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Duration of {@link Bank#checkpoint()} over all accounts, first on an idle
+ * bank and then while transfer threads keep running, together with the
+ * transfer rate during the checkpoints to show they are not blocked.
+ *
+ * Usage: java CheckpointBenchmark [accounts] [transferThreads]
+ */
+public class CheckpointBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        BankAccount[] batch = new BankAccount[accounts];
+        for (int i = 0; i < accounts; i++) {
+            batch[i] = BankAccount.ofCents("ACC" + i, "Owner " + i, 1_000_000, Long.MAX_VALUE);
+        }
+        Bank bank = new Bank(accounts);
+        bank.addAccounts(batch);
+
+        for (int round = 0; round < 3; round++) {
+            run(bank, "idle", null);
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder transfers = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stop.get()) {
+                    BankAccount from = batch[random.nextInt(accounts)];
+                    BankAccount to = batch[random.nextInt(accounts)];
+                    if (from != to && from.transferToCents(to, 1)) {
+                        transfers.increment();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (int round = 0; round < 3; round++) {
+            run(bank, "busy", transfers);
+        }
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private static void run(Bank bank, String label, LongAdder transfers) {
+        long transfersBefore = transfers == null ? 0 : transfers.sum();
+        long start = System.nanoTime();
+        BankTotals totals = bank.checkpoint();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long transferred = transfers == null ? 0 : transfers.sum() - transfersBefore;
+        System.out.printf("%-4s %,d accounts in %.3fs: %,.0f accounts/s, %,.0f transfers/s meanwhile, balanced=%b%n",
+                label, totals.accounts(), seconds, totals.accounts() / seconds, transferred / seconds,
+                totals.isBalanced());
+    }
+}
@@ -0,0 +1,73 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares heap footprint and GC time of the object-per-account {@link Bank}
+ * with the primitive-column {@link ColumnarBank} for the same accounts.
+ *
+ * Run each engine in its own JVM so their heaps do not interfere:
+ * <pre>
+ *   java -Xmx16g ColumnarMemoryBenchmark bank 10000000
+ *   java -Xmx16g ColumnarMemoryBenchmark columnar 10000000
+ * </pre>
+ */
+public class ColumnarMemoryBenchmark {
+
+    public static void main(String[] args) {
+        String engine = args.length > 0 ? args[0] : "columnar";
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        long before = usedHeapAfterGc();
+        long start = System.nanoTime();
+        Object keepAlive;
+        if (engine.equals("bank")) {
+            Bank bank = new Bank();
+            for (int i = 0; i < accounts; i++) {
+                bank.addAccount(BankAccount.ofCents("ACC" + i, "Owner " + i, 100_000, 500_000));
+            }
+            for (int i = 0; i < accounts; i++) {
+                bank.transferCents("ACC" + i, "ACC" + ((i + 1) % accounts), 1);
+            }
+            keepAlive = bank;
+        } else {
+            ColumnarBank bank = new ColumnarBank(accounts);
+            for (int i = 0; i < accounts; i++) {
+                bank.addAccountCents("ACC" + i, "Owner " + i, 100_000, 500_000);
+            }
+            for (int i = 0; i < accounts; i++) {
+                bank.transferCents("ACC" + i, "ACC" + ((i + 1) % accounts), 1);
+            }
+            keepAlive = bank;
+        }
+        double loadSeconds = (System.nanoTime() - start) / 1e9;
+        long gcBefore = totalGcMillis();
+        long after = usedHeapAfterGc();
+        long fullGcMillis = totalGcMillis() - gcBefore;
+
+        System.out.printf("engine=%s accounts=%,d%n", engine, accounts);
+        System.out.printf("load+transfers:    %.1fs%n", loadSeconds);
+        System.out.printf("retained heap:     %,d MB (%.0f bytes/account)%n", (after - before) >> 20,
+                (after - before) / (double) accounts);
+        System.out.printf("full GC over heap: %d ms%n", fullGcMillis);
+        System.out.printf("total GC time:     %d ms%n", totalGcMillis());
+        if (keepAlive == null) {
+            throw new AssertionError();
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
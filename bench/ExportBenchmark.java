@@ -0,0 +1,52 @@
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Export speed of {@link AccountExport} for CSV and binary output to a file,
+ * with heap use before and after each export to show it stays constant.
+ *
+ * Usage: java -Xmx8g ExportBenchmark [accounts]
+ */
+public class ExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Bank bank = new Bank();
+        for (int i = 0; i < accounts; i++) {
+            bank.addAccount(BankAccount.ofCents("ACC" + i, "Owner " + i, 100_000 + i, 500_000));
+        }
+
+        Path dir = Files.createTempDirectory("export-bench");
+        for (int round = 0; round < 3; round++) {
+            run(bank, dir.resolve("accounts.csv"), true);
+            run(bank, dir.resolve("accounts.bin"), false);
+        }
+        Files.deleteIfExists(dir.resolve("accounts.csv"));
+        Files.deleteIfExists(dir.resolve("accounts.bin"));
+        Files.delete(dir);
+    }
+
+    private static void run(Bank bank, Path file, boolean csv) throws Exception {
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        long count;
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            count = csv ? AccountExport.writeCsv(bank, out) : AccountExport.writeBinary(bank, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long heapAfter = usedHeap();
+        long bytes = Files.size(file);
+        System.out.printf("%-6s %,d accounts, %,d MB in %.2fs: %,.0f accounts/s, %,.0f MB/s, heap %+,d KB%n",
+                csv ? "csv" : "binary", count, bytes >> 20, seconds, count / seconds, (bytes >> 20) / seconds,
+                (heapAfter - heapBefore) >> 10);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures durable Bank.transfer throughput for several group-commit windows.
+ *
+ * Each thread transfers between its own pair of accounts, so the only shared
+ * resource is the journal. Every transfer waits for its fsync.
+ *
+ * Usage: java JournalBenchmark [threads] [secondsPerWindow]
+ */
+public class JournalBenchmark {
+
+    private static final long[] WINDOWS_MILLIS = {0, 1, 2, 5, 10};
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.printf("threads=%d, %ds per window%n", threads, seconds);
+        System.out.printf("%-12s %12s%n", "window(ms)", "ops/sec");
+        for (long window : WINDOWS_MILLIS) {
+            System.out.printf("%-12d %12.0f%n", window, run(threads, seconds, window));
+        }
+    }
+
+    private static double run(int threads, int seconds, long windowMillis) throws Exception {
+        Path dir = Files.createTempDirectory("journal-bench");
+        Path file = dir.resolve("bench.journal");
+        LongAdder ops = new LongAdder();
+        try (Bank bank = Bank.open(file, windowMillis, 256 * 1024)) {
+            for (int i = 0; i < threads * 2; i++) {
+                bank.addAccount(BankAccount.ofCents("J" + i, "Owner " + i, Long.MAX_VALUE / 4, 100));
+            }
+
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                String from = "J" + (t * 2);
+                String to = "J" + (t * 2 + 1);
+                Thread worker = new Thread(() -> {
+                    while (System.nanoTime() < deadline) {
+                        bank.transferCents(from, to, 1);
+                        ops.increment();
+                    }
+                    done.countDown();
+                });
+                worker.start();
+            }
+            done.await();
+        } finally {
+            deleteQuietly(file);
+            deleteQuietly(dir);
+        }
+        return ops.sum() / (double) seconds;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Temporary benchmark files only
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Time to pay a payroll run of one debit account into many employee
+ * accounts: as independent {@link Bank#transferCents} calls (two lock
+ * round-trips per employee, no atomicity), as one {@link Bank#transferBatch}
+ * and as one all-or-nothing {@link Bank#transferAtomic}.
+ *
+ * Usage: java PayrollBenchmark [employees] [rounds]
+ */
+public class PayrollBenchmark {
+
+    public static void main(String[] args) {
+        int employees = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Bank bank = new Bank(employees + 1);
+        bank.addAccount(BankAccount.ofCents("PAYER", "Payroll", Long.MAX_VALUE / 2, Long.MAX_VALUE));
+        TransferInstruction[] payroll = new TransferInstruction[employees];
+        for (int i = 0; i < employees; i++) {
+            bank.addAccount(BankAccount.ofCents("EMP" + i, "Employee " + i, 0, Long.MAX_VALUE));
+            payroll[i] = TransferInstruction.ofCents("PAYER", "EMP" + i, 1);
+        }
+
+        for (int pass = 0; pass < 3; pass++) {
+            run("single", rounds, employees, () -> {
+                for (TransferInstruction leg : payroll) {
+                    bank.transferCents(leg.getFromAccountNumber(), leg.getToAccountNumber(), leg.getAmountCents());
+                }
+            });
+            run("batch", rounds, employees, () -> bank.transferBatch(payroll));
+            run("atomic", rounds, employees, () -> bank.transferAtomic(payroll));
+        }
+    }
+
+    private static void run(String label, int rounds, int employees, Runnable payOnce) {
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            payOnce.run();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-6s %,d employees: %,.1f us per run, %,.0f ns per leg%n",
+                label, employees, nanos / 1e3 / rounds, (double) nanos / rounds / employees);
+    }
+}
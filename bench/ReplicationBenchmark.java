@@ -0,0 +1,92 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Leader throughput of durable transfers on a journaled bank with journal
+ * shipping off and on (one in-process {@link ReplicationFollower} over
+ * loopback), plus the replication lag seen while it runs.
+ *
+ * Usage: java ReplicationBenchmark [threads] [seconds] [groupCommitMillis]
+ */
+public class ReplicationBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long groupCommitMillis = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        for (int round = 0; round < 2; round++) {
+            run(false, threads, seconds, groupCommitMillis);
+            run(true, threads, seconds, groupCommitMillis);
+        }
+    }
+
+    private static void run(boolean replicate, int threads, int seconds, long groupCommitMillis) throws Exception {
+        Path dir = Files.createTempDirectory("replication-bench");
+        Path file = dir.resolve("leader.journal");
+        try (Bank bank = Bank.open(file, groupCommitMillis, 256 * 1024)) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                bank.addAccount(BankAccount.ofCents("ACC" + i, "Owner " + i, 1_000_000_000, Long.MAX_VALUE));
+            }
+            bank.awaitDurable();
+            ReplicationLeader leader = replicate ? ReplicationLeader.start(bank, file, 0) : null;
+            ReplicationFollower follower = replicate ? ReplicationFollower.connect(leader.port()) : null;
+            if (follower != null) {
+                follower.awaitPosition(leader.durablePosition(), 60_000);
+            }
+
+            AtomicBoolean stop = new AtomicBoolean();
+            LongAdder transfers = new LongAdder();
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!stop.get()) {
+                        int from = random.nextInt(ACCOUNTS);
+                        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                        if (bank.transferCents("ACC" + from, "ACC" + to, 1)) {
+                            transfers.increment();
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            long maxLagBytes = 0;
+            long start = System.nanoTime();
+            long end = start + seconds * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                Thread.sleep(10);
+                if (leader != null) {
+                    maxLagBytes = Math.max(maxLagBytes, leader.lagBytes());
+                }
+            }
+            stop.set(true);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            if (leader == null) {
+                System.out.printf("replication off: %,.0f transfers/s%n", transfers.sum() / elapsed);
+            } else {
+                long caughtUpStart = System.nanoTime();
+                follower.awaitPosition(leader.durablePosition(), 60_000);
+                LatencyHistogram.Snapshot lag = leader.replicationLatency();
+                System.out.printf("replication on:  %,.0f transfers/s, lag p50 %.2f ms, p99 %.2f ms, max %.2f ms, "
+                                + "max %,d bytes behind, caught up %.1f ms after load stopped%n",
+                        transfers.sum() / elapsed, lag.valueAtPercentile(50) / 1e6,
+                        lag.valueAtPercentile(99) / 1e6, lag.max() / 1e6, maxLagBytes,
+                        (System.nanoTime() - caughtUpStart) / 1e6);
+                follower.close();
+                leader.close();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
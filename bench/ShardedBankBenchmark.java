@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of ShardedBank for increasing shard counts.
+ *
+ * For each shard count, as many producer threads as shards keep a window of
+ * asynchronous commands outstanding: 80% transfers between random accounts
+ * (mostly cross-shard) and 20% deposits. Throughput should grow with the
+ * shard count up to the number of cores available for shards and producers.
+ *
+ * Usage: java ShardedBankBenchmark [accounts] [secondsPerRun] [maxShards]
+ */
+public class ShardedBankBenchmark {
+
+    private static final int WINDOW = 1024;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int maxShards = args.length > 2 ? Integer.parseInt(args[2])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        System.out.printf("accounts=%,d, %ds per run, %d cores%n", accounts, seconds,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %14s%n", "shards", "ops/sec");
+        for (int shards = 1; shards <= maxShards; shards *= 2) {
+            System.out.printf("%-8d %14.0f%n", shards, run(shards, accounts, seconds));
+        }
+    }
+
+    private static double run(int shards, int accounts, int seconds) throws Exception {
+        try (ShardedBank bank = new ShardedBank(shards)) {
+            for (int i = 0; i < accounts; i++) {
+                bank.addAccountAsync("ACC" + i, "Owner " + i, Long.MAX_VALUE / 4 / accounts, 100);
+            }
+            bank.getBalanceCents("ACC0");
+
+            LongAdder ops = new LongAdder();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            CountDownLatch done = new CountDownLatch(shards);
+            for (int p = 0; p < shards; p++) {
+                int seed = p;
+                new Thread(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    List<CompletableFuture<Boolean>> window = new ArrayList<>(Collections.nCopies(WINDOW, null));
+                    long count = 0;
+                    while (System.nanoTime() < deadline) {
+                        int slot = (int) (count % WINDOW);
+                        CompletableFuture<Boolean> previous = window.get(slot);
+                        if (previous != null) {
+                            previous.join();
+                        }
+                        String from = "ACC" + random.nextInt(accounts);
+                        window.set(slot, random.nextInt(5) == 0
+                                ? bank.depositAsync(from, 1)
+                                : bank.transferAsync(from, "ACC" + random.nextInt(accounts), 1));
+                        count++;
+                    }
+                    for (CompletableFuture<Boolean> f : window) {
+                        if (f != null) {
+                            f.join();
+                        }
+                    }
+                    ops.add(count);
+                    done.countDown();
+                }).start();
+            }
+            done.await();
+            return ops.sum() / (double) seconds;
+        }
+    }
+}
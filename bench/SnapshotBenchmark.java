@@ -0,0 +1,71 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares cold-start time of a journaled Bank rebuilt by full journal replay
+ * with one started from a memory-mapped snapshot plus a short journal tail.
+ *
+ * Usage: java -Xmx8g SnapshotBenchmark [accounts]
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        Path journal = dir.resolve("bank.journal");
+        Path snapshot = dir.resolve("bank.snapshot");
+
+        long start = System.nanoTime();
+        try (Bank bank = Bank.open(journal, 1, 1 << 20)) {
+            // Many concurrent writers so group commit amortizes the fsyncs
+            int writers = 256;
+            ExecutorService pool = Executors.newFixedThreadPool(writers);
+            for (int w = 0; w < writers; w++) {
+                int first = w;
+                pool.execute(() -> {
+                    for (int i = first; i < accounts; i += writers) {
+                        BankAccount account = BankAccount.ofCents("ACC" + i, "Owner " + i, 100_000, 500_000);
+                        bank.addAccount(account);
+                        account.depositCents(1 + i % 100);
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+            bank.awaitDurable();
+            System.out.printf("populated %,d accounts in %.1fs (journal %,d MB)%n", accounts,
+                    seconds(start), Files.size(journal) >> 20);
+
+            start = System.nanoTime();
+            bank.writeSnapshot(snapshot);
+            System.out.printf("snapshot written in %.1fs (%,d MB)%n", seconds(start), Files.size(snapshot) >> 20);
+
+            // A short tail of changes after the snapshot
+            for (int i = 0; i < Math.min(accounts, 10_000); i++) {
+                bank.findAccount("ACC" + i).depositCents(7);
+            }
+        }
+
+        start = System.nanoTime();
+        try (Bank replayed = Bank.open(journal, 1, 1 << 20)) {
+            System.out.printf("full journal replay:      %.2fs (%,d accounts)%n", seconds(start),
+                    replayed.size());
+        }
+        start = System.nanoTime();
+        try (Bank fromSnapshot = Bank.open(journal, snapshot, 1, 1 << 20)) {
+            System.out.printf("snapshot + journal tail:  %.2fs (%,d accounts)%n", seconds(start),
+                    fromSnapshot.size());
+        }
+
+        Files.delete(journal);
+        Files.delete(snapshot);
+        Files.delete(dir);
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+}
@@ -0,0 +1,117 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Throughput of the BankAccount and Bank operations for several account
+ * populations, thread counts and contention mixes (see {@code BankFixture}).
+ *
+ * Usage:
+ * <pre>
+ *   mvn -Pbench package
+ *   java -jar target/benchmarks.jar                      # everything
+ *   java -jar target/benchmarks.jar -p operation=transfer -p mix=contended
+ *   java -jar target/benchmarks.jar -p accounts=1000 -p operation=withdraw   # metrics off vs on
+ *   java -jar target/benchmarks.jar -p metrics=false -p operation=withdraw   # standard vs tiered policy
+ *   java -jar target/benchmarks.jar -p operation=mixedReads,mixedLockedReads -p mix=contended
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Accounts {
+
+        @Param({"1000", "100000", "1000000"})
+        int accounts;
+
+        // true measures the overhead of BankMetrics against the same run with false
+        @Param({"false", "true"})
+        boolean metrics;
+
+        // tiered puts every account on an AccountPolicy with caps, a minimum
+        // balance and velocity windows that never reject, to compare with the
+        // standard policy
+        @Param({"standard", "tiered"})
+        String policy;
+
+        Object fixture;
+
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            fixture = Class.forName("BankFixture").getConstructor(int.class, boolean.class, String.class)
+                    .newInstance(accounts, metrics, policy);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+
+        @Param({"deposit", "withdraw", "transferTo", "findAccount", "findAccountsByOwner", "transfer",
+                "transferIdempotent", "readView", "mixedReads", "mixedLockedReads", "changeStatus",
+                "setDailyLimit"})
+        String operation;
+
+        @Param({"uncontended", "contended"})
+        String mix;
+
+        IntPredicate op;
+        int seed;
+
+        @Setup(Level.Trial)
+        public void setUp(Accounts accounts, ThreadParams threads) throws ReflectiveOperationException {
+            op = (IntPredicate) accounts.fixture.getClass()
+                    .getMethod("operation", String.class, String.class, int.class, int.class)
+                    .invoke(accounts.fixture, operation, mix, threads.getThreadIndex(), threads.getThreadCount());
+            seed = 0x9E3779B9 * (threads.getThreadIndex() + 1);
+        }
+
+        int next() {
+            // xorshift32: cheap, and keeps the access pattern out of the branch predictor
+            int x = seed;
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            seed = x;
+            return x;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean threads01(Worker worker) {
+        return worker.op.test(worker.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean threads04(Worker worker) {
+        return worker.op.test(worker.next());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean threads16(Worker worker) {
+        return worker.op.test(worker.next());
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streams every account of a {@link Bank} to a channel or stream, as CSV or
+ * in a compact binary format.
+ *
+ * Records are encoded straight into one reusable 64 KB buffer that is
+ * written out whenever it fills up, so memory use does not depend on the
+ * number of accounts and plain ASCII names are written without creating
+ * any objects. Each account is copied under its own lock, as in a
+ * snapshot; accounts added after the export started are not included.
+ *
+ * CSV: one header line ({@link #CSV_HEADER}), then one line per account with
+ * amounts in units with two decimals and the status name. Fields containing
+ * a comma, quote or line break are quoted.
+ *
+ * Binary (big-endian):
+ * <pre>
+ *   header   int magic, int version
+ *   records  short length + UTF-8 account number, short length + UTF-8 owner name,
+ *            long balance, long dailyWithdrawalLimit, long dailyWithdrawnAmount,
+ *            long withdrawalDay, byte status (amounts in cents)
+ *   trailer  short 0 (an empty account number), long record count
+ * </pre>
+ */
+public final class AccountExport {
+
+    public static final String CSV_HEADER =
+            "accountNumber,ownerName,balance,dailyWithdrawalLimit,dailyWithdrawnAmount,status";
+
+    static final int MAGIC = 0x42455850; // "BEXP"
+    static final int VERSION = 1;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private AccountExport() {
+    }
+
+    /**
+     * Writes all accounts of {@code bank} as CSV; the stream is not closed.
+     *
+     * @return number of accounts written
+     */
+    public static long writeCsv(Bank bank, OutputStream out) throws IOException {
+        return writeCsv(bank, Channels.newChannel(out));
+    }
+
+    /**
+     * Writes all accounts of {@code bank} as CSV; the channel is not closed.
+     *
+     * @return number of accounts written
+     */
+    public static long writeCsv(Bank bank, WritableByteChannel out) throws IOException {
+        Encoder encoder = new Encoder(out);
+        encoder.putAscii(CSV_HEADER);
+        encoder.put((byte) '\n');
+        int count = bank.size();
+        for (int i = 0; i < count; i++) {
+            BankAccount account = bank.accountAt(i);
+            encoder.copy(account);
+            encoder.putCsvField(account.getAccountNumber());
+            encoder.put((byte) ',');
+            encoder.putCsvField(account.getOwnerName());
+            encoder.put((byte) ',');
+            encoder.putAmount(encoder.balance);
+            encoder.put((byte) ',');
+            encoder.putAmount(encoder.limit);
+            encoder.put((byte) ',');
+            encoder.putAmount(encoder.withdrawn);
+            encoder.put((byte) ',');
+            encoder.putAscii(encoder.status.name());
+            encoder.put((byte) '\n');
+        }
+        encoder.flush();
+        return count;
+    }
+
+    /**
+     * Writes all accounts of {@code bank} in the binary format; the stream is
+     * not closed.
+     *
+     * @return number of accounts written
+     */
+    public static long writeBinary(Bank bank, OutputStream out) throws IOException {
+        return writeBinary(bank, Channels.newChannel(out));
+    }
+
+    /**
+     * Writes all accounts of {@code bank} in the binary format; the channel is
+     * not closed.
+     *
+     * @return number of accounts written
+     */
+    public static long writeBinary(Bank bank, WritableByteChannel out) throws IOException {
+        Encoder encoder = new Encoder(out);
+        encoder.ensure(8);
+        encoder.buffer.putInt(MAGIC).putInt(VERSION);
+        int count = bank.size();
+        for (int i = 0; i < count; i++) {
+            BankAccount account = bank.accountAt(i);
+            encoder.copy(account);
+            encoder.putBinaryString(account.accountNumberBytes());
+            encoder.putBinaryString(account.getOwnerName());
+            encoder.ensure(33);
+            encoder.buffer.putLong(encoder.balance).putLong(encoder.limit).putLong(encoder.withdrawn)
+                    .putLong(encoder.withdrawalDay).put(encoder.status.code());
+        }
+        encoder.ensure(10);
+        encoder.buffer.putShort((short) 0).putLong(count);
+        encoder.flush();
+        return count;
+    }
+
+    /**
+     * Output buffer plus the state of the account being written.
+     */
+    private static final class Encoder {
+
+        final WritableByteChannel out;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final byte[] digits = new byte[20];
+
+        long balance;
+        long limit;
+        long withdrawn;
+        long withdrawalDay;
+        AccountStatus status;
+
+        Encoder(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        void copy(BankAccount account) {
+            ReentrantLock lock = account.getLock();
+            lock.lock();
+            try {
+                balance = account.getBalanceCents();
+                limit = account.getDailyWithdrawalLimitCents();
+                withdrawn = account.getDailyWithdrawnAmountCents();
+                withdrawalDay = account.getWithdrawalDay();
+                status = account.getStatus();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void put(byte b) throws IOException {
+            ensure(1);
+            buffer.put(b);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        // Only for strings known to be ASCII
+        void putAscii(String s) throws IOException {
+            if (s.length() > BUFFER_BYTES) {
+                put(s.getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                buffer.put((byte) s.charAt(i));
+            }
+        }
+
+        void putCsvField(String s) throws IOException {
+            boolean ascii = true;
+            boolean quote = false;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                ascii &= c < 0x80;
+                quote |= c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                put((byte) '"');
+                put(s.replace("\"", "\"\"").getBytes(StandardCharsets.UTF_8));
+                put((byte) '"');
+            } else if (ascii) {
+                putAscii(s);
+            } else {
+                put(s.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        // Cents as units with two decimals, e.g. 12345 -> 123.45
+        void putAmount(long cents) throws IOException {
+            ensure(22);
+            if (cents < 0) {
+                buffer.put((byte) '-');
+            }
+            long units = Math.abs(cents / Money.CENTS_PER_UNIT);
+            int fraction = (int) Math.abs(cents % Money.CENTS_PER_UNIT);
+            int n = digits.length;
+            do {
+                digits[--n] = (byte) ('0' + units % 10);
+                units /= 10;
+            } while (units != 0);
+            buffer.put(digits, n, digits.length - n);
+            buffer.put((byte) '.').put((byte) ('0' + fraction / 10)).put((byte) ('0' + fraction % 10));
+        }
+
+        void putBinaryString(byte[] utf8) throws IOException {
+            if (utf8.length > 0xFFFF) {
+                throw new IOException("String too long for the export format: " + utf8.length + " bytes");
+            }
+            ensure(2);
+            buffer.putShort((short) utf8.length);
+            put(utf8);
+        }
+
+        void putBinaryString(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) >= 0x80) {
+                    putBinaryString(s.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+            if (s.length() > 0xFFFF) {
+                throw new IOException("String too long for the export format: " + s.length() + " bytes");
+            }
+            ensure(2);
+            buffer.putShort((short) s.length());
+            putAscii(s);
+        }
+    }
+}
@@ -0,0 +1,584 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk-loads accounts into a {@link Bank} from files in the formats written
+ * by {@link AccountExport}.
+ *
+ * The file is memory-mapped and cut into chunks that are parsed in parallel
+ * on a {@link ForkJoinPool}. Every record is validated with the rules of the
+ * {@link BankAccount} constructor; invalid records are skipped and reported
+ * in the {@link Result} with their line (CSV) or record (binary) number, as
+ * are duplicate account numbers. Valid accounts are then added with
+ * {@link Bank#addAccounts}, so with duplicates the first one in the file wins.
+ * Create the bank with {@link Bank#Bank(int)} to size its index up front.
+ *
+ * CSV input has the columns accountNumber, ownerName, balance and
+ * dailyWithdrawalLimit (decimal amounts with up to two decimals), optionally
+ * followed by dailyWithdrawnAmount (counted as withdrawn today) and status.
+ * A first line starting with {@code accountNumber,} is a header. Quoted fields
+ * may contain commas and doubled quotes but not line breaks, and lines are
+ * limited to {@link #MAX_LINE_BYTES}.
+ */
+public final class AccountLoader {
+
+    /** Longest CSV line accepted. */
+    public static final int MAX_LINE_BYTES = 1 << 16;
+
+    /** At most this many rejections are kept in a {@link Result}; all are counted. */
+    public static final int MAX_REPORTED_REJECTIONS = 10_000;
+
+    private static final long CSV_CHUNK_BYTES = 8L << 20;
+    private static final int BINARY_CHUNK_RECORDS = 1 << 16;
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    // Fixed part of a binary record after the two strings
+    private static final int BINARY_FIELDS_BYTES = 33;
+
+    private static final long INVALID_AMOUNT = Long.MIN_VALUE;
+
+    private AccountLoader() {
+    }
+
+    public static Result loadCsv(Bank bank, Path file) throws IOException {
+        return loadCsv(bank, file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a CSV file into {@code bank}, parsing on {@code pool}.
+     */
+    public static Result loadCsv(Bank bank, Path file, ForkJoinPool pool) throws IOException {
+        long today = bank.getClock().epochDay();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (long start = 0; start < size; start += CSV_CHUNK_BYTES) {
+                long chunkStart = start;
+                tasks.add(() -> parseCsv(channel, size, chunkStart, Math.min(size, chunkStart + CSV_CHUNK_BYTES),
+                        today));
+            }
+            return add(bank, run(pool, tasks));
+        }
+    }
+
+    public static Result loadBinary(Bank bank, Path file) throws IOException {
+        return loadBinary(bank, file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a file written by {@link AccountExport#writeBinary} into
+     * {@code bank}, parsing on {@code pool}. Record boundaries are found with
+     * one sequential pass over the string lengths first.
+     */
+    public static Result loadBinary(Bank bank, Path file, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Read until full or end of file
+            }
+            header.flip();
+            if (header.remaining() < 8 || header.getInt() != AccountExport.MAGIC
+                    || header.getInt() != AccountExport.VERSION) {
+                throw new IOException("Not an account export: " + file);
+            }
+
+            // Chunk boundaries: offset of every BINARY_CHUNK_RECORDS-th record, then of the trailer
+            List<Long> offsets = new ArrayList<>();
+            Window window = new Window(channel, 8);
+            long records = 0;
+            while (true) {
+                if (records % BINARY_CHUNK_RECORDS == 0) {
+                    offsets.add(window.position());
+                }
+                int numberLength = window.getShort(0);
+                if (numberLength == 0) {
+                    break;
+                }
+                int ownerLength = window.getShort(2 + numberLength);
+                window.skip(2 + numberLength + 2 + ownerLength + BINARY_FIELDS_BYTES);
+                records++;
+            }
+            long trailer = window.position();
+            if (window.getLong(2) != records) {
+                throw new IOException("Corrupt account export, record count mismatch: " + file);
+            }
+            if (offsets.get(offsets.size() - 1) != trailer) {
+                offsets.add(trailer);
+            }
+
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < offsets.size(); i++) {
+                long start = offsets.get(i);
+                long end = offsets.get(i + 1);
+                tasks.add(() -> parseBinary(channel, start, end));
+            }
+            return add(bank, run(pool, tasks));
+        }
+    }
+
+    private static List<Chunk> run(ForkJoinPool pool, List<Callable<Chunk>> tasks) throws IOException {
+        List<Chunk> chunks = new ArrayList<>(tasks.size());
+        try {
+            for (Future<Chunk> f : pool.invokeAll(tasks)) {
+                chunks.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading accounts", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Loading accounts failed", cause);
+        }
+        return chunks;
+    }
+
+    /**
+     * Numbers the records of all chunks in file order, adds the valid
+     * accounts and collects the rejections.
+     */
+    private static Result add(Bank bank, List<Chunk> chunks) {
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.count;
+        }
+        BankAccount[] accounts = new BankAccount[total];
+        long[] lines = new long[total];
+        List<Rejection> rejections = new ArrayList<>();
+        long rejected = 0;
+
+        int next = 0;
+        long firstLine = 1;
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.count; i++) {
+                accounts[next] = chunk.accounts[i];
+                lines[next++] = firstLine + chunk.lines[i];
+            }
+            for (Rejection r : chunk.rejections) {
+                rejections.add(new Rejection(firstLine + r.line, r.reason));
+            }
+            rejected += chunk.rejected;
+            firstLine += chunk.lineCount;
+        }
+
+        boolean[] added = bank.addAccounts(accounts);
+        long loaded = 0;
+        for (int i = 0; i < total; i++) {
+            if (added[i]) {
+                loaded++;
+            } else {
+                rejected++;
+                rejections.add(new Rejection(lines[i], "Duplicate account number."));
+            }
+        }
+        rejections.sort(Comparator.comparingLong(Rejection::line));
+        if (rejections.size() > MAX_REPORTED_REJECTIONS) {
+            rejections = new ArrayList<>(rejections.subList(0, MAX_REPORTED_REJECTIONS));
+        }
+        return new Result(loaded, rejected, rejections);
+    }
+
+    // --------- CSV --------- //
+
+    /**
+     * Parses the lines that start in [start, end). A line starts at 0 or
+     * right after a newline; the last one may run past {@code end}.
+     */
+    private static Chunk parseCsv(FileChannel channel, long size, long start, long end, long today)
+            throws IOException {
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(size, end + MAX_LINE_BYTES);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = buffer.limit();
+        int stop = (int) (end - mapStart);
+
+        int pos = 0;
+        if (start > 0) {
+            // Skip to the first line starting at or after start
+            while (pos < limit && buffer.get(pos) != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+
+        Chunk chunk = new Chunk();
+        byte[] line = new byte[MAX_LINE_BYTES];
+        CsvFields fields = new CsvFields();
+        while (pos < stop) {
+            int eol = pos;
+            while (eol < limit && buffer.get(eol) != '\n') {
+                eol++;
+            }
+            if (eol - pos > MAX_LINE_BYTES || (eol == limit && mapEnd < size)) {
+                throw new IOException("CSV line longer than " + MAX_LINE_BYTES + " bytes at offset "
+                        + (mapStart + pos));
+            }
+            int length = eol - pos;
+            if (length > 0 && buffer.get(eol - 1) == '\r') {
+                length--;
+            }
+            buffer.get(pos, line, 0, length);
+            long lineIndex = chunk.lineCount++;
+            pos = eol + 1;
+
+            if (length == 0 || (start == 0 && lineIndex == 0 && startsWithHeader(line, length))) {
+                continue;
+            }
+            String error = fields.split(line, length);
+            if (error == null) {
+                error = parseCsvAccount(fields, chunk, lineIndex, today);
+            }
+            if (error != null) {
+                chunk.reject(lineIndex, error);
+            }
+        }
+        return chunk;
+    }
+
+    private static boolean startsWithHeader(byte[] line, int length) {
+        byte[] header = "accountNumber,".getBytes(StandardCharsets.US_ASCII);
+        if (length < header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (line[i] != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the reason the record was rejected, or null once it is added to chunk
+    private static String parseCsvAccount(CsvFields fields, Chunk chunk, long lineIndex, long today) {
+        if (fields.count < 4 || fields.count > 6) {
+            return "Expected 4 to 6 fields, found " + fields.count + ".";
+        }
+        long balance = fields.amount(2);
+        long limit = fields.amount(3);
+        long withdrawn = fields.count > 4 ? fields.amount(4) : 0;
+        if (balance == INVALID_AMOUNT || limit == INVALID_AMOUNT || withdrawn == INVALID_AMOUNT) {
+            return "Invalid amount.";
+        }
+        if (withdrawn < 0) {
+            return "Daily withdrawn amount cannot be negative.";
+        }
+        AccountStatus status = AccountStatus.ACTIVE;
+        if (fields.count > 5) {
+            status = AccountStatus.parse(fields.text(5).trim());
+            if (status == null) {
+                return "Unknown status: " + fields.text(5);
+            }
+        }
+        try {
+            BankAccount account = BankAccount.ofCents(fields.text(0), fields.text(1), balance, limit);
+            if (withdrawn != 0 || status != AccountStatus.ACTIVE) {
+                account.applyRecoveredState(balance, limit, withdrawn, withdrawn == 0
+                        ? BankAccount.NO_WITHDRAWAL_DAY : today, status);
+            }
+            chunk.add(account, lineIndex);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Field boundaries of one CSV line, reused for every line of a chunk.
+     */
+    private static final class CsvFields {
+
+        private static final int MAX_FIELDS = 7;
+
+        final int[] from = new int[MAX_FIELDS];
+        final int[] to = new int[MAX_FIELDS];
+        final boolean[] quoted = new boolean[MAX_FIELDS];
+        byte[] line;
+        int count;
+
+        // Returns an error message, or null
+        String split(byte[] line, int length) {
+            this.line = line;
+            count = 0;
+            int pos = 0;
+            while (true) {
+                if (count == MAX_FIELDS) {
+                    return "Too many fields.";
+                }
+                int field = count++;
+                quoted[field] = pos < length && line[pos] == '"';
+                if (quoted[field]) {
+                    from[field] = ++pos;
+                    while (true) {
+                        if (pos >= length) {
+                            return "Unterminated quoted field.";
+                        }
+                        if (line[pos] == '"') {
+                            if (pos + 1 < length && line[pos + 1] == '"') {
+                                pos += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        pos++;
+                    }
+                    to[field] = pos++;
+                    if (pos < length && line[pos] != ',') {
+                        return "Unexpected character after quoted field.";
+                    }
+                } else {
+                    from[field] = pos;
+                    while (pos < length && line[pos] != ',') {
+                        pos++;
+                    }
+                    to[field] = pos;
+                }
+                if (pos >= length) {
+                    return null;
+                }
+                pos++; // Comma
+            }
+        }
+
+        String text(int field) {
+            String s = new String(line, from[field], to[field] - from[field], StandardCharsets.UTF_8);
+            return quoted[field] ? s.replace("\"\"", "\"") : s;
+        }
+
+        /**
+         * Decimal amount with up to two decimals, in cents, or INVALID_AMOUNT.
+         */
+        long amount(int field) {
+            int pos = from[field];
+            int end = to[field];
+            while (pos < end && line[pos] == ' ') {
+                pos++;
+            }
+            while (end > pos && line[end - 1] == ' ') {
+                end--;
+            }
+            boolean negative = pos < end && line[pos] == '-';
+            if (negative) {
+                pos++;
+            }
+            long units = 0;
+            int digits = 0;
+            while (pos < end && line[pos] >= '0' && line[pos] <= '9') {
+                if (units > (Long.MAX_VALUE / Money.CENTS_PER_UNIT - 9) / 10) {
+                    return INVALID_AMOUNT;
+                }
+                units = units * 10 + (line[pos++] - '0');
+                digits++;
+            }
+            long cents = 0;
+            int decimals = 0;
+            if (pos < end && line[pos] == '.') {
+                pos++;
+                while (pos < end && line[pos] >= '0' && line[pos] <= '9' && decimals < 2) {
+                    cents = cents * 10 + (line[pos++] - '0');
+                    decimals++;
+                }
+                if (decimals == 1) {
+                    cents *= 10;
+                }
+            }
+            if (pos != end || digits + decimals == 0) {
+                return INVALID_AMOUNT;
+            }
+            long amount = units * Money.CENTS_PER_UNIT + cents;
+            return negative ? -amount : amount;
+        }
+    }
+
+    // --------- Binary --------- //
+
+    private static Chunk parseBinary(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        Chunk chunk = new Chunk();
+        byte[] bytes = new byte[0xFFFF];
+        while (buffer.hasRemaining()) {
+            long index = chunk.lineCount++;
+            String number = getString(buffer, bytes);
+            String owner = getString(buffer, bytes);
+            long balance = buffer.getLong();
+            long limit = buffer.getLong();
+            long withdrawn = buffer.getLong();
+            long withdrawalDay = buffer.getLong();
+            byte code = buffer.get();
+            try {
+                AccountStatus status = AccountStatus.fromCode(code);
+                BankAccount account = BankAccount.ofCents(number, owner, balance, limit);
+                account.applyRecoveredState(balance, limit, withdrawn, withdrawalDay, status);
+                chunk.add(account, index);
+            } catch (IllegalArgumentException e) {
+                chunk.reject(index, e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    private static String getString(ByteBuffer buffer, byte[] bytes) {
+        int length = buffer.getShort() & 0xFFFF;
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sequential read-only view of a file for the boundary scan, mapping one
+     * window at a time.
+     */
+    private static final class Window {
+
+        private final FileChannel channel;
+        private long base;
+        private long mappedBase;
+        private MappedByteBuffer buffer;
+
+        Window(FileChannel channel, long position) {
+            this.channel = channel;
+            this.base = position;
+        }
+
+        long position() {
+            return base;
+        }
+
+        void skip(int bytes) {
+            base += bytes;
+        }
+
+        int getShort(int offset) throws IOException {
+            return map(offset, 2).getShort((int) (base - mappedBase) + offset) & 0xFFFF;
+        }
+
+        long getLong(int offset) throws IOException {
+            return map(offset, 8).getLong((int) (base - mappedBase) + offset);
+        }
+
+        private MappedByteBuffer map(int offset, int bytes) throws IOException {
+            long from = base + offset;
+            if (buffer == null || from < mappedBase || from + bytes > mappedBase + buffer.limit()) {
+                long size = Math.min(WINDOW_BYTES, channel.size() - base);
+                if (size < offset + bytes) {
+                    throw new IOException("Truncated account export");
+                }
+                mappedBase = base;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, mappedBase, size);
+            }
+            return buffer;
+        }
+    }
+
+    // --------- Results --------- //
+
+    /**
+     * Accounts parsed from one chunk, numbered from 0 within the chunk.
+     */
+    private static final class Chunk {
+
+        BankAccount[] accounts = new BankAccount[1024];
+        long[] lines = new long[1024];
+        int count;
+        long lineCount;
+        long rejected;
+        final List<Rejection> rejections = new ArrayList<>();
+
+        void add(BankAccount account, long line) {
+            if (count == accounts.length) {
+                accounts = Arrays.copyOf(accounts, count * 2);
+                lines = Arrays.copyOf(lines, count * 2);
+            }
+            accounts[count] = account;
+            lines[count++] = line;
+        }
+
+        void reject(long line, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(line, reason));
+            }
+        }
+    }
+
+    /**
+     * Outcome of a load.
+     */
+    public static final class Result {
+
+        private final long loaded;
+        private final long rejected;
+        private final List<Rejection> rejections;
+
+        Result(long loaded, long rejected, List<Rejection> rejections) {
+            this.loaded = loaded;
+            this.rejected = rejected;
+            this.rejections = rejections;
+        }
+
+        /**
+         * Number of accounts added to the bank.
+         */
+        public long loaded() {
+            return loaded;
+        }
+
+        /**
+         * Number of records skipped, including duplicates.
+         */
+        public long rejected() {
+            return rejected;
+        }
+
+        /**
+         * The first {@link #MAX_REPORTED_REJECTIONS} rejections, by line.
+         */
+        public List<Rejection> rejections() {
+            return rejections;
+        }
+    }
+
+    /**
+     * A skipped record: its 1-based line (CSV) or record (binary) number and why.
+     */
+    public static final class Rejection {
+
+        private final long line;
+        private final String reason;
+
+        Rejection(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long line() {
+            return line;
+        }
+
+        public String reason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return line + ": " + reason;
+        }
+    }
+}
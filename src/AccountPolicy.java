@@ -0,0 +1,325 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits and rules applied to the accounts of one product tier, checked by
+ * {@link BankAccount} on every deposit, withdrawal and transfer and by
+ * {@link Bank#setDailyLimit} on limit changes. Amounts are in cents.
+ *
+ * Rules are added with a {@link Builder}; {@link Builder#build()} compiles
+ * them into one threshold per check, so the checks run as a fixed sequence
+ * of compares with no list walk or allocation. A check with no rule holds
+ * the value that never fails it (e.g. {@code Long.MAX_VALUE} for a cap).
+ * Several rules for the same check combine to the strictest one.
+ *
+ * Velocity limits cap the total of withdrawals and outgoing transfers
+ * within a rolling window (e.g. per minute, per hour, per 24 hours). Each
+ * window is split into a fixed number of time buckets kept in a per-account
+ * {@code long[]}; buckets that have fallen out of the window are cleared
+ * when the account is next used, so there is no background sweep and a
+ * check costs at most one pass over the buckets. The window therefore
+ * covers the current bucket plus the previous {@code buckets - 1} ones.
+ *
+ * The order of checks in a withdrawal is: status, amount sign,
+ * per-transaction cap, daily limit, velocity limits, balance (including the
+ * minimum balance). Transfers check their cap, velocity limits and minimum
+ * balance at the same points; deposits only check their cap. Policies are immutable and may be
+ * shared by any number of accounts; neither they nor the velocity counters
+ * are journaled.
+ */
+public final class AccountPolicy {
+
+    /**
+     * The original rules: daily limits from 100 to 5,000, no caps, balance
+     * may reach zero.
+     */
+    public static final AccountPolicy STANDARD = builder("standard").build();
+
+    private static final long DEFAULT_MIN_DAILY_LIMIT = 100 * Money.CENTS_PER_UNIT;
+    private static final long DEFAULT_MAX_DAILY_LIMIT = 5000 * Money.CENTS_PER_UNIT;
+
+    public static final int DEFAULT_VELOCITY_BUCKETS = 16;
+    public static final int MAX_VELOCITY_BUCKETS = 1024;
+
+    // Per window in the counter array: current bucket id, end of the current
+    // bucket (exclusive, in millis), its slot, the sum over the window, then the buckets
+    private static final int BUCKET_ID = 0;
+    private static final int BUCKET_END = 1;
+    private static final int BUCKET_SLOT = 2;
+    private static final int WINDOW_SUM = 3;
+    private static final int VELOCITY_HEADER = 4;
+
+    private final String tier;
+
+    // Compiled checks, read by BankAccount and Bank without further logic
+    final long maxDepositCents;
+    final long maxWithdrawalCents;
+    final long maxTransferCents;
+    final long minBalanceCents;
+    final long minDailyLimitCents;
+    final long maxDailyLimitCents;
+
+    // Velocity windows, compiled into parallel arrays; velocityWindows == 0 when there are none
+    final int velocityWindows;
+    private final long[] windowMillis;
+    private final long[] windowMaxCents;
+    private final long[] bucketMillis;
+    private final int[] bucketCounts;
+    private final int[] offsets;
+    final int velocityStateLength;
+
+    private AccountPolicy(Builder b) {
+        this.tier = b.tier;
+        this.maxDepositCents = b.maxDeposit;
+        this.maxWithdrawalCents = b.maxWithdrawal;
+        this.maxTransferCents = b.maxTransfer;
+        this.minBalanceCents = b.minBalance;
+        this.minDailyLimitCents = b.minDailyLimit;
+        this.maxDailyLimitCents = b.maxDailyLimit;
+        velocityWindows = b.velocity.size();
+        windowMillis = new long[velocityWindows];
+        windowMaxCents = new long[velocityWindows];
+        bucketMillis = new long[velocityWindows];
+        bucketCounts = new int[velocityWindows];
+        offsets = new int[velocityWindows];
+        int length = 0;
+        for (int w = 0; w < velocityWindows; w++) {
+            long[] window = b.velocity.get(w);
+            windowMillis[w] = window[0];
+            bucketCounts[w] = (int) window[1];
+            windowMaxCents[w] = window[2];
+            bucketMillis[w] = window[0] / window[1];
+            offsets[w] = length;
+            length += VELOCITY_HEADER + bucketCounts[w];
+        }
+        velocityStateLength = length;
+    }
+
+    /**
+     * Starts a policy for {@code tier} with the {@link #STANDARD} rules.
+     */
+    public static Builder builder(String tier) {
+        return new Builder(tier);
+    }
+
+    public String tier() {
+        return tier;
+    }
+
+    public long maxDepositCents() {
+        return maxDepositCents;
+    }
+
+    public long maxWithdrawalCents() {
+        return maxWithdrawalCents;
+    }
+
+    public long maxTransferCents() {
+        return maxTransferCents;
+    }
+
+    public long minBalanceCents() {
+        return minBalanceCents;
+    }
+
+    public long minDailyLimitCents() {
+        return minDailyLimitCents;
+    }
+
+    public long maxDailyLimitCents() {
+        return maxDailyLimitCents;
+    }
+
+    /**
+     * Number of velocity windows.
+     */
+    public int velocityWindowCount() {
+        return velocityWindows;
+    }
+
+    public long velocityWindowMillis(int window) {
+        return windowMillis[window];
+    }
+
+    public long velocityMaxCents(int window) {
+        return windowMaxCents[window];
+    }
+
+    /**
+     * Whether {@code amount} fits into every velocity window at time
+     * {@code nowMillis}. Clears the buckets that have left each window, so
+     * {@link #addVelocity} can then add to the current bucket. Caller holds
+     * the account lock; {@code state} has {@link #velocityStateLength}
+     * entries.
+     */
+    boolean withinVelocity(long[] state, long nowMillis, long amount) {
+        boolean within = true;
+        for (int w = 0; w < velocityWindows; w++) {
+            int o = offsets[w];
+            if (nowMillis >= state[o + BUCKET_END]) {
+                // Rarely taken: only once per bucket. A clock going backwards
+                // keeps adding to the latest bucket instead.
+                advance(state, o, w, nowMillis);
+            }
+            within &= amount <= windowMaxCents[w] - state[o + WINDOW_SUM];
+        }
+        return within;
+    }
+
+    // Moves window w to the bucket of nowMillis, clearing the buckets it passes
+    private void advance(long[] state, int o, int w, long nowMillis) {
+        int buckets = bucketCounts[w];
+        long id = nowMillis / bucketMillis[w];
+        long last = state[o + BUCKET_ID];
+        long sum = state[o + WINDOW_SUM];
+        int slot = (int) state[o + BUCKET_SLOT];
+        long steps = Math.min(id - last, buckets);
+        for (long k = 0; k < steps; k++) {
+            slot = slot + 1 == buckets ? 0 : slot + 1;
+            sum -= state[o + VELOCITY_HEADER + slot];
+            state[o + VELOCITY_HEADER + slot] = 0;
+        }
+        state[o + BUCKET_ID] = id;
+        state[o + BUCKET_END] = (id + 1) * bucketMillis[w];
+        state[o + BUCKET_SLOT] = slot;
+        state[o + WINDOW_SUM] = sum;
+    }
+
+    /**
+     * Counts {@code amount} in the current bucket of every window; called
+     * after a successful {@link #withinVelocity} under the same lock.
+     */
+    void addVelocity(long[] state, long amount) {
+        for (int w = 0; w < velocityWindows; w++) {
+            int o = offsets[w];
+            state[o + VELOCITY_HEADER + (int) state[o + BUCKET_SLOT]] += amount;
+            state[o + WINDOW_SUM] += amount;
+        }
+    }
+
+    /**
+     * Whether {@code limit} is an allowed daily withdrawal limit.
+     */
+    public boolean allowsDailyLimit(long limit) {
+        return limit >= minDailyLimitCents && limit <= maxDailyLimitCents;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountPolicy[" + tier + "]";
+    }
+
+    /**
+     * Collects rules for a tier. Not thread-safe; build once and share the
+     * policy.
+     */
+    public static final class Builder {
+
+        private final String tier;
+        private long maxDeposit = Long.MAX_VALUE;
+        private long maxWithdrawal = Long.MAX_VALUE;
+        private long maxTransfer = Long.MAX_VALUE;
+        private long minBalance = 0;
+        private long minDailyLimit = DEFAULT_MIN_DAILY_LIMIT;
+        private long maxDailyLimit = DEFAULT_MAX_DAILY_LIMIT;
+        private final List<long[]> velocity = new ArrayList<>();
+
+        private Builder(String tier) {
+            if (tier == null || tier.trim().isEmpty()) {
+                throw new IllegalArgumentException("Tier name must not be empty.");
+            }
+            this.tier = tier;
+        }
+
+        /**
+         * Caps a single deposit.
+         */
+        public Builder maxDeposit(long cents) {
+            maxDeposit = Math.min(maxDeposit, positive(cents));
+            return this;
+        }
+
+        /**
+         * Caps a single withdrawal.
+         */
+        public Builder maxWithdrawal(long cents) {
+            maxWithdrawal = Math.min(maxWithdrawal, positive(cents));
+            return this;
+        }
+
+        /**
+         * Caps a single outgoing transfer.
+         */
+        public Builder maxTransfer(long cents) {
+            maxTransfer = Math.min(maxTransfer, positive(cents));
+            return this;
+        }
+
+        /**
+         * Caps every single transaction: deposits, withdrawals and transfers.
+         */
+        public Builder maxPerTransaction(long cents) {
+            return maxDeposit(cents).maxWithdrawal(cents).maxTransfer(cents);
+        }
+
+        /**
+         * Balance that withdrawals and outgoing transfers must leave in the account.
+         */
+        public Builder minBalance(long cents) {
+            if (cents < 0) {
+                throw new IllegalArgumentException("Minimum balance cannot be negative.");
+            }
+            minBalance = Math.max(minBalance, cents);
+            return this;
+        }
+
+        /**
+         * Range a daily withdrawal limit may be set to; replaces the standard
+         * 100 to 5,000.
+         */
+        public Builder dailyLimitRange(long minCents, long maxCents) {
+            if (minCents <= 0 || maxCents < minCents) {
+                throw new IllegalArgumentException("Daily limit range must be positive and not empty.");
+            }
+            minDailyLimit = minCents;
+            maxDailyLimit = maxCents;
+            return this;
+        }
+
+        /**
+         * Caps withdrawals plus outgoing transfers within any rolling window
+         * of {@code windowMillis}, tracked in
+         * {@link #DEFAULT_VELOCITY_BUCKETS} buckets.
+         */
+        public Builder velocityLimit(long windowMillis, long maxCents) {
+            return velocityLimit(windowMillis, DEFAULT_VELOCITY_BUCKETS, maxCents);
+        }
+
+        /**
+         * Same as {@link #velocityLimit(long, long)} with {@code buckets}
+         * buckets; more buckets follow the window more closely and use more
+         * memory per account. The window is rounded down to whole buckets.
+         */
+        public Builder velocityLimit(long windowMillis, int buckets, long maxCents) {
+            if (buckets <= 0 || buckets > MAX_VELOCITY_BUCKETS) {
+                throw new IllegalArgumentException("Buckets must be between 1 and " + MAX_VELOCITY_BUCKETS + ".");
+            }
+            if (windowMillis < buckets) {
+                throw new IllegalArgumentException("Window must be at least one millisecond per bucket.");
+            }
+            velocity.add(new long[]{windowMillis / buckets * buckets, buckets, positive(maxCents)});
+            return this;
+        }
+
+        public AccountPolicy build() {
+            return new AccountPolicy(this);
+        }
+
+        private static long positive(long cents) {
+            if (cents <= 0) {
+                throw new IllegalArgumentException("Cap must be positive.");
+            }
+            return cents;
+        }
+    }
+}
@@ -1,5 +1,78 @@
-public class AccountStatus {
-    public static final String ACTIVE = "Active";
-    public static final String FROZEN = "Frozen";
-    public static final String CLOSED = "Closed";
+/**
+ * Status of a bank account.
+ *
+ * Each status has a one-byte {@link #code()} used in journals, snapshots and
+ * wire messages. {@link #fromCode(byte)} and {@link #parse(CharSequence)}
+ * turn externally sourced values back into a status without interning or
+ * allocating.
+ */
+public enum AccountStatus {
+    ACTIVE("Active"),
+    FROZEN("Frozen"),
+    CLOSED("Closed");
+
+    private static final AccountStatus[] BY_CODE = values();
+
+    private final String displayName;
+
+    AccountStatus(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Stable one-byte code of this status.
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Status for a code produced by {@link #code()}.
+     *
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static AccountStatus fromCode(byte code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Parses a status name, ignoring case ("Active", "ACTIVE", "active", ...).
+     *
+     * @return the status, or null if {@code text} is null or not a status name
+     */
+    public static AccountStatus parse(CharSequence text) {
+        if (text == null || text.length() != 6) {
+            return null;
+        }
+        // All names have six letters and distinct first letters
+        AccountStatus candidate;
+        switch (Character.toUpperCase(text.charAt(0))) {
+            case 'A':
+                candidate = ACTIVE;
+                break;
+            case 'F':
+                candidate = FROZEN;
+                break;
+            case 'C':
+                candidate = CLOSED;
+                break;
+            default:
+                return null;
+        }
+        String name = candidate.displayName;
+        for (int i = 1; i < 6; i++) {
+            if (Character.toLowerCase(text.charAt(i)) != name.charAt(i)) {
+                return null;
+            }
+        }
+        return candidate;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
 }
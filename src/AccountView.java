@@ -0,0 +1,74 @@
+/**
+ * Consistent reading of one account, returned by
+ * {@link BankAccount#readView()} and {@link Bank#readAccounts}: every field
+ * comes from the same moment, between two changes of the account. Amounts are
+ * in cents.
+ */
+public final class AccountView {
+
+    private final String accountNumber;
+    private final long balanceCents;
+    private final long dailyWithdrawalLimitCents;
+    private final long dailyWithdrawnAmountCents;
+    private final AccountStatus status;
+    private final long version;
+
+    AccountView(String accountNumber, long balanceCents, long dailyWithdrawalLimitCents,
+                long dailyWithdrawnAmountCents, AccountStatus status, long version) {
+        this.accountNumber = accountNumber;
+        this.balanceCents = balanceCents;
+        this.dailyWithdrawalLimitCents = dailyWithdrawalLimitCents;
+        this.dailyWithdrawnAmountCents = dailyWithdrawnAmountCents;
+        this.status = status;
+        this.version = version;
+    }
+
+    public String accountNumber() {
+        return accountNumber;
+    }
+
+    public long balanceCents() {
+        return balanceCents;
+    }
+
+    public double balance() {
+        return Money.toAmount(balanceCents);
+    }
+
+    public long dailyWithdrawalLimitCents() {
+        return dailyWithdrawalLimitCents;
+    }
+
+    /**
+     * Amount withdrawn on the day of the reading; zero if the last withdrawal
+     * was on an earlier day.
+     */
+    public long dailyWithdrawnAmountCents() {
+        return dailyWithdrawnAmountCents;
+    }
+
+    public AccountStatus status() {
+        return status;
+    }
+
+    /**
+     * Version stamp of the account at the reading. It grows with every
+     * change, so two views of one account with the same version hold the
+     * same state.
+     */
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountView{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", balance=" + Money.toAmount(balanceCents) +
+                ", dailyWithdrawn=" + Money.toAmount(dailyWithdrawnAmountCents) +
+                ", dailyLimit=" + Money.toAmount(dailyWithdrawalLimitCents) +
+                ", status=" + status +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Outcome of {@link Bank#tryTransferAtomic}: OK if every leg was applied,
+ * otherwise the check that failed and the index of the leg it failed on (no
+ * leg was applied).
+ */
+public final class AtomicTransferResult {
+
+    static final AtomicTransferResult OK = new AtomicTransferResult(ResultCode.OK, -1);
+
+    private final ResultCode result;
+    private final int failedLeg;
+
+    AtomicTransferResult(ResultCode result, int failedLeg) {
+        this.result = result;
+        this.failedLeg = failedLeg;
+    }
+
+    public ResultCode result() {
+        return result;
+    }
+
+    /**
+     * Index of the leg that failed, or -1 if all legs were applied or the
+     * transfer as a whole was rejected (e.g. too many legs).
+     */
+    public int failedLeg() {
+        return failedLeg;
+    }
+
+    public boolean isOk() {
+        return result == ResultCode.OK;
+    }
+
+    @Override
+    public String toString() {
+        return failedLeg < 0 ? result.toString() : result + " at leg " + failedLeg;
+    }
+}
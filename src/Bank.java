@@ -1,28 +1,278 @@
-import java.util.HashMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
 /**
  * Simple bank class to manage multiple accounts.
  * This is mainly for demonstration and extra test cases
  * (e.g., finding accounts, transferring by account number).
+ *
+ * The bank is safe to use from several threads without external locking:
+ * accounts live in a concurrent index and every operation only locks the
+ * accounts it touches, so transfers between disjoint accounts run in parallel.
+ *
+ * A bank created with {@link #open} records every change in a {@link Journal}
+ * and is rebuilt from it on the next start. Bank operations return only once
+ * their change is on disk; changes made directly on a {@link BankAccount} are
+ * journaled too but acknowledged before the next group commit (use
+ * {@link #awaitDurable()} when that matters). Periodic snapshots
+ * ({@link #writeSnapshot}) bound recovery time: on open, the snapshot is
+ * mapped and only the journal written after it is replayed.
+ *
+ * All accounts of a bank share its {@link BankClock}; daily withdrawal
+ * limits roll over when the clock reaches a new day, without touching the
+ * accounts.
+ *
+ * Besides the account-number index, the bank keeps a sorted index by owner
+ * name for {@link #findAccountsByOwner} and {@link #findAccountsByOwnerPrefix},
+ * and an append-only list of accounts in the order they were added, used by
+ * {@link #listAccounts} and {@link AccountExport}.
+ *
+ * {@link #checkpoint()} computes bank-wide totals in parallel over a
+ * consistent cut of all accounts, without stopping transfers, so that
+ * successive checkpoints can be reconciled (see {@link BankTotals}).
+ *
+ * {@link #enableHistory(int)} keeps each account's recent transactions in
+ * memory for statements; {@link TransactionHistory#spill} saves them to a file.
+ *
+ * {@link #enableMetrics()} turns on per-operation counters and latency
+ * histograms (see {@link BankMetrics}); they cost nothing while off.
  */
-public class Bank {
+public class Bank implements Closeable {
 
-    private final Map<String, BankAccount> accounts = new HashMap<>();
+    // Instructions per lock acquisition in transferBatch; bounds how long a batch holds its locks.
+    private static final int BATCH_CHUNK_SIZE = 4096;
+
+    // Owner index keys: '\0' sorts before every char of an owner name, so one owner's keys are contiguous
+    private static final char OWNER_KEY_SEPARATOR = '\0';
+    private static final char OWNER_KEY_END = '\1';
+
+    // Registry chunk size; chunks are never copied, only the small outer array grows
+    private static final int REGISTRY_CHUNK_BITS = 14;
+    private static final int REGISTRY_CHUNK_SIZE = 1 << REGISTRY_CHUNK_BITS;
+
+    private final ConcurrentMap<String, BankAccount> accounts;
+
+    // Owner name + OWNER_KEY_SEPARATOR + account number -> account, sorted by owner
+    private final ConcurrentNavigableMap<String, BankAccount> accountsByOwner = new ConcurrentSkipListMap<>();
+
+    // Accounts in insertion order. Accounts are put in the map and appended here
+    // under registryLock, and written before registered is raised, so readers
+    // may use any index below it.
+    private final Object registryLock = new Object();
+    private volatile BankAccount[][] registry = new BankAccount[16][];
+    private volatile int registered;
+
+    // Held for a whole checkpoint so checkpoints run one at a time; separate
+    // from the bank's monitor, which guards the enable and snapshot calls
+    private final Object checkpointLock = new Object();
+
+    // Incremented by each checkpoint; accounts save their state on the first change after it
+    private final AtomicLong auditEpochs = new AtomicLong();
+
+    private final Journal journal;
+
+    private final BankClock clock;
+
+    private volatile BankMetrics metrics;
+
+    // Results of keyed transfers; created on first use unless enableTransferDedupe ran before
+    private volatile TransferDedupeCache dedupe;
+
+    // Ring size of each account's transaction history; 0 while history is off
+    private volatile int historyCapacity;
+
+    private ScheduledExecutorService snapshotScheduler;
+    // Failure of the latest periodic snapshot; null once one succeeds
+    private volatile IOException lastSnapshotFailure;
+
+    public Bank() {
+        this(BankClock.systemDefault());
+    }
+
+    /**
+     * Creates a bank whose daily withdrawal limits follow {@code clock}.
+     */
+    public Bank(BankClock clock) {
+        this(null, new ConcurrentHashMap<>(), clock);
+    }
+
+    /**
+     * Creates a bank sized for about {@code expectedAccounts} accounts, so
+     * that bulk loading does not repeatedly grow the account index.
+     */
+    public Bank(int expectedAccounts) {
+        this(null, new ConcurrentHashMap<>(Math.max(16, expectedAccounts / 3 * 4 + 1)), BankClock.systemDefault());
+        if (expectedAccounts < 0) {
+            throw new IllegalArgumentException("Expected account count cannot be negative.");
+        }
+        registry = new BankAccount[Math.max(16, (expectedAccounts >>> REGISTRY_CHUNK_BITS) + 1)][];
+    }
+
+    private Bank(Journal journal, ConcurrentMap<String, BankAccount> accounts, BankClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null.");
+        }
+        this.journal = journal;
+        this.accounts = accounts;
+        this.clock = clock;
+        for (BankAccount account : accounts.values()) {
+            account.setAuditEpochs(auditEpochs);
+            accountsByOwner.put(ownerKey(account), account);
+            register(account);
+        }
+    }
+
+    /**
+     * Opens a journaled bank: replays {@code journalFile} (if it exists) to
+     * rebuild the accounts, then appends every further change to it.
+     *
+     * @param groupCommitMillis maximum time a change waits for its fsync
+     * @param groupCommitBytes  pending journal bytes that force an earlier fsync
+     */
+    public static Bank open(Path journalFile, long groupCommitMillis, int groupCommitBytes) throws IOException {
+        return open(journalFile, null, groupCommitMillis, groupCommitBytes);
+    }
+
+    /**
+     * Opens a journaled bank starting from a snapshot: maps
+     * {@code snapshotFile} (if it exists) and replays only the part of
+     * {@code journalFile} written after it.
+     */
+    public static Bank open(Path journalFile, Path snapshotFile, long groupCommitMillis, int groupCommitBytes)
+            throws IOException {
+        return open(journalFile, snapshotFile, groupCommitMillis, groupCommitBytes, BankClock.systemDefault());
+    }
+
+    /**
+     * Same as {@link #open(Path, Path, long, int)}, with daily withdrawal
+     * limits following {@code clock}.
+     */
+    public static Bank open(Path journalFile, Path snapshotFile, long groupCommitMillis, int groupCommitBytes,
+                            BankClock clock) throws IOException {
+        Bank recovered;
+        long journalStart = 0;
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            Snapshot snapshot = Snapshot.read(snapshotFile);
+            recovered = new Bank(null, snapshot.accounts(), clock);
+            journalStart = snapshot.journalStart();
+        } else {
+            recovered = new Bank(clock);
+        }
+
+        long validEnd = journalStart;
+        if (Files.exists(journalFile)) {
+            validEnd = Journal.replay(journalFile, journalStart, new JournalApplier(recovered));
+        }
+
+        Journal journal = new Journal(journalFile, groupCommitMillis, groupCommitBytes, validEnd);
+        for (BankAccount account : recovered.accounts.values()) {
+            account.setClock(clock);
+            account.applyRecoveredOpening();
+            account.resumeJournal(journal);
+        }
+        return new Bank(journal, recovered.accounts, clock);
+    }
 
     public boolean addAccount(BankAccount account) {
         if (account == null) {
             return false;
         }
         String accNumber = account.getAccountNumber();
-        if (accounts.containsKey(accNumber)) {
+        // Set before the account becomes visible to other threads
+        account.setClock(clock);
+        account.setAuditEpochs(auditEpochs);
+        synchronized (registryLock) {
             // Duplicate account number not allowed
-            return false;
+            if (accounts.containsKey(accNumber)) {
+                return false;
+            }
+            publish(account);
+        }
+        // After the put, so a concurrent enableMetrics either sees the account or is seen here
+        account.setMetrics(metrics);
+        enableHistory(account);
+        accountsByOwner.put(ownerKey(account), account);
+        if (journal != null) {
+            awaitDurable();
         }
-        accounts.put(accNumber, account);
         return true;
     }
 
+    /**
+     * Adds many accounts at once, with the same outcome as calling
+     * {@link #addAccount} for each in order: of two accounts with the same
+     * number only the first is added. Account numbers are claimed and
+     * journaled in order on the calling thread; indexing then runs in parallel.
+     *
+     * @param batch accounts to add (null entries are skipped)
+     * @return for each account, whether it was added
+     */
+    public boolean[] addAccounts(BankAccount[] batch) {
+        boolean[] added = new boolean[batch.length];
+        try {
+            synchronized (registryLock) {
+                for (int i = 0; i < batch.length; i++) {
+                    BankAccount account = batch[i];
+                    if (account != null && !accounts.containsKey(account.getAccountNumber())) {
+                        account.setClock(clock);
+                        account.setAuditEpochs(auditEpochs);
+                        publish(account);
+                        added[i] = true;
+                    }
+                }
+            }
+        } finally {
+            // Also after a journal failure, for the accounts published before it
+            IntStream.range(0, batch.length).parallel().forEach(i -> {
+                if (added[i]) {
+                    BankAccount account = batch[i];
+                    account.setMetrics(metrics);
+                    enableHistory(account);
+                    accountsByOwner.put(ownerKey(account), account);
+                }
+            });
+        }
+        awaitDurable();
+        return added;
+    }
+
+    BankClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Adds an account rebuilt during recovery, without journaling it again.
+     */
+    void addRecovered(BankAccount account) {
+        account.setClock(clock);
+        account.setAuditEpochs(auditEpochs);
+        synchronized (registryLock) {
+            if (accounts.putIfAbsent(account.getAccountNumber(), account) != null) {
+                return;
+            }
+            register(account);
+        }
+        enableHistory(account);
+        accountsByOwner.put(ownerKey(account), account);
+    }
+
     public BankAccount findAccount(String accountNumber) {
         if (accountNumber == null) {
             return null;
@@ -30,78 +280,779 @@ public class Bank {
         return accounts.get(accountNumber);
     }
 
+    /**
+     * Reads several accounts as of one moment, without locking them (see
+     * {@link BankAccount#readView()}): balances and states are mutually
+     * consistent, e.g. a transfer between two of them is seen on both sides
+     * or on neither. Falls back to locking the accounts only while writers
+     * keep changing them.
+     *
+     * @return one view per account number, in order; null for unknown numbers
+     */
+    public AccountView[] readAccounts(String... accountNumbers) {
+        BankAccount[] found = new BankAccount[accountNumbers.length];
+        for (int i = 0; i < accountNumbers.length; i++) {
+            found[i] = findAccount(accountNumbers[i]);
+        }
+        return BankAccount.readViews(found);
+    }
+
+    /**
+     * Accounts whose owner name equals {@code ownerName} (case-sensitive,
+     * ignoring surrounding spaces like the constructor), in account-number
+     * order. Uses the owner index, so the cost depends on the number of
+     * matches, not on the size of the bank.
+     */
+    public List<BankAccount> findAccountsByOwner(String ownerName) {
+        if (ownerName == null) {
+            return new ArrayList<>();
+        }
+        String owner = ownerName.trim();
+        return new ArrayList<>(accountsByOwner.subMap(owner + OWNER_KEY_SEPARATOR, owner + OWNER_KEY_END).values());
+    }
+
+    /**
+     * Up to {@code limit} accounts whose owner name starts with {@code prefix}
+     * (case-sensitive), ordered by owner name and then account number.
+     */
+    public List<BankAccount> findAccountsByOwnerPrefix(String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        }
+        List<BankAccount> result = new ArrayList<>();
+        if (prefix == null) {
+            return result;
+        }
+        for (Map.Entry<String, BankAccount> e : accountsByOwner.tailMap(prefix).entrySet()) {
+            if (result.size() == limit || !e.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.add(e.getValue());
+        }
+        return result;
+    }
+
+    private static String ownerKey(BankAccount account) {
+        return account.getOwnerName() + OWNER_KEY_SEPARATOR + account.getAccountNumber();
+    }
+
+    /**
+     * Number of accounts in this bank.
+     */
+    public int size() {
+        return registered;
+    }
+
+    /**
+     * Computes bank-wide totals in parallel (see {@link BankTotals}).
+     *
+     * The totals describe one consistent cut: every account as of the moment
+     * the checkpoint started. Operations keep running meanwhile; an account
+     * changed before the scan reaches it has saved its state as of the cut,
+     * and the scan only holds each account's lock while reading it. Accounts
+     * added after the start are left for the next checkpoint. Checkpoints run
+     * one at a time.
+     */
+    public BankTotals checkpoint() {
+        synchronized (checkpointLock) {
+            long epoch;
+            int count;
+            synchronized (registryLock) {
+                epoch = auditEpochs.incrementAndGet();
+                count = registered;
+            }
+            long day = clock.epochDay();
+            return IntStream.range(0, count).parallel().collect(
+                    () -> new BankTotals.Builder(epoch, day),
+                    (totals, i) -> totals.add(accountAt(i)),
+                    BankTotals.Builder::combine).build();
+        }
+    }
+
+    /**
+     * One page of accounts in the order they were added.
+     *
+     * Start with cursor 0 and pass {@link Page#nextCursor()} to get the next
+     * page. Accounts added meanwhile are appended to the order, so paging
+     * never skips or repeats an account.
+     *
+     * @param cursor position of the first account, from 0 to {@link #size()}
+     * @param limit  maximum number of accounts in the page (must be > 0)
+     */
+    public Page listAccounts(long cursor, int limit) {
+        if (cursor < 0) {
+            throw new IllegalArgumentException("Cursor cannot be negative.");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        int size = registered;
+        int from = (int) Math.min(cursor, size);
+        int to = (int) Math.min(size, (long) from + limit);
+        List<BankAccount> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(accountAt(i));
+        }
+        return new Page(page, to, to < size);
+    }
+
+    /**
+     * Account at {@code index} of the insertion order; {@code index} must be
+     * below a value previously returned by {@link #size()}.
+     */
+    BankAccount accountAt(int index) {
+        return registry[index >>> REGISTRY_CHUNK_BITS][index & (REGISTRY_CHUNK_SIZE - 1)];
+    }
+
+    // Journals the account's OPEN record, then makes it visible. Until the
+    // record is written no other thread can reach the account, so no change
+    // to it can go unjournaled; if the journal rejects the record the account
+    // is not added. Caller holds registryLock and has checked the number is free.
+    private void publish(BankAccount account) {
+        if (journal != null) {
+            account.attachJournal(journal);
+        }
+        accounts.put(account.getAccountNumber(), account);
+        register(account);
+    }
+
+    private void register(BankAccount account) {
+        synchronized (registryLock) {
+            int index = registered;
+            BankAccount[][] chunks = registry;
+            int chunk = index >>> REGISTRY_CHUNK_BITS;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new BankAccount[REGISTRY_CHUNK_SIZE];
+            }
+            chunks[chunk][index & (REGISTRY_CHUNK_SIZE - 1)] = account;
+            registry = chunks;
+            registered = index + 1;
+        }
+    }
+
+
+    /**
+     * Transfers money between two accounts of this bank. Both account locks are
+     * taken in account-number order (see {@link BankAccount#transferTo}), so
+     * concurrent transfers in opposite directions cannot deadlock.
+     */
     public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return transferCents(fromAccountNumber, toAccountNumber, Money.toCents(amount));
+    }
+
+    /**
+     * Same as {@link #transfer(String, String, double)} with the amount in cents.
+     */
+    public boolean transferCents(String fromAccountNumber, String toAccountNumber, long amount) {
+        return tryTransferCents(fromAccountNumber, toAccountNumber, amount) == ResultCode.OK;
+    }
+
+    /**
+     * Same as {@link #transfer(String, String, double)}, returning the check
+     * that failed.
+     */
+    public ResultCode tryTransfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return tryTransferCents(fromAccountNumber, toAccountNumber, Money.toCents(amount));
+    }
+
+    /**
+     * Same as {@link #transferCents}, returning the check that failed:
+     * UNKNOWN_ACCOUNT if either number is not in this bank, otherwise the
+     * result of {@link BankAccount#tryTransferToCents}.
+     */
+    public ResultCode tryTransferCents(String fromAccountNumber, String toAccountNumber, long amount) {
+        BankMetrics m = metrics;
+        if (m == null) {
+            return transferChecked(fromAccountNumber, toAccountNumber, amount);
+        }
+        long start = System.nanoTime();
+        ResultCode result = transferChecked(fromAccountNumber, toAccountNumber, amount);
+        m.record(BankMetrics.Operation.TRANSFER, result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Idempotent form of {@link #transfer(String, String, double)}: a transfer
+     * with a {@code requestId} seen recently is not applied again and returns
+     * the original result (see {@link #enableTransferDedupe}).
+     */
+    public boolean transfer(String requestId, String fromAccountNumber, String toAccountNumber, double amount) {
+        return transferCents(requestId, fromAccountNumber, toAccountNumber, Money.toCents(amount));
+    }
+
+    /**
+     * Same as {@link #transfer(String, String, String, double)} with the amount in cents.
+     */
+    public boolean transferCents(String requestId, String fromAccountNumber, String toAccountNumber, long amount) {
+        return tryTransferCents(requestId, fromAccountNumber, toAccountNumber, amount) == ResultCode.OK;
+    }
+
+    /**
+     * Same as {@link #transfer(String, String, String, double)}, returning the
+     * check that failed.
+     */
+    public ResultCode tryTransfer(String requestId, String fromAccountNumber, String toAccountNumber,
+                                  double amount) {
+        return tryTransferCents(requestId, fromAccountNumber, toAccountNumber, Money.toCents(amount));
+    }
+
+    /**
+     * Same as {@link #tryTransferCents(String, String, long)}, applied at most
+     * once per {@code requestId}: a request ID already seen returns the
+     * original result without moving money, even if the accounts or amount
+     * differ; a duplicate arriving while the original runs waits for it.
+     * Returns INVALID_ARGUMENT, without remembering it, for a null or empty
+     * request ID.
+     */
+    public ResultCode tryTransferCents(String requestId, String fromAccountNumber, String toAccountNumber,
+                                       long amount) {
+        if (requestId == null || requestId.isEmpty()) {
+            return ResultCode.INVALID_ARGUMENT;
+        }
+        TransferDedupeCache cache = dedupe;
+        if (cache == null) {
+            cache = createDedupe(TransferDedupeCache.DEFAULT_CAPACITY, TransferDedupeCache.DEFAULT_TTL_MILLIS);
+        }
+        int slot = cache.begin(requestId, clock.currentTimeMillis());
+        if (slot < 0) {
+            return ResultCode.fromCode((byte) (-1 - slot));
+        }
+        ResultCode result;
+        try {
+            result = tryTransferCents(fromAccountNumber, toAccountNumber, amount);
+        } catch (RuntimeException | Error e) {
+            cache.abort(slot);
+            throw e;
+        }
+        cache.complete(slot, result);
+        return result;
+    }
+
+    /**
+     * Sets up the cache behind keyed transfers: it remembers about
+     * {@code capacity} request IDs (rounded up to a power of two), each for
+     * {@code ttlMillis} of the bank's clock. Without this call the first
+     * keyed transfer creates one for 65,536 requests and 24 hours. Has no
+     * effect once a cache exists.
+     *
+     * @throws IllegalArgumentException if capacity or ttlMillis is not positive
+     */
+    public void enableTransferDedupe(int capacity, long ttlMillis) {
+        createDedupe(capacity, ttlMillis);
+    }
+
+    private synchronized TransferDedupeCache createDedupe(int capacity, long ttlMillis) {
+        TransferDedupeCache cache = dedupe;
+        if (cache == null) {
+            cache = new TransferDedupeCache(capacity, ttlMillis);
+            dedupe = cache;
+        }
+        return cache;
+    }
+
+    private ResultCode transferChecked(String fromAccountNumber, String toAccountNumber, long amount) {
         BankAccount from = findAccount(fromAccountNumber);
         BankAccount to = findAccount(toAccountNumber);
 
         if (from == null || to == null) {
-            return false;
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+
+        // Not from.tryTransferToCents: this transfer is recorded once, above
+        ResultCode result = from.transferChecked(to, amount);
+        if (result == ResultCode.OK) {
+            awaitDurable();
+        }
+        return result;
+    }
+
+    /**
+     * Executes many transfers in one call, e.g. for settlement files.
+     *
+     * Instructions are applied in order with exactly the checks of
+     * {@link #transfer}, so the outcome is the same as calling it once per
+     * line. Work is done in chunks: every account of a chunk is looked up once
+     * and locked once (in the global lock order), then the chunk's
+     * instructions run back to back. Batches are not recorded in
+     * {@link BankMetrics}; the returned codes already carry every outcome.
+     *
+     * @param batch transfer instructions (no null entries)
+     * @return one {@link ResultCode#code()} per instruction, in input order
+     */
+    public byte[] transferBatch(TransferInstruction[] batch) {
+        byte[] results = new byte[batch.length];
+        BankAccount[] froms = new BankAccount[Math.min(batch.length, BATCH_CHUNK_SIZE)];
+        BankAccount[] tos = new BankAccount[froms.length];
+        BankAccount[] locks = new BankAccount[froms.length * 2];
+
+        for (int start = 0; start < batch.length; start += BATCH_CHUNK_SIZE) {
+            int end = Math.min(batch.length, start + BATCH_CHUNK_SIZE);
+            int lockCount = 0;
+            for (int i = start; i < end; i++) {
+                BankAccount from = findAccount(batch[i].getFromAccountNumber());
+                BankAccount to = findAccount(batch[i].getToAccountNumber());
+                froms[i - start] = from;
+                tos[i - start] = to;
+                if (from != null && to != null && from != to) {
+                    locks[lockCount++] = from;
+                    locks[lockCount++] = to;
+                }
+            }
+
+            Arrays.sort(locks, 0, lockCount, BankAccount.LOCK_ORDER);
+            int unique = 0;
+            for (int i = 0; i < lockCount; i++) {
+                if (unique == 0 || locks[unique - 1] != locks[i]) {
+                    locks[unique++] = locks[i];
+                }
+            }
+
+            int locked = 0;
+            try {
+                for (; locked < unique; locked++) {
+                    locks[locked].getLock().lock();
+                }
+                for (int i = start; i < end; i++) {
+                    results[i] = transferLocked(froms[i - start], tos[i - start], batch[i].getAmountCents()).code();
+                }
+            } finally {
+                while (locked > 0) {
+                    locks[--locked].getLock().unlock();
+                }
+                Arrays.fill(locks, 0, lockCount, null);
+            }
+        }
+        awaitDurable();
+        return results;
+    }
+
+    /**
+     * Same as {@link #transferBatch(TransferInstruction[])} for a list.
+     */
+    public byte[] transferBatch(List<TransferInstruction> batch) {
+        return transferBatch(batch.toArray(new TransferInstruction[0]));
+    }
+
+    /**
+     * Same as {@link #tryTransferAtomic(TransferInstruction[])}, returning
+     * whether every leg was applied.
+     */
+    public boolean transferAtomic(TransferInstruction[] legs) {
+        return tryTransferAtomic(legs).isOk();
+    }
+
+    /**
+     * Executes several transfers as one, e.g. one debit split into many
+     * credits for a payroll run: either every leg is applied or none is.
+     *
+     * Every account of the legs is looked up once and all of them are locked
+     * once for the whole set: without waiting when the locks are free,
+     * otherwise in the global lock order (see {@link #lockAll}). Legs are then
+     * checked in order with the checks of {@link #transfer}, each against the
+     * balances the earlier legs would leave (so a leg may spend money an
+     * earlier leg credited); the first leg that fails rejects the whole
+     * transfer and nothing changes. Applied legs are journaled as a single
+     * record, so recovery also sees all of them or none, and a checkpoint
+     * sees them on the same side of its cut. Not recorded in
+     * {@link BankMetrics}, like {@link #transferBatch}.
+     *
+     * @param legs transfer instructions (no null entries)
+     * @return OK, or the first failing check and its leg index; UNKNOWN_ACCOUNT
+     * and SAME_ACCOUNT are reported before any lock is taken, and
+     * INVALID_ARGUMENT (leg index -1) if the legs touch more than 65,535
+     * accounts or do not fit in one 256 KB journal record (about 10,000 legs
+     * to distinct accounts with short account numbers)
+     */
+    public AtomicTransferResult tryTransferAtomic(TransferInstruction[] legs) {
+        int legCount = legs.length;
+        if (legCount == 0) {
+            return AtomicTransferResult.OK;
+        }
+        BankAccount[] accounts = new BankAccount[legCount * 2];
+        int[] fromIndexes = new int[legCount];
+        int[] toIndexes = new int[legCount];
+        long[] amounts = new long[legCount];
+        // Legs refer to accounts by their index in first-seen order
+        Map<BankAccount, Integer> indexes = new IdentityHashMap<>(legCount * 2);
+        int count = 0;
+        for (int i = 0; i < legCount; i++) {
+            BankAccount from = findAccount(legs[i].getFromAccountNumber());
+            BankAccount to = findAccount(legs[i].getToAccountNumber());
+            if (from == null || to == null) {
+                return new AtomicTransferResult(ResultCode.UNKNOWN_ACCOUNT, i);
+            }
+            if (from == to) {
+                return new AtomicTransferResult(ResultCode.SAME_ACCOUNT, i);
+            }
+            Integer index = indexes.putIfAbsent(from, count);
+            if (index == null) {
+                index = count;
+                accounts[count++] = from;
+            }
+            fromIndexes[i] = index;
+            index = indexes.putIfAbsent(to, count);
+            if (index == null) {
+                index = count;
+                accounts[count++] = to;
+            }
+            toIndexes[i] = index;
+            amounts[i] = legs[i].getAmountCents();
         }
+        int journalBytes = Journal.multiTransferBytes(accounts, count, legCount);
+        if (journalBytes < 0) {
+            return new AtomicTransferResult(ResultCode.INVALID_ARGUMENT, -1);
+        }
+
+        AtomicTransferResult result;
+        lockAll(accounts, count);
+        try {
+            result = BankAccount.transferAllLocked(accounts, count, fromIndexes, toIndexes, amounts, journalBytes);
+        } finally {
+            for (int i = 0; i < count; i++) {
+                accounts[i].getLock().unlock();
+            }
+        }
+        if (result.isOk()) {
+            awaitDurable();
+        }
+        return result;
+    }
 
-        return from.transferTo(to, amount);
+    /**
+     * Same as {@link #tryTransferAtomic(TransferInstruction[])} for a list.
+     */
+    public AtomicTransferResult tryTransferAtomic(List<TransferInstruction> legs) {
+        return tryTransferAtomic(legs.toArray(new TransferInstruction[0]));
     }
 
-    public boolean changeStatus(String accountNumber, String newStatus) {
+    /**
+     * Locks {@code accounts[0..count)}. Uncontended locks are taken as they
+     * come, without sorting; if one is busy, every lock taken so far is
+     * released and all are then waited for in the global lock order. A
+     * thread never waits while holding locks out of that order, so this
+     * cannot deadlock with {@link BankAccount#lockBoth} or another set.
+     */
+    private static void lockAll(BankAccount[] accounts, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!accounts[i].getLock().tryLock()) {
+                while (i > 0) {
+                    accounts[--i].getLock().unlock();
+                }
+                BankAccount[] ordered = Arrays.copyOf(accounts, count);
+                Arrays.sort(ordered, BankAccount.LOCK_ORDER);
+                for (BankAccount account : ordered) {
+                    account.getLock().lock();
+                }
+                return;
+            }
+        }
+    }
+
+    private static ResultCode transferLocked(BankAccount from, BankAccount to, long amount) {
+        if (from == null || to == null) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        if (from == to) {
+            return ResultCode.SAME_ACCOUNT;
+        }
+        return from.transferLocked(to, amount);
+    }
+
+    public boolean changeStatus(String accountNumber, AccountStatus newStatus) {
+        return tryChangeStatus(accountNumber, newStatus) == ResultCode.OK;
+    }
+
+    /**
+     * Same as {@link #changeStatus}, returning the check that failed:
+     * UNKNOWN_ACCOUNT, INVALID_ARGUMENT (null status) or NO_CHANGE.
+     */
+    public ResultCode tryChangeStatus(String accountNumber, AccountStatus newStatus) {
+        BankMetrics m = metrics;
+        if (m == null) {
+            return changeStatusChecked(accountNumber, newStatus);
+        }
+        long start = System.nanoTime();
+        ResultCode result = changeStatusChecked(accountNumber, newStatus);
+        m.record(BankMetrics.Operation.CHANGE_STATUS, result, System.nanoTime() - start);
+        return result;
+    }
+
+    private ResultCode changeStatusChecked(String accountNumber, AccountStatus newStatus) {
         // Check parameter validity
         if (accountNumber == null || accountNumber.trim().isEmpty()) {
-            return false;
+            return ResultCode.UNKNOWN_ACCOUNT;
         }
         if (newStatus == null) {
-            return false;
+            return ResultCode.INVALID_ARGUMENT;
         }
 
         // Locate account
         BankAccount acc = findAccount(accountNumber);
         if (acc == null) {
-            return false; // account does not exist
+            return ResultCode.UNKNOWN_ACCOUNT; // account does not exist
         }
 
-        // If status is not Active nor Closed nor Frozen
-        if (newStatus != AccountStatus.ACTIVE && newStatus != AccountStatus.CLOSED && newStatus != AccountStatus.FROZEN) {
-            return false;
-        }
-        
-        // If same status → no change needed
-        if (acc.getStatus() == newStatus) {
-            return false;
-        }
+        ReentrantLock lock = acc.getLock();
+        lock.lock();
+        try {
+            // If same status → no change needed
+            if (acc.getStatus() == newStatus) {
+                return ResultCode.NO_CHANGE;
+            }
 
-        // Apply status
-        acc.setStatus(newStatus);
-        return true;
+            // Apply status
+            acc.setStatus(newStatus);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable();
+        return ResultCode.OK;
     }
 
     public boolean setDailyLimit(String accountNumber, double newLimit) {
-        // Check parameters
-        if (accountNumber == null || accountNumber.trim().isEmpty()) {
-            return false;
+        return setDailyLimitCents(accountNumber, Money.toCents(newLimit));
+    }
+
+    /**
+     * Same as {@link #setDailyLimit(String, double)} with the limit in cents.
+     */
+    public boolean setDailyLimitCents(String accountNumber, long newLimit) {
+        return trySetDailyLimitCents(accountNumber, newLimit) == ResultCode.OK;
+    }
+
+    /**
+     * Same as {@link #setDailyLimit(String, double)}, returning the check that
+     * failed.
+     */
+    public ResultCode trySetDailyLimit(String accountNumber, double newLimit) {
+        return trySetDailyLimitCents(accountNumber, Money.toCents(newLimit));
+    }
+
+    /**
+     * Same as {@link #setDailyLimitCents}, returning the check that failed:
+     * UNKNOWN_ACCOUNT, LIMIT_OUT_OF_RANGE (outside the range of the account's
+     * {@link AccountPolicy}, by default 100 to 5,000) or NO_CHANGE.
+     */
+    public ResultCode trySetDailyLimitCents(String accountNumber, long newLimit) {
+        BankMetrics m = metrics;
+        if (m == null) {
+            return setDailyLimitChecked(accountNumber, newLimit);
         }
+        long start = System.nanoTime();
+        ResultCode result = setDailyLimitChecked(accountNumber, newLimit);
+        m.record(BankMetrics.Operation.SET_DAILY_LIMIT, result, System.nanoTime() - start);
+        return result;
+    }
 
-        // Business rule: daily limit cannot be less than 100 nor greater than 5,000
-        if (newLimit <= 0 || newLimit < 100 || newLimit > 5000) {
-            return false; // limit must be positive
+    private ResultCode setDailyLimitChecked(String accountNumber, long newLimit) {
+        // Check parameters
+        if (accountNumber == null || accountNumber.trim().isEmpty()) {
+            return ResultCode.UNKNOWN_ACCOUNT;
         }
 
         // Locate account
         BankAccount acc = findAccount(accountNumber);
         if (acc == null) {
-            return false;
+            return ResultCode.UNKNOWN_ACCOUNT;
         }
 
-        // Check if same as current limit
-        if (acc.getDailyWithdrawalLimit() == newLimit) {
-            return false;
+        ReentrantLock lock = acc.getLock();
+        lock.lock();
+        try {
+            // Business rule: the limit must be within the tier's range (by default 100 to 5,000)
+            if (!acc.getPolicy().allowsDailyLimit(newLimit)) {
+                return ResultCode.LIMIT_OUT_OF_RANGE;
+            }
+
+            // Check if same as current limit
+            if (acc.getDailyWithdrawalLimitCents() == newLimit) {
+                return ResultCode.NO_CHANGE;
+            }
+
+            // Update limit
+            acc.setDailyWithdrawalLimitCents(newLimit);
+        } finally {
+            lock.unlock();
         }
+        awaitDurable();
+        return ResultCode.OK;
+    }
 
-        // Update limit
-        acc.setDailyWithdrawalLimit(newLimit);
-        return true;
+    /**
+     * Starts recording every operation of this bank and its accounts in a
+     * {@link BankMetrics}; returns the existing one if already enabled.
+     */
+    public synchronized BankMetrics enableMetrics() {
+        BankMetrics m = metrics;
+        if (m == null) {
+            m = new BankMetrics();
+            metrics = m;
+            for (BankAccount account : accounts.values()) {
+                account.setMetrics(m);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Metrics of this bank, or null until {@link #enableMetrics()} is called.
+     */
+    public BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts keeping the last {@code capacity} transactions of every account
+     * of this bank, including accounts added later (see
+     * {@link BankAccount#getRecentTransactions(int)}). Accounts that already
+     * have a history keep theirs; later calls do not change the capacity.
+     *
+     * @throws IllegalArgumentException if capacity is not between 1 and
+     *                                  {@link TransactionHistory#MAX_CAPACITY}
+     */
+    public synchronized void enableHistory(int capacity) {
+        if (capacity <= 0 || capacity > TransactionHistory.MAX_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "History capacity must be between 1 and " + TransactionHistory.MAX_CAPACITY + ".");
+        }
+        if (historyCapacity == 0) {
+            historyCapacity = capacity;
+            for (BankAccount account : accounts.values()) {
+                account.enableHistory(capacity);
+            }
+        }
+    }
+
+    // After the put, so a concurrent enableHistory either sees the account or is seen here
+    private void enableHistory(BankAccount account) {
+        int capacity = historyCapacity;
+        if (capacity > 0) {
+            account.enableHistory(capacity);
+        }
+    }
+
+    /**
+     * The bank's journal, or null when it has none.
+     */
+    Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Blocks until every change journaled so far is on disk. No-op for a bank
+     * without a journal.
+     */
+    public void awaitDurable() {
+        if (journal != null) {
+            journal.awaitDurable(journal.appendedPosition());
+        }
+    }
+
+    /**
+     * Writes a snapshot of all accounts to {@code snapshotFile} without
+     * stopping other operations; each account is only locked while it is copied.
+     */
+    public void writeSnapshot(Path snapshotFile) throws IOException {
+        // Read the journal position first: every change after it is replayed on top
+        long journalStart = journal == null ? 0 : journal.appendedPosition();
+        Snapshot.write(snapshotFile, journalStart, accounts.values());
+    }
+
+    /**
+     * Writes a snapshot every {@code periodMillis} on a background thread until
+     * the bank is closed. A failed snapshot is retried next period; its
+     * exception is kept for {@link #getLastSnapshotFailure()}.
+     */
+    public synchronized void startPeriodicSnapshots(Path snapshotFile, long periodMillis) {
+        if (snapshotScheduler != null) {
+            throw new IllegalStateException("Periodic snapshots already started.");
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bank-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot(snapshotFile);
+                lastSnapshotFailure = null;
+            } catch (IOException e) {
+                lastSnapshotFailure = e;
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Why the latest periodic snapshot failed, or null if it succeeded or none
+     * has run yet.
+     */
+    public IOException getLastSnapshotFailure() {
+        return lastSnapshotFailure;
+    }
+
+    /**
+     * Stops periodic snapshots, then flushes and closes the journal, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (snapshotScheduler != null) {
+                snapshotScheduler.shutdown();
+                try {
+                    snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                snapshotScheduler = null;
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
     }
 
     // Small helper for demo: prints all accounts to System.out.
+    // Builds a string per account; use AccountExport for large banks.
     public void printAllAccounts() {
         for (BankAccount account : accounts.values()) {
             System.out.println(account);
         }
     }
+
+    /**
+     * Result of {@link #listAccounts}.
+     */
+    public static final class Page {
+
+        private final List<BankAccount> accounts;
+        private final long nextCursor;
+        private final boolean hasMore;
+
+        Page(List<BankAccount> accounts, long nextCursor, boolean hasMore) {
+            this.accounts = accounts;
+            this.nextCursor = nextCursor;
+            this.hasMore = hasMore;
+        }
+
+        public List<BankAccount> accounts() {
+            return accounts;
+        }
+
+        /**
+         * Cursor of the page after this one.
+         */
+        public long nextCursor() {
+            return nextCursor;
+        }
+
+        /**
+         * Whether more accounts existed when this page was taken.
+         */
+        public boolean hasMore() {
+            return hasMore;
+        }
+    }
 }
@@ -1,51 +1,212 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Represents a simple bank account with basic operations.
  *
  * This class is intentionally designed with several branches and conditions
  * so that it can be used for Input Space Partitioning (ISP) and
  * Graph Coverage (e.g., node/edge coverage) in SWE 472.
+ *
+ * All mutating operations run under a per-account lock, so an account can be
+ * shared between threads. Operations touching two accounts (transferTo) take
+ * both locks in account-number order to avoid deadlocks.
+ *
+ * Money is held as {@code long} cents (see {@link Money}). The {@code double}
+ * methods convert at the edge and delegate to the {@code ...Cents} variants,
+ * which are exact and allocation-free.
+ *
+ * Each operation also has a {@code try...} form returning a
+ * {@link ResultCode} that names the check that rejected it, so callers need
+ * not re-validate to learn why; the boolean forms compare it to OK.
+ *
+ * Once the account belongs to a {@link Bank} with a {@link Journal}, every
+ * successful mutation is appended to that journal while the lock is held, so
+ * the journal order matches the order in which changes were applied. The
+ * record is appended after the checks and before the change: if the journal
+ * has failed or been closed the operation throws and the account is left as
+ * it was.
+ *
+ * The daily withdrawn amount belongs to the day of the last withdrawal, as
+ * reported by the account's {@link BankClock}. Once the clock reaches a later
+ * day the amount counts as zero, so accounts need no reset at day rollover.
+ *
+ * When the owning bank has {@link BankMetrics} enabled, deposits,
+ * withdrawals and transfers record their {@link ResultCode} and latency.
+ *
+ * For {@link Bank#checkpoint()} each account also tracks its external net
+ * flow (opening balance plus deposits minus withdrawals) and, on its first
+ * change after a checkpoint starts, saves its state as of that checkpoint.
+ *
+ * The limits checked beyond the basic rules come from the account's
+ * {@link AccountPolicy} (its product tier), {@link AccountPolicy#STANDARD}
+ * unless set otherwise.
+ *
+ * With history enabled, deposits, withdrawals and transfers are also kept in
+ * a bounded {@link TransactionHistory}, from which
+ * {@link #getRecentTransactions(int)} serves statements.
+ *
+ * Each getter reads one field without locking. {@link #readView()} reads
+ * balance, daily limit, daily withdrawn amount and status together, also
+ * without locking: writers bump a version stamp to odd before changing them
+ * and back to even after (a seqlock), and a reader retries if the stamp moved
+ * while it read.
  */
 public class BankAccount {
 
+    // Used only when two distinct accounts share the same account number and identity hash.
+    private static final Object TIE_LOCK = new Object();
+
+    /** Withdrawal day of an account that has never withdrawn. */
+    static final long NO_WITHDRAWAL_DAY = Long.MIN_VALUE;
+
+    /**
+     * Longest account number or owner name, in UTF-8 bytes: journal, snapshot
+     * and export records store each with a two-byte length.
+     */
+    static final int MAX_TEXT_BYTES = 0xFFFF;
+
+    // Optimistic reads retried before a reader falls back to the lock
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 8;
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(BankAccount.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Sort order for locking several accounts at once; see {@link #compareLockOrder}. */
+    static final Comparator<BankAccount> LOCK_ORDER = BankAccount::compareLockOrder;
+
     private final String accountNumber;
     private final String ownerName;
 
-    private double balance;
-    private double dailyWithdrawalLimit; // Maximum total amount that can be withdrawn per day
-    private double dailyWithdrawnAmount; // How much has been withdrawn today
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Written under lock; volatile so getters can read without locking. All in cents.
+    private volatile long balance;
+    private volatile long dailyWithdrawalLimit; // Maximum total amount that can be withdrawn per day
+    private volatile long dailyWithdrawnAmount; // How much has been withdrawn on withdrawalDay
+    private volatile long withdrawalDay = NO_WITHDRAWAL_DAY; // Epoch day of the last withdrawal
 
-    private String status;
+    private volatile AccountStatus status;
+
+    // Seqlock stamp over the four fields above: odd while a writer holding the
+    // lock changes them. Written with opaque and release stores, see beginWrite.
+    private volatile long version;
+
+    // Opening balance + deposits - withdrawals, in cents; transfers do not change it
+    private volatile long externalNet;
+
+    // Checkpoint epoch counter of the owning bank, null outside a bank. The
+    // remaining audit fields are guarded by lock: state as of auditEpoch.
+    private volatile AtomicLong auditEpochs;
+    private long auditEpoch;
+    private long auditBalance;
+    private long auditExternalNet;
+    private long auditWithdrawn;
+    private long auditWithdrawalDay;
+    private AccountStatus auditStatus;
+
+    // Replaced by the bank's clock in Bank.addAccount
+    private volatile BankClock clock = BankClock.systemDefault();
+
+    // Set by Bank.addAccount / Bank.enableMetrics; null when metrics are off
+    private volatile BankMetrics metrics;
+
+    // Limits of the account's tier; read under the lock by every operation
+    private volatile AccountPolicy policy = AccountPolicy.STANDARD;
+
+    // Velocity window counters laid out for velocityPolicy; created on the first
+    // withdrawal or transfer under a policy with velocity limits. Guarded by lock.
+    private long[] velocity;
+    private AccountPolicy velocityPolicy;
+
+    // Set by enableHistory; null when history is off. Guarded by lock once set.
+    private volatile TransactionHistory history;
+
+    // Set by Bank.addAccount when the bank is journaled
+    private volatile Journal journal;
+    private byte[] accountNumberBytes;
+    private long journalLsn; // Journal position of the last record applied to this account (under lock)
 
     /**
      * Creates a new BankAccount.
      *
-     * @param accountNumber        unique account identifier (non-null, non-empty)
-     * @param ownerName            name of the account owner (non-null, non-empty)
+     * @param accountNumber        unique account identifier (non-null, non-empty,
+     *                             at most {@link #MAX_TEXT_BYTES} bytes in UTF-8)
+     * @param ownerName            name of the account owner (non-null, non-empty,
+     *                             at most {@link #MAX_TEXT_BYTES} bytes in UTF-8)
      * @param initialBalance       initial balance (can be zero or positive)
      * @param dailyWithdrawalLimit maximum amount allowed to withdraw per day (must
      *                             be > 0 and less than 5,000)
      */
     public BankAccount(String accountNumber, String ownerName, double initialBalance, double dailyWithdrawalLimit) {
+        this(accountNumber, ownerName, Money.toCents(initialBalance), Money.toCents(dailyWithdrawalLimit));
+    }
+
+    private BankAccount(String accountNumber, String ownerName, long initialBalance, long dailyWithdrawalLimit) {
+        checkArguments(accountNumber, ownerName, initialBalance, dailyWithdrawalLimit);
+
+        this.accountNumber = accountNumber.trim();
+        this.ownerName = ownerName.trim();
+        this.balance = initialBalance;
+        this.dailyWithdrawalLimit = dailyWithdrawalLimit;
+        this.dailyWithdrawnAmount = 0;
+        this.status = AccountStatus.ACTIVE;
+        this.externalNet = initialBalance;
+    }
+
+    /**
+     * Creates a new BankAccount with amounts given in cents. Same validation
+     * rules as the {@code double} constructor.
+     */
+    public static BankAccount ofCents(String accountNumber, String ownerName, long initialBalanceCents,
+                                      long dailyWithdrawalLimitCents) {
+        return new BankAccount(accountNumber, ownerName, initialBalanceCents, dailyWithdrawalLimitCents);
+    }
 
+    /**
+     * Constructor validation rules, shared with the other account representations.
+     */
+    static void checkArguments(String accountNumber, String ownerName, long initialBalance,
+                               long dailyWithdrawalLimit) {
         if (accountNumber == null || accountNumber.trim().isEmpty()) {
             throw new IllegalArgumentException("Account number must not be empty.");
         }
         if (ownerName == null || ownerName.trim().isEmpty()) {
             throw new IllegalArgumentException("Owner name must not be empty.");
         }
+        if (!fitsText(accountNumber.trim())) {
+            throw new IllegalArgumentException("Account number must be at most " + MAX_TEXT_BYTES + " bytes.");
+        }
+        if (!fitsText(ownerName.trim())) {
+            throw new IllegalArgumentException("Owner name must be at most " + MAX_TEXT_BYTES + " bytes.");
+        }
         if (initialBalance < 0) {
             throw new IllegalArgumentException("Initial balance cannot be negative.");
         }
         if (dailyWithdrawalLimit <= 0) {
             throw new IllegalArgumentException("Daily withdrawal limit must be positive.");
         }
+    }
 
-        this.accountNumber = accountNumber.trim();
-        this.ownerName = ownerName.trim();
-        this.balance = initialBalance;
-        this.dailyWithdrawalLimit = dailyWithdrawalLimit;
-        this.dailyWithdrawnAmount = 0.0;
-        this.status = AccountStatus.ACTIVE;
+    private static boolean fitsText(String value) {
+        // A char is at most 3 UTF-8 bytes; encode only when that bound is exceeded
+        return value.length() * 3L <= MAX_TEXT_BYTES
+                || value.getBytes(StandardCharsets.UTF_8).length <= MAX_TEXT_BYTES;
     }
 
     // --------- Getters --------- //
@@ -59,46 +220,369 @@ public class BankAccount {
     }
 
     public double getBalance() {
-        return balance;
+        return Money.toAmount(balance);
     }
 
     public double getDailyWithdrawalLimit() {
-        return dailyWithdrawalLimit;
+        return Money.toAmount(dailyWithdrawalLimit);
     }
 
     public double getDailyWithdrawnAmount() {
-        return dailyWithdrawnAmount;
+        return Money.toAmount(getDailyWithdrawnAmountCents());
+    }
+
+    public long getBalanceCents() {
+        return balance;
+    }
+
+    public long getDailyWithdrawalLimitCents() {
+        return dailyWithdrawalLimit;
+    }
+
+    /**
+     * Amount withdrawn today; zero if the last withdrawal was on an earlier day.
+     */
+    public long getDailyWithdrawnAmountCents() {
+        return withdrawalDay == clock.epochDay() ? dailyWithdrawnAmount : 0;
+    }
+
+    /**
+     * Reads balance, daily limit, daily withdrawn amount and status as of one
+     * moment, without taking the lock: the fields are read between two reads
+     * of the version stamp and kept if it did not change. After a few failed
+     * attempts (a writer kept changing the account) it reads under the lock.
+     */
+    public AccountView readView() {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long v = version;
+            if ((v & 1) == 0) {
+                AccountView view = viewAt(v);
+                // The fields are volatile, so this read cannot move before them
+                if (version == v) {
+                    return view;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        lock.lock();
+        try {
+            return viewAt(version);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #readView()} for several accounts at once: all views
+     * come from the same moment, so a transfer between two of the accounts is
+     * seen on both sides or on neither. Null entries stay null.
+     */
+    static AccountView[] readViews(BankAccount[] accounts) {
+        AccountView[] views = new AccountView[accounts.length];
+        long[] versions = new long[accounts.length];
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            // Each account is stable from its first stamp read to its check, and
+            // all checks come after all reads, so the views share a moment
+            boolean stable = true;
+            for (int i = 0; i < accounts.length && stable; i++) {
+                BankAccount account = accounts[i];
+                if (account != null) {
+                    versions[i] = account.version;
+                    stable = (versions[i] & 1) == 0;
+                    views[i] = account.viewAt(versions[i]);
+                }
+            }
+            for (int i = 0; i < accounts.length && stable; i++) {
+                stable = accounts[i] == null || accounts[i].version == versions[i];
+            }
+            if (stable) {
+                return views;
+            }
+            Thread.onSpinWait();
+        }
+
+        BankAccount[] ordered = new BankAccount[accounts.length];
+        int count = 0;
+        for (BankAccount account : accounts) {
+            if (account != null) {
+                ordered[count++] = account;
+            }
+        }
+        Arrays.sort(ordered, 0, count, LOCK_ORDER);
+        for (int i = 0; i < count; i++) {
+            ordered[i].lock.lock(); // Reentrant, so an account listed twice is fine
+        }
+        try {
+            for (int i = 0; i < accounts.length; i++) {
+                views[i] = accounts[i] == null ? null : accounts[i].viewAt(accounts[i].version);
+            }
+            return views;
+        } finally {
+            for (int i = 0; i < count; i++) {
+                ordered[i].lock.unlock();
+            }
+        }
+    }
+
+    private AccountView viewAt(long v) {
+        long withdrawn = dailyWithdrawnAmount;
+        long day = withdrawalDay;
+        return new AccountView(accountNumber, balance, dailyWithdrawalLimit,
+                day == clock.epochDay() ? withdrawn : 0, status, v);
+    }
+
+    // Called under the lock around every change of balance, limit, daily
+    // withdrawn amount, withdrawal day or status. Both are plain stores on
+    // x86: the odd stamp is ordered before the field writes by the store-store
+    // fence, the even one after them by the release.
+    private void beginWrite() {
+        VERSION.setOpaque(this, version + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite() {
+        VERSION.setRelease(this, version + 1);
+    }
+
+    /**
+     * Epoch day of the last withdrawal, or {@link #NO_WITHDRAWAL_DAY}.
+     */
+    long getWithdrawalDay() {
+        return withdrawalDay;
+    }
+
+    BankClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets the clock that decides when a new day starts. Package-private;
+     * called by {@link Bank} so all of its accounts share the bank's clock.
+     */
+    void setClock(BankClock clock) {
+        this.clock = clock;
     }
 
-    public String getStatus() {
+    /**
+     * Sets where deposits, withdrawals and transfers are recorded; null turns
+     * recording off. Package-private; called by {@link Bank}.
+     */
+    void setMetrics(BankMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public AccountStatus getStatus() {
         return status;
     }
 
+    public AccountPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Moves this account to the tier of {@code policy}. Operations already
+     * running finish under the previous policy; the current daily limit is
+     * kept even if outside the new range.
+     */
+    public void setPolicy(AccountPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy must not be null.");
+        }
+        lock.lock();
+        try {
+            this.policy = policy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts keeping the last {@code capacity} deposits, withdrawals and
+     * transfers of this account. Has no effect if history is already enabled.
+     *
+     * @throws IllegalArgumentException if capacity is not between 1 and
+     *                                  {@link TransactionHistory#MAX_CAPACITY}
+     */
+    public void enableHistory(int capacity) {
+        TransactionHistory created = new TransactionHistory(capacity);
+        lock.lock();
+        try {
+            if (history == null) {
+                history = created;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The last {@code n} transactions kept in memory, oldest first; fewer if
+     * the history holds fewer, empty if history is not enabled.
+     *
+     * @throws IllegalArgumentException if n is negative
+     */
+    public List<Transaction> getRecentTransactions(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Transaction count cannot be negative.");
+        }
+        TransactionHistory h = history;
+        if (h == null || n == 0) {
+            return Collections.emptyList();
+        }
+        List<Transaction> result = new ArrayList<>(Math.min(n, h.capacity()));
+        lock.lock();
+        try {
+            h.copyRecent(n, result);
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    // Null when history is off; read under the lock
+    TransactionHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Opening balance plus deposits minus withdrawals, in cents.
+     */
+    long getExternalNetCents() {
+        return externalNet;
+    }
+
+    /**
+     * Links this account to its bank's checkpoint epochs. Package-private;
+     * called by {@link Bank} before the account becomes visible.
+     */
+    void setAuditEpochs(AtomicLong auditEpochs) {
+        this.auditEpochs = auditEpochs;
+    }
+
+    /**
+     * Saves the current state as the state of checkpoint {@code epoch}, unless
+     * already saved for it. Caller holds the lock.
+     */
+    void captureAuditState(long epoch) {
+        if (auditEpoch != epoch) {
+            auditEpoch = epoch;
+            auditBalance = balance;
+            auditExternalNet = externalNet;
+            auditWithdrawn = dailyWithdrawnAmount;
+            auditWithdrawalDay = withdrawalDay;
+            auditStatus = status;
+        }
+    }
+
+    // State as of the last captured checkpoint; read under the lock after captureAuditState
+    long getAuditBalance() {
+        return auditBalance;
+    }
+
+    long getAuditExternalNet() {
+        return auditExternalNet;
+    }
+
+    // Withdrawn on day, as of the last captured checkpoint
+    long getAuditWithdrawnCents(long day) {
+        return auditWithdrawalDay == day ? auditWithdrawn : 0;
+    }
+
+    AccountStatus getAuditStatus() {
+        return auditStatus;
+    }
+
+    // Called under the lock before every change that a checkpoint aggregates
+    private void beforeAuditedChange() {
+        AtomicLong epochs = auditEpochs;
+        if (epochs != null) {
+            captureAuditState(epochs.get());
+        }
+    }
+
+    // Same for both sides of a transfer, with one epoch read: reading it per
+    // account could put the debit and the credit on different sides of a cut
+    private void beforeAuditedTransfer(BankAccount target) {
+        AtomicLong epochs = auditEpochs;
+        long epoch = epochs != null ? epochs.get() : 0;
+        if (epochs != null) {
+            captureAuditState(epoch);
+        }
+        AtomicLong targetEpochs = target.auditEpochs;
+        if (targetEpochs != null) {
+            target.captureAuditState(targetEpochs == epochs ? epoch : targetEpochs.get());
+        }
+    }
+
+    /**
+     * Lock guarding this account's mutable state. Package-private so that
+     * {@link Bank} can make check-then-act sequences atomic.
+     */
+    ReentrantLock getLock() {
+        return lock;
+    }
+
     public void setDailyWithdrawalLimit(double dailyWithdrawalLimit) {
+        setDailyWithdrawalLimitCents(Money.toCents(dailyWithdrawalLimit));
+    }
+
+    public void setDailyWithdrawalLimitCents(long dailyWithdrawalLimit) {
         if (dailyWithdrawalLimit <= 0) {
             throw new IllegalArgumentException("Daily withdrawal limit must be positive.");
         }
-        this.dailyWithdrawalLimit = dailyWithdrawalLimit;
+        lock.lock();
+        try {
+            Journal j = journal;
+            if (j != null) {
+                journalLsn = j.appendAmount(Journal.LIMIT, this, dailyWithdrawalLimit);
+            }
+            beginWrite();
+            this.dailyWithdrawalLimit = dailyWithdrawalLimit;
+            endWrite();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public void setStatus(String status) {
+    public void setStatus(AccountStatus status) {
         if (status == null) {
             throw new IllegalArgumentException("Status cannot be null.");
         }
 
-        if (status != AccountStatus.ACTIVE && status != AccountStatus.CLOSED && status != AccountStatus.FROZEN) {
-            throw new IllegalArgumentException("Status is invalid.");
+        lock.lock();
+        try {
+            Journal j = journal;
+            if (j != null) {
+                journalLsn = j.appendStatus(this, status);
+            }
+            beforeAuditedChange();
+            beginWrite();
+            this.status = status;
+            endWrite();
+        } finally {
+            lock.unlock();
         }
-
-        this.status = status;
     }
 
     /**
      * Resets the daily withdrawn amount.
-     * Call this method at the start of a "new day" in your tests.
+     * Not needed at day rollover (see {@link BankClock}); kept for explicit
+     * resets, e.g. in tests that do not advance the clock.
      */
     public void resetDailyWithdrawnAmount() {
-        this.dailyWithdrawnAmount = 0.0;
+        lock.lock();
+        try {
+            Journal j = journal;
+            if (j != null) {
+                journalLsn = j.appendResetDaily(this);
+            }
+            beforeAuditedChange();
+            beginWrite();
+            this.dailyWithdrawnAmount = 0;
+            endWrite();
+        } finally {
+            lock.unlock();
+        }
     }
 
     // --------- Core Operations --------- //
@@ -110,17 +594,82 @@ public class BankAccount {
      * @return true if the deposit succeeded, false otherwise.
      */
     public boolean deposit(double amount) {
-        if (status != AccountStatus.ACTIVE) {
-            // Cannot deposit into frozen or closed accounts
-            return false;
-        }
+        return depositCents(Money.toCents(amount));
+    }
 
-        if (amount <= 0) {
-            return false;
+    /**
+     * Deposits money into the account.
+     *
+     * @param amount amount to deposit in cents (must be > 0)
+     * @return true if the deposit succeeded, false otherwise.
+     */
+    public boolean depositCents(long amount) {
+        return tryDepositCents(amount) == ResultCode.OK;
+    }
+
+    /**
+     * Same as {@link #deposit(double)}, returning the check that failed.
+     */
+    public ResultCode tryDeposit(double amount) {
+        return tryDepositCents(Money.toCents(amount));
+    }
+
+    /**
+     * Deposits money into the account.
+     *
+     * @param amount amount to deposit in cents (must be > 0)
+     * @return {@link ResultCode#OK}, or NOT_ACTIVE, NON_POSITIVE_AMOUNT,
+     * TRANSACTION_LIMIT_EXCEEDED or BALANCE_OVERFLOW
+     */
+    public ResultCode tryDepositCents(long amount) {
+        BankMetrics m = metrics;
+        if (m == null) {
+            return depositChecked(amount);
         }
+        long start = System.nanoTime();
+        ResultCode result = depositChecked(amount);
+        m.record(BankMetrics.Operation.DEPOSIT, result, System.nanoTime() - start);
+        return result;
+    }
 
-        balance += amount;
-        return true;
+    private ResultCode depositChecked(long amount) {
+        lock.lock();
+        try {
+            if (status != AccountStatus.ACTIVE) {
+                // Cannot deposit into frozen or closed accounts
+                return ResultCode.NOT_ACTIVE;
+            }
+
+            if (amount <= 0) {
+                return ResultCode.NON_POSITIVE_AMOUNT;
+            }
+
+            if (amount > policy.maxDepositCents) {
+                return ResultCode.TRANSACTION_LIMIT_EXCEEDED;
+            }
+
+            if (amount > Long.MAX_VALUE - balance) {
+                // Balance would overflow
+                return ResultCode.BALANCE_OVERFLOW;
+            }
+
+            Journal j = journal;
+            if (j != null) {
+                journalLsn = j.appendAmount(Journal.DEPOSIT, this, amount);
+            }
+            beforeAuditedChange();
+            beginWrite();
+            balance += amount;
+            endWrite();
+            externalNet += amount;
+            TransactionHistory h = history;
+            if (h != null) {
+                h.record(Transaction.Type.DEPOSIT, amount, null, clock.currentTimeMillis());
+            }
+            return ResultCode.OK;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -136,29 +685,104 @@ public class BankAccount {
      * @return true if the withdrawal succeeded, false otherwise.
      */
     public boolean withdraw(double amount) {
-        if (status != AccountStatus.ACTIVE) {
-            // Cannot withdraw from frozen or closed accounts
-            return false;
-        }
+        return withdrawCents(Money.toCents(amount));
+    }
 
-        if (amount <= 0) {
-            return false;
-        }
+    /**
+     * Withdraws money from the account. Same checks as {@link #withdraw(double)}.
+     *
+     * @param amount amount to withdraw in cents (must be > 0)
+     * @return true if the withdrawal succeeded, false otherwise.
+     */
+    public boolean withdrawCents(long amount) {
+        return tryWithdrawCents(amount) == ResultCode.OK;
+    }
 
-        // Check daily limit
-        if (dailyWithdrawnAmount + amount > dailyWithdrawalLimit) {
-            return false;
-        }
+    /**
+     * Same as {@link #withdraw(double)}, returning the check that failed.
+     */
+    public ResultCode tryWithdraw(double amount) {
+        return tryWithdrawCents(Money.toCents(amount));
+    }
 
-        if (amount > balance) {
-            // Not enough balance + overdraft
-            return false;
+    /**
+     * Withdraws money from the account.
+     *
+     * @param amount amount to withdraw in cents (must be > 0)
+     * @return {@link ResultCode#OK}, or NOT_ACTIVE, NON_POSITIVE_AMOUNT,
+     * TRANSACTION_LIMIT_EXCEEDED, DAILY_LIMIT_EXCEEDED, VELOCITY_LIMIT_EXCEEDED
+     * or INSUFFICIENT_BALANCE
+     */
+    public ResultCode tryWithdrawCents(long amount) {
+        BankMetrics m = metrics;
+        if (m == null) {
+            return withdrawChecked(amount);
         }
+        long start = System.nanoTime();
+        ResultCode result = withdrawChecked(amount);
+        m.record(BankMetrics.Operation.WITHDRAW, result, System.nanoTime() - start);
+        return result;
+    }
 
-        // Perform withdrawal
-        balance -= amount;
-        dailyWithdrawnAmount += amount;
-        return true;
+    private ResultCode withdrawChecked(long amount) {
+        lock.lock();
+        try {
+            if (status != AccountStatus.ACTIVE) {
+                // Cannot withdraw from frozen or closed accounts
+                return ResultCode.NOT_ACTIVE;
+            }
+
+            if (amount <= 0) {
+                return ResultCode.NON_POSITIVE_AMOUNT;
+            }
+
+            AccountPolicy p = policy;
+            if (amount > p.maxWithdrawalCents) {
+                return ResultCode.TRANSACTION_LIMIT_EXCEEDED;
+            }
+
+            // What was withdrawn on an earlier day does not count
+            long today = clock.epochDay();
+            long withdrawn = today == withdrawalDay ? dailyWithdrawnAmount : 0;
+
+            // Check daily limit (written as a subtraction so it cannot overflow)
+            if (amount > dailyWithdrawalLimit - withdrawn) {
+                return ResultCode.DAILY_LIMIT_EXCEEDED;
+            }
+
+            long[] v = p.velocityWindows == 0 ? null : velocityState(p);
+            if (v != null && !p.withinVelocity(v, clock.currentTimeMillis(), amount)) {
+                return ResultCode.VELOCITY_LIMIT_EXCEEDED;
+            }
+
+            if (amount > balance - p.minBalanceCents) {
+                // Not enough balance above the tier's minimum
+                return ResultCode.INSUFFICIENT_BALANCE;
+            }
+
+            // Perform withdrawal
+            Journal j = journal;
+            if (j != null) {
+                journalLsn = j.appendWithdraw(this, amount, today);
+            }
+            beforeAuditedChange();
+            beginWrite();
+            balance -= amount;
+            dailyWithdrawnAmount = withdrawn + amount;
+            withdrawalDay = today;
+            endWrite();
+            externalNet -= amount;
+            if (v != null) {
+                p.addVelocity(v, amount);
+            }
+            TransactionHistory h = history;
+            if (h != null) {
+                h.record(Transaction.Type.WITHDRAWAL, amount, null, clock.currentTimeMillis());
+            }
+            return ResultCode.OK;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -175,33 +799,480 @@ public class BankAccount {
      * @return true if the transfer succeeded, false otherwise.
      */
     public boolean transferTo(BankAccount target, double amount) {
+        return transferToCents(target, Money.toCents(amount));
+    }
+
+    /**
+     * Transfers money to another BankAccount. Same checks as
+     * {@link #transferTo(BankAccount, double)}.
+     *
+     * @param target the target account to transfer to (must not be null)
+     * @param amount amount to transfer in cents
+     * @return true if the transfer succeeded, false otherwise.
+     */
+    public boolean transferToCents(BankAccount target, long amount) {
+        return tryTransferToCents(target, amount) == ResultCode.OK;
+    }
+
+    /**
+     * Same as {@link #transferTo(BankAccount, double)}, returning the check
+     * that failed.
+     */
+    public ResultCode tryTransferTo(BankAccount target, double amount) {
+        return tryTransferToCents(target, Money.toCents(amount));
+    }
+
+    /**
+     * Transfers money to another BankAccount.
+     *
+     * @param target the target account to transfer to
+     * @param amount amount to transfer in cents
+     * @return {@link ResultCode#OK}, or UNKNOWN_ACCOUNT (null target),
+     * SAME_ACCOUNT, NOT_ACTIVE (target), NON_POSITIVE_AMOUNT,
+     * TRANSACTION_LIMIT_EXCEEDED, VELOCITY_LIMIT_EXCEEDED, INSUFFICIENT_BALANCE or
+     * BALANCE_OVERFLOW (target)
+     */
+    public ResultCode tryTransferToCents(BankAccount target, long amount) {
+        BankMetrics m = metrics;
+        if (m == null) {
+            return transferChecked(target, amount);
+        }
+        long start = System.nanoTime();
+        ResultCode result = transferChecked(target, amount);
+        m.record(BankMetrics.Operation.TRANSFER, result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Transfer without recording metrics, for callers that record the
+     * operation themselves (see {@link Bank#transferCents}).
+     */
+    ResultCode transferChecked(BankAccount target, long amount) {
         if (target == null) {
-            return false;
+            return ResultCode.UNKNOWN_ACCOUNT;
         }
 
         // Cannot transfer to the same account
         if (this == target) {
-            return false;
+            return ResultCode.SAME_ACCOUNT;
         }
 
+        lockBoth(this, target);
+        try {
+            return transferLocked(target, amount);
+        } finally {
+            unlockBoth(this, target);
+        }
+    }
+
+    /**
+     * Body of {@link #transferToCents} once both accounts are locked by the
+     * caller and known to be distinct. Returns the check that failed, if any.
+     */
+    ResultCode transferLocked(BankAccount target, long amount) {
         if (target.status != AccountStatus.ACTIVE) {
-            return false;
+            return ResultCode.NOT_ACTIVE;
         }
-        
+
         // Pre Withdraw checking
         if (amount <= 0) {
-            return false;
+            return ResultCode.NON_POSITIVE_AMOUNT;
+        }
+
+        AccountPolicy p = policy;
+        if (amount > p.maxTransferCents) {
+            return ResultCode.TRANSACTION_LIMIT_EXCEEDED;
+        }
+
+        long[] v = p.velocityWindows == 0 ? null : velocityState(p);
+        if (v != null && !p.withinVelocity(v, clock.currentTimeMillis(), amount)) {
+            return ResultCode.VELOCITY_LIMIT_EXCEEDED;
         }
-        
-        if (amount > balance) {
-            return false;
+
+        if (amount > balance - p.minBalanceCents) {
+            return ResultCode.INSUFFICIENT_BALANCE;
+        }
+
+        if (amount > Long.MAX_VALUE - target.balance) {
+            // Target balance would overflow; reject before any money moves
+            return ResultCode.BALANCE_OVERFLOW;
         }
 
-        // Perform withdrawal
+        // Perform withdrawal and credit the target (already checked above)
+        Journal j = journal;
+        if (j != null) {
+            journalLsn = j.appendTransfer(this, target, amount);
+            target.journalLsn = journalLsn;
+        }
+        beforeAuditedTransfer(target);
+        // Both stamps odd at once, so a multi-account read sees both sides or neither
+        beginWrite();
+        target.beginWrite();
         balance -= amount;
+        target.balance += amount;
+        endWrite();
+        target.endWrite();
+        if (v != null) {
+            p.addVelocity(v, amount);
+        }
+        recordTransfer(target, amount);
+        return ResultCode.OK;
+    }
+
+    // Counters for the velocity windows of p; starts empty after a policy change
+    private long[] velocityState(AccountPolicy p) {
+        if (velocityPolicy != p) {
+            velocity = new long[p.velocityStateLength];
+            velocityPolicy = p;
+        }
+        return velocity;
+    }
+
+    private void recordTransfer(BankAccount target, long amount) {
+        if (history != null || target.history != null) {
+            recordTransfer(target, amount, clock.currentTimeMillis());
+        }
+    }
+
+    private void recordTransfer(BankAccount target, long amount, long now) {
+        TransactionHistory out = history;
+        TransactionHistory in = target.history;
+        if (out != null) {
+            out.record(Transaction.Type.TRANSFER_OUT, amount, target.accountNumber, now);
+        }
+        if (in != null) {
+            in.record(Transaction.Type.TRANSFER_IN, amount, accountNumber, now);
+        }
+    }
+
+    /**
+     * Body of {@link Bank#tryTransferAtomic} once the caller holds the locks
+     * of {@code accounts[0..count)}, which are distinct and include both
+     * sides of every leg. Leg {@code i} moves {@code amounts[i]} from
+     * {@code accounts[fromIndexes[i]]} to {@code accounts[toIndexes[i]]},
+     * two different accounts.
+     *
+     * Every leg is first checked in order exactly as {@link #transferLocked}
+     * would check it, but against the balances and velocity counters the
+     * earlier legs would leave; nothing changes until all legs pass. Then all
+     * legs are journaled as one record of {@code journalBytes} (see
+     * {@link Journal#multiTransferBytes}) and applied under one checkpoint epoch.
+     */
+    static AtomicTransferResult transferAllLocked(BankAccount[] accounts, int count, int[] fromIndexes,
+                                                  int[] toIndexes, long[] amounts, int journalBytes) {
+        long[] balances = new long[count];
+        long[] outgoing = new long[count];
+        for (int i = 0; i < count; i++) {
+            balances[i] = accounts[i].balance;
+        }
+        // One clock read for the whole transfer: all legs happen at the same time
+        long now = accounts[0].clock.currentTimeMillis();
+
+        for (int leg = 0; leg < amounts.length; leg++) {
+            int from = fromIndexes[leg];
+            int to = toIndexes[leg];
+            long amount = amounts[leg];
+            ResultCode result = accounts[from].checkLeg(accounts[to], amount, balances[from], outgoing[from],
+                    balances[to], now);
+            if (result != ResultCode.OK) {
+                return new AtomicTransferResult(result, leg);
+            }
+            balances[from] -= amount;
+            balances[to] += amount;
+            outgoing[from] += amount;
+        }
+
+        // Every leg passed: journal them as one record, then apply them all with
+        // one epoch read, as in beforeAuditedTransfer
+        Journal j = accounts[0].journal;
+        if (j != null) {
+            long lsn = j.appendMultiTransfer(accounts, count, fromIndexes, toIndexes, amounts, journalBytes);
+            for (int i = 0; i < count; i++) {
+                accounts[i].journalLsn = lsn;
+            }
+        }
+        AtomicLong epochs = accounts[0].auditEpochs;
+        long epoch = epochs != null ? epochs.get() : 0;
+        for (int i = 0; i < count; i++) {
+            BankAccount account = accounts[i];
+            AtomicLong accountEpochs = account.auditEpochs;
+            if (accountEpochs != null) {
+                account.captureAuditState(accountEpochs == epochs ? epoch : accountEpochs.get());
+            }
+            account.beginWrite();
+        }
+        for (int i = 0; i < count; i++) {
+            BankAccount account = accounts[i];
+            account.balance = balances[i];
+            AccountPolicy p = account.policy;
+            if (outgoing[i] > 0 && p.velocityWindows != 0) {
+                p.addVelocity(account.velocityState(p), outgoing[i]);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            accounts[i].endWrite();
+        }
+        for (int leg = 0; leg < amounts.length; leg++) {
+            accounts[fromIndexes[leg]].recordTransfer(accounts[toIndexes[leg]], amounts[leg], now);
+        }
+        return AtomicTransferResult.OK;
+    }
 
-        target.deposit(amount);
-        return true;
+    // Checks of transferLocked for one leg, given what the earlier legs of the
+    // same atomic transfer would leave: this account's balance and outgoing
+    // total, and the target's balance
+    private ResultCode checkLeg(BankAccount target, long amount, long balanceBefore, long outgoingBefore,
+                                long targetBalanceBefore, long nowMillis) {
+        if (target.status != AccountStatus.ACTIVE) {
+            return ResultCode.NOT_ACTIVE;
+        }
+        if (amount <= 0) {
+            return ResultCode.NON_POSITIVE_AMOUNT;
+        }
+        AccountPolicy p = policy;
+        if (amount > p.maxTransferCents) {
+            return ResultCode.TRANSACTION_LIMIT_EXCEEDED;
+        }
+        if (p.velocityWindows != 0 && !p.withinVelocity(velocityState(p), nowMillis, outgoingBefore + amount)) {
+            return ResultCode.VELOCITY_LIMIT_EXCEEDED;
+        }
+        if (amount > balanceBefore - p.minBalanceCents) {
+            return ResultCode.INSUFFICIENT_BALANCE;
+        }
+        if (amount > Long.MAX_VALUE - targetBalanceBefore) {
+            return ResultCode.BALANCE_OVERFLOW;
+        }
+        return ResultCode.OK;
+    }
+
+    // --------- Journal support --------- //
+
+    /**
+     * Attaches this account to a bank's journal: records its current state as
+     * an OPEN record, then journals every later mutation. Package-private;
+     * called by {@link Bank#addAccount} before the account is published.
+     */
+    void attachJournal(Journal journal) {
+        lock.lock();
+        try {
+            journalLsn = journal.appendOpen(this);
+            this.journal = journal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Resumes journaling for an account rebuilt from the journal itself, so no
+     * OPEN record is written.
+     */
+    void resumeJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Journal position of the last record applied to this account. Read under
+     * the lock by snapshots; replay skips records at or before it.
+     */
+    long getJournalLsn() {
+        return journalLsn;
+    }
+
+    void setJournalLsn(long journalLsn) {
+        this.journalLsn = journalLsn;
+    }
+
+    /**
+     * UTF-8 account number, encoded once for journal records.
+     */
+    byte[] accountNumberBytes() {
+        byte[] bytes = accountNumberBytes;
+        if (bytes == null) {
+            bytes = accountNumber.getBytes(StandardCharsets.UTF_8);
+            accountNumberBytes = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Recovery-only mutators: re-apply an already validated change without
+     * checks or journaling, while rebuilding a bank from its journal or
+     * following a leader's journal (see {@link ReplicationFollower}). They take the
+     * lock so that a follower's readers see whole changes.
+     */
+    void applyRecovered(long balanceDelta) {
+        lock.lock();
+        try {
+            beginWrite();
+            balance += balanceDelta;
+            endWrite();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-applies a transfer to both sides at once, so that a multi-account
+     * read never sees only one of them; a null side is skipped.
+     */
+    static void applyRecoveredTransfer(BankAccount from, BankAccount to, long amount) {
+        if (from == null || to == null || from == to) {
+            if (from != null) {
+                from.applyRecovered(-amount);
+            }
+            if (to != null) {
+                to.applyRecovered(amount);
+            }
+            return;
+        }
+        lockBoth(from, to);
+        try {
+            from.beginWrite();
+            to.beginWrite();
+            from.balance -= amount;
+            to.balance += amount;
+            from.endWrite();
+            to.endWrite();
+        } finally {
+            unlockBoth(from, to);
+        }
+    }
+
+    /**
+     * Re-applies the net balance changes of a multi-account transfer as one
+     * change; null entries are skipped.
+     */
+    static void applyRecoveredDeltas(BankAccount[] accounts, long[] deltas) {
+        BankAccount[] ordered = new BankAccount[accounts.length];
+        int count = 0;
+        for (BankAccount account : accounts) {
+            if (account != null) {
+                ordered[count++] = account;
+            }
+        }
+        Arrays.sort(ordered, 0, count, LOCK_ORDER);
+        int locked = 0;
+        try {
+            for (; locked < count; locked++) {
+                ordered[locked].lock.lock();
+            }
+            for (int i = 0; i < count; i++) {
+                ordered[i].beginWrite();
+            }
+            for (int i = 0; i < accounts.length; i++) {
+                if (accounts[i] != null) {
+                    accounts[i].balance += deltas[i];
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                ordered[i].endWrite();
+            }
+        } finally {
+            while (locked > 0) {
+                ordered[--locked].lock.unlock();
+            }
+        }
+    }
+
+    void applyRecoveredWithdrawal(long amount, long day) {
+        lock.lock();
+        try {
+            beginWrite();
+            balance -= amount;
+            dailyWithdrawnAmount = (day == withdrawalDay ? dailyWithdrawnAmount : 0) + amount;
+            withdrawalDay = day;
+            endWrite();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void applyRecoveredLimit(long dailyWithdrawalLimit) {
+        lock.lock();
+        try {
+            beginWrite();
+            this.dailyWithdrawalLimit = dailyWithdrawalLimit;
+            endWrite();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void applyRecoveredStatus(AccountStatus status) {
+        lock.lock();
+        try {
+            beginWrite();
+            this.status = status;
+            endWrite();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void applyRecoveredResetDaily() {
+        lock.lock();
+        try {
+            beginWrite();
+            dailyWithdrawnAmount = 0;
+            endWrite();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Treats the recovered balance as the opening balance: replay cannot tell
+     * deposits from incoming transfers, so external flows restart here.
+     */
+    void applyRecoveredOpening() {
+        externalNet = balance;
+    }
+
+    void applyRecoveredState(long balance, long dailyWithdrawalLimit, long dailyWithdrawnAmount, long withdrawalDay,
+                             AccountStatus status) {
+        this.balance = balance;
+        this.externalNet = balance;
+        this.dailyWithdrawalLimit = dailyWithdrawalLimit;
+        this.dailyWithdrawnAmount = dailyWithdrawnAmount;
+        this.withdrawalDay = withdrawalDay;
+        this.status = status;
+    }
+
+    /**
+     * Acquires the locks of two distinct accounts in a canonical order
+     * (account number, then identity hash) so that concurrent transfers in
+     * opposite directions cannot deadlock.
+     */
+    static void lockBoth(BankAccount a, BankAccount b) {
+        int order = compareLockOrder(a, b);
+        if (order < 0) {
+            a.lock.lock();
+            b.lock.lock();
+        } else if (order > 0) {
+            b.lock.lock();
+            a.lock.lock();
+        } else {
+            synchronized (TIE_LOCK) {
+                a.lock.lock();
+                b.lock.lock();
+            }
+        }
+    }
+
+    static void unlockBoth(BankAccount a, BankAccount b) {
+        b.lock.unlock();
+        a.lock.unlock();
+    }
+
+    /**
+     * Global lock order used by every operation that locks more than one account.
+     */
+    static int compareLockOrder(BankAccount a, BankAccount b) {
+        int order = a.accountNumber.compareTo(b.accountNumber);
+        if (order != 0) {
+            return order;
+        }
+        return Integer.compare(System.identityHashCode(a), System.identityHashCode(b));
     }
 
     @Override
@@ -209,9 +1280,9 @@ public class BankAccount {
         return "BankAccount{" +
                 "accountNumber='" + accountNumber + '\'' +
                 ", ownerName='" + ownerName + '\'' +
-                ", balance=" + balance +
-                ", dailyWithdrawalLimit=" + dailyWithdrawalLimit +
-                ", dailyWithdrawnAmount=" + dailyWithdrawnAmount +
+                ", balance=" + Money.toAmount(balance) +
+                ", dailyWithdrawalLimit=" + Money.toAmount(dailyWithdrawalLimit) +
+                ", dailyWithdrawnAmount=" + Money.toAmount(dailyWithdrawnAmount) +
                 ", status=" + status +
                 '}';
     }
@@ -0,0 +1,93 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Source of the current day for daily withdrawal limits.
+ *
+ * Accounts remember the day of their last withdrawal and treat the withdrawn
+ * total as zero once {@link #epochDay()} moves past it, so a new day needs no
+ * sweep over the accounts. Tests can supply any function, e.g.
+ * {@code BankClock clock = day::get} over an {@code AtomicLong}.
+ */
+@FunctionalInterface
+public interface BankClock {
+
+    /**
+     * Current day as a count of days since 1970-01-01.
+     */
+    long epochDay();
+
+    /**
+     * Current time in milliseconds since 1970-01-01T00:00Z, used to timestamp
+     * transaction history.
+     */
+    default long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Wall clock in the system default time zone.
+     */
+    static BankClock systemDefault() {
+        return WallClock.DEFAULT;
+    }
+
+    /**
+     * Wall clock in {@code zone}: days start at local midnight.
+     */
+    static BankClock system(ZoneId zone) {
+        return new WallClock(zone);
+    }
+
+    /**
+     * Wall-clock implementation. Caches the bounds of the current day so the
+     * common call is one {@code currentTimeMillis} and two compares; the
+     * calendar is consulted only when the time leaves the cached day.
+     */
+    final class WallClock implements BankClock {
+
+        private static final WallClock DEFAULT = new WallClock(ZoneId.systemDefault());
+
+        private final ZoneId zone;
+        private volatile Day day = new Day(0, Long.MAX_VALUE, Long.MIN_VALUE);
+
+        private WallClock(ZoneId zone) {
+            if (zone == null) {
+                throw new IllegalArgumentException("Zone must not be null.");
+            }
+            this.zone = zone;
+        }
+
+        @Override
+        public long epochDay() {
+            long now = System.currentTimeMillis();
+            Day current = day;
+            if (now >= current.startMillis && now < current.endMillis) {
+                return current.epochDay;
+            }
+            LocalDate date = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+            current = new Day(date.toEpochDay(), date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+            day = current;
+            return current.epochDay;
+        }
+
+        @Override
+        public String toString() {
+            return "BankClock.WallClock[" + zone + "]";
+        }
+
+        private static final class Day {
+            final long epochDay;
+            final long startMillis; // inclusive
+            final long endMillis;   // exclusive
+
+            Day(long epochDay, long startMillis, long endMillis) {
+                this.epochDay = epochDay;
+                this.startMillis = startMillis;
+                this.endMillis = endMillis;
+            }
+        }
+    }
+}
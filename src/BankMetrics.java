@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the operations of a {@link Bank}.
+ *
+ * Every operation is counted once per {@link ResultCode}, so rejections are
+ * broken down by the check that failed, and its latency goes into a
+ * {@link LatencyHistogram} for that operation. Counters are
+ * {@link LongAdder}s and histograms are striped, so recording from many
+ * threads adds no shared write contention.
+ *
+ * Enable with {@link Bank#enableMetrics()}. Read with {@link #snapshot()} or
+ * dump in the Prometheus text format with {@link #writePrometheus(Path)}.
+ */
+public final class BankMetrics {
+
+    /** Recorded operations. */
+    public enum Operation {
+        DEPOSIT, WITHDRAW, TRANSFER, CHANGE_STATUS, SET_DAILY_LIMIT
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final ResultCode[] RESULTS = ResultCode.values();
+
+    private final LongAdder[] counts = new LongAdder[OPERATIONS.length * RESULTS.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+
+    public BankMetrics() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records one operation with its outcome and latency in nanoseconds.
+     */
+    public void record(Operation operation, ResultCode result, long nanos) {
+        counts[operation.ordinal() * RESULTS.length + result.ordinal()].increment();
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * Current values. Taken without stopping writers, so operations recorded
+     * meanwhile may appear in the counts but not yet in the histograms.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            copy[i] = counts[i].sum();
+        }
+        LatencyHistogram.Snapshot[] histograms = new LatencyHistogram.Snapshot[latencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            histograms[i] = latencies[i].snapshot();
+        }
+        return new Snapshot(copy, histograms);
+    }
+
+    /**
+     * Writes a snapshot in the Prometheus text format to {@code file}. The file
+     * is replaced atomically, so a scraper never reads a partial dump.
+     */
+    public void writePrometheus(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            snapshot().writePrometheus(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Immutable copy of the metrics.
+     */
+    public static final class Snapshot {
+
+        // Quantiles exported for each latency summary
+        private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+        private final long[] counts;
+        private final LatencyHistogram.Snapshot[] latencies;
+
+        Snapshot(long[] counts, LatencyHistogram.Snapshot[] latencies) {
+            this.counts = counts;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Number of {@code operation}s that ended with {@code result}.
+         */
+        public long count(Operation operation, ResultCode result) {
+            return counts[operation.ordinal() * RESULTS.length + result.ordinal()];
+        }
+
+        /**
+         * Number of {@code operation}s, whatever their result.
+         */
+        public long total(Operation operation) {
+            long total = 0;
+            for (ResultCode result : RESULTS) {
+                total += count(operation, result);
+            }
+            return total;
+        }
+
+        /**
+         * Latencies of {@code operation} in nanoseconds.
+         */
+        public LatencyHistogram.Snapshot latency(Operation operation) {
+            return latencies[operation.ordinal()];
+        }
+
+        /**
+         * Writes this snapshot in the Prometheus text exposition format: a
+         * {@code bank_operations_total} counter per operation and result, and a
+         * {@code bank_operation_latency_seconds} summary per operation. Results
+         * that never occurred are left out, except OK.
+         */
+        public void writePrometheus(Appendable out) throws IOException {
+            out.append("# HELP bank_operations_total Bank operations by result.\n");
+            out.append("# TYPE bank_operations_total counter\n");
+            for (Operation operation : OPERATIONS) {
+                for (ResultCode result : RESULTS) {
+                    long count = count(operation, result);
+                    if (count > 0 || result == ResultCode.OK) {
+                        out.append("bank_operations_total{operation=\"").append(label(operation))
+                                .append("\",result=\"").append(label(result)).append("\"} ")
+                                .append(Long.toString(count)).append('\n');
+                    }
+                }
+            }
+
+            out.append("# HELP bank_operation_latency_seconds Bank operation latency.\n");
+            out.append("# TYPE bank_operation_latency_seconds summary\n");
+            for (Operation operation : OPERATIONS) {
+                LatencyHistogram.Snapshot latency = latency(operation);
+                String name = label(operation);
+                for (double quantile : QUANTILES) {
+                    out.append("bank_operation_latency_seconds{operation=\"").append(name)
+                            .append("\",quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                            .append(seconds(latency.valueAtPercentile(quantile * 100))).append('\n');
+                }
+                out.append("bank_operation_latency_seconds_sum{operation=\"").append(name).append("\"} ")
+                        .append(seconds(latency.sum())).append('\n');
+                out.append("bank_operation_latency_seconds_count{operation=\"").append(name).append("\"} ")
+                        .append(Long.toString(latency.count())).append('\n');
+            }
+        }
+
+        /**
+         * This snapshot in the Prometheus text format.
+         */
+        public String toPrometheus() {
+            StringBuilder out = new StringBuilder();
+            try {
+                writePrometheus(out);
+            } catch (IOException e) {
+                // StringBuilder does not throw
+                throw new UncheckedIOException(e);
+            }
+            return out.toString();
+        }
+
+        private static String label(Enum<?> value) {
+            return value.name().toLowerCase(Locale.ROOT);
+        }
+
+        private static String seconds(long nanos) {
+            return Double.toString(nanos / 1e9);
+        }
+    }
+}
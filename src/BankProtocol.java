@@ -0,0 +1,137 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary request/response format spoken by {@link BankServer}.
+ *
+ * Every message is a frame (big-endian):
+ * <pre>
+ *   int    length of the rest of the frame
+ *   byte   opcode (request) or status (response)
+ *   ...    payload; strings are a short length followed by UTF-8 bytes,
+ *          amounts are long cents
+ * </pre>
+ *
+ * Requests and their payloads:
+ * <pre>
+ *   TRANSFER         from, to, long amount
+ *   FIND_ACCOUNT     accountNumber
+ *   CHANGE_STATUS    accountNumber, byte {@link AccountStatus#code()}
+ *   SET_DAILY_LIMIT  accountNumber, long limit
+ * </pre>
+ *
+ * A response carries {@link #STATUS_OK}, {@link #STATUS_REJECTED} (the bank
+ * returned false), {@link #STATUS_NOT_FOUND}, {@link #STATUS_BAD_REQUEST} or
+ * {@link #STATUS_ERROR} (the bank failed, e.g. on journal I/O).
+ * A FIND_ACCOUNT response with STATUS_OK is followed by owner name, long
+ * balance, long daily limit, long withdrawn today and byte status.
+ *
+ * A connection handles one request at a time; responses come back in request
+ * order.
+ */
+public final class BankProtocol {
+
+    public static final byte TRANSFER = 1;
+    public static final byte FIND_ACCOUNT = 2;
+    public static final byte CHANGE_STATUS = 3;
+    public static final byte SET_DAILY_LIMIT = 4;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_REJECTED = 1;
+    public static final byte STATUS_NOT_FOUND = 2;
+    public static final byte STATUS_BAD_REQUEST = 3;
+    public static final byte STATUS_ERROR = 4;
+
+    /** Frame header: the int length. */
+    public static final int LENGTH_BYTES = 4;
+
+    /**
+     * Largest accepted frame body; bigger frames close the connection. Fits
+     * the largest legal message, a TRANSFER between two account numbers of
+     * {@link BankAccount#MAX_TEXT_BYTES}, and so also a FIND_ACCOUNT
+     * response with the longest owner name.
+     */
+    public static final int MAX_FRAME_BYTES = 1 + 2 * (2 + BankAccount.MAX_TEXT_BYTES) + 8;
+
+    private BankProtocol() {
+    }
+
+    // --------- Requests --------- //
+
+    public static void putTransfer(ByteBuffer buf, String fromAccountNumber, String toAccountNumber, long amount) {
+        byte[] from = utf8(fromAccountNumber);
+        byte[] to = utf8(toAccountNumber);
+        begin(buf, TRANSFER, 2 + from.length + 2 + to.length + 8);
+        putString(buf, from);
+        putString(buf, to);
+        buf.putLong(amount);
+    }
+
+    public static void putFindAccount(ByteBuffer buf, String accountNumber) {
+        byte[] number = utf8(accountNumber);
+        begin(buf, FIND_ACCOUNT, 2 + number.length);
+        putString(buf, number);
+    }
+
+    public static void putChangeStatus(ByteBuffer buf, String accountNumber, AccountStatus status) {
+        byte[] number = utf8(accountNumber);
+        begin(buf, CHANGE_STATUS, 2 + number.length + 1);
+        putString(buf, number);
+        buf.put(status.code());
+    }
+
+    public static void putSetDailyLimit(ByteBuffer buf, String accountNumber, long limit) {
+        byte[] number = utf8(accountNumber);
+        begin(buf, SET_DAILY_LIMIT, 2 + number.length + 8);
+        putString(buf, number);
+        buf.putLong(limit);
+    }
+
+    // --------- Frames --------- //
+
+    /**
+     * Writes a frame header: the length of {@code bodyBytes} plus the
+     * opcode/status byte, then that byte.
+     */
+    static void begin(ByteBuffer buf, byte opcodeOrStatus, int bodyBytes) {
+        buf.putInt(1 + bodyBytes);
+        buf.put(opcodeOrStatus);
+    }
+
+    /**
+     * Length of the complete frame at the start of {@code buf} (position to
+     * limit), or -1 if more bytes are needed.
+     *
+     * @throws IllegalArgumentException if the frame is empty or larger than {@link #MAX_FRAME_BYTES}
+     */
+    public static int frameLength(ByteBuffer buf) {
+        if (buf.remaining() < LENGTH_BYTES) {
+            return -1;
+        }
+        int length = buf.getInt(buf.position());
+        if (length <= 0 || length > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Bad frame length: " + length);
+        }
+        return buf.remaining() < LENGTH_BYTES + length ? -1 : LENGTH_BYTES + length;
+    }
+
+    static void putString(ByteBuffer buf, byte[] bytes) {
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+    }
+
+    public static String getString(ByteBuffer buf) {
+        int length = buf.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for the protocol.");
+        }
+        return bytes;
+    }
+}
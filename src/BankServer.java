@@ -0,0 +1,445 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TCP front end for a {@link Bank}, speaking {@link BankProtocol} on the
+ * loopback interface.
+ *
+ * Connections are multiplexed over a few selector threads (one per CPU), so
+ * idle connections cost a socket and a small buffer, not a thread. Each
+ * complete request frame is handed to the request executor, which runs the
+ * Bank call (it may block, e.g. waiting for a journal fsync) and passes the
+ * response back to the connection's selector thread for writing.
+ *
+ * The default executor starts a virtual thread per request when the runtime
+ * has them (Java 21+) and otherwise uses a fixed pool of platform threads.
+ */
+public class BankServer implements Closeable {
+
+    // Fallback request threads before Java 21; requests only block on journal fsyncs
+    private static final int FALLBACK_THREADS = Math.max(64, 8 * Runtime.getRuntime().availableProcessors());
+
+    private static final int INITIAL_BUFFER_BYTES = 512;
+
+    private final Bank bank;
+    private final ServerSocketChannel server;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final IoLoop[] loops;
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    private BankServer(Bank bank, ServerSocketChannel server, ExecutorService executor, boolean ownsExecutor)
+            throws IOException {
+        this.bank = bank;
+        this.server = server;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.loops = new IoLoop[Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i);
+        }
+        this.acceptor = daemon(this::acceptLoop, "bank-server-acceptor");
+        for (IoLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptor.start();
+    }
+
+    /**
+     * Starts serving {@code bank} on {@code port} of the loopback interface
+     * (0 picks a free port) with the default request executor.
+     */
+    public static BankServer start(Bank bank, int port) throws IOException {
+        return start(bank, port, newRequestExecutor(), true);
+    }
+
+    /**
+     * Same as {@link #start(Bank, int)} with a caller-supplied request
+     * executor, which the caller shuts down after closing the server.
+     */
+    public static BankServer start(Bank bank, int port, ExecutorService executor) throws IOException {
+        return start(bank, port, executor, false);
+    }
+
+    private static BankServer start(Bank bank, int port, ExecutorService executor, boolean ownsExecutor)
+            throws IOException {
+        if (bank == null || executor == null) {
+            throw new IllegalArgumentException("Bank and executor must not be null.");
+        }
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+            return new BankServer(bank, server, executor, ownsExecutor);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Executor running one task per request: virtual threads when available,
+     * otherwise a fixed pool of daemon threads.
+     */
+    public static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(task, "bank-server-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, factory);
+        }
+    }
+
+    /**
+     * Port the server listens on.
+     */
+    public int port() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("Server is closed.", e);
+        }
+    }
+
+    /**
+     * Stops accepting, closes every connection and waits for the selector
+     * threads to exit. Requests still running finish but their responses are
+     * dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        server.close();
+        for (IoLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            acceptor.join();
+            for (IoLoop loop : loops) {
+                loop.thread.join();
+            }
+            if (ownsExecutor) {
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --------- Request handling --------- //
+
+    /**
+     * Runs one request against the bank and returns the response frame, ready
+     * to be written.
+     *
+     * @param frame request frame without its length prefix
+     */
+    ByteBuffer handle(ByteBuffer frame) {
+        try {
+            byte opcode = frame.get();
+            switch (opcode) {
+                case BankProtocol.TRANSFER: {
+                    String from = BankProtocol.getString(frame);
+                    String to = BankProtocol.getString(frame);
+                    long amount = frame.getLong();
+                    return status(bank.transferCents(from, to, amount));
+                }
+                case BankProtocol.FIND_ACCOUNT:
+                    return account(bank.findAccount(BankProtocol.getString(frame)));
+                case BankProtocol.CHANGE_STATUS: {
+                    String number = BankProtocol.getString(frame);
+                    AccountStatus status = AccountStatus.fromCode(frame.get());
+                    return status(bank.changeStatus(number, status));
+                }
+                case BankProtocol.SET_DAILY_LIMIT: {
+                    String number = BankProtocol.getString(frame);
+                    return status(bank.setDailyLimitCents(number, frame.getLong()));
+                }
+                default:
+                    return response(BankProtocol.STATUS_BAD_REQUEST);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // Truncated payload or unknown status code
+            return response(BankProtocol.STATUS_BAD_REQUEST);
+        } catch (RuntimeException e) {
+            // E.g. the journal failed; the client must not wait forever
+            return response(BankProtocol.STATUS_ERROR);
+        }
+    }
+
+    private static ByteBuffer status(boolean applied) {
+        return response(applied ? BankProtocol.STATUS_OK : BankProtocol.STATUS_REJECTED);
+    }
+
+    private static ByteBuffer response(byte status) {
+        ByteBuffer buf = ByteBuffer.allocate(BankProtocol.LENGTH_BYTES + 1);
+        BankProtocol.begin(buf, status, 0);
+        return buf.flip();
+    }
+
+    private static ByteBuffer account(BankAccount account) {
+        if (account == null) {
+            return response(BankProtocol.STATUS_NOT_FOUND);
+        }
+        // All fields as of one moment, without waiting for the account's lock
+        AccountView view = account.readView();
+        byte[] owner = account.getOwnerName().getBytes(StandardCharsets.UTF_8);
+        int bodyBytes = 2 + owner.length + 8 * 3 + 1;
+        ByteBuffer buf = ByteBuffer.allocate(BankProtocol.LENGTH_BYTES + 1 + bodyBytes);
+        BankProtocol.begin(buf, BankProtocol.STATUS_OK, bodyBytes);
+        BankProtocol.putString(buf, owner);
+        buf.putLong(view.balanceCents());
+        buf.putLong(view.dailyWithdrawalLimitCents());
+        buf.putLong(view.dailyWithdrawnAmountCents());
+        buf.put(view.status().code());
+        return buf.flip();
+    }
+
+    // --------- Networking --------- //
+
+    private void acceptLoop() {
+        int next = 0;
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                // Closed by close(); anything else also ends the server's life
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                continue;
+            }
+            IoLoop loop = loops[next];
+            next = (next + 1) % loops.length;
+            loop.accepted.add(channel);
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * One open connection; all fields are used only by its selector thread,
+     * except {@code out}, which the request task sets before handing the
+     * connection back through {@link IoLoop#responded}.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_BYTES); // Write mode
+        ByteBuffer out; // Response being written, null when idle
+        boolean busy; // A request is running or its response is being written
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    private final class IoLoop implements Runnable {
+
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        final Queue<Connection> responded = new ConcurrentLinkedQueue<>();
+
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = daemon(this, "bank-server-io-" + index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    registerAccepted();
+                    writeResponses();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        Connection connection = (Connection) key.attachment();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isWritable() && connection.out != null) {
+                            write(connection);
+                        } else if (key.isReadable()) {
+                            read(connection);
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                // Selector failure: fall through and drop this loop's connections
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key.channel());
+                }
+                for (SocketChannel channel; (channel = accepted.poll()) != null; ) {
+                    closeQuietly(channel);
+                }
+                closeQuietly(selector);
+            }
+        }
+
+        private void registerAccepted() {
+            for (SocketChannel channel; (channel = accepted.poll()) != null; ) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(channel, key));
+                } catch (ClosedChannelException e) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        private void writeResponses() {
+            for (Connection connection; (connection = responded.poll()) != null; ) {
+                if (connection.key.isValid()) {
+                    write(connection);
+                }
+            }
+        }
+
+        private void read(Connection connection) {
+            try {
+                if (connection.channel.read(connection.in) < 0) {
+                    close(connection);
+                    return;
+                }
+            } catch (IOException e) {
+                close(connection);
+                return;
+            }
+            if (!connection.busy) {
+                dispatchNext(connection);
+            }
+        }
+
+        private void write(Connection connection) {
+            try {
+                connection.channel.write(connection.out);
+            } catch (IOException e) {
+                close(connection);
+                return;
+            }
+            if (connection.out.hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.out = null;
+            connection.busy = false;
+            // The client may already have sent its next request
+            dispatchNext(connection);
+        }
+
+        /**
+         * Hands the next complete request of {@code connection} to the
+         * executor, or goes back to reading if there is none yet. Reading is
+         * paused while a request runs, so responses keep request order.
+         */
+        private void dispatchNext(Connection connection) {
+            ByteBuffer in = connection.in;
+            in.flip();
+            int length;
+            try {
+                length = BankProtocol.frameLength(in);
+            } catch (IllegalArgumentException e) {
+                close(connection);
+                return;
+            }
+            if (length < 0) {
+                in.compact();
+                if (!in.hasRemaining()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+                    in.flip();
+                    connection.in = bigger.put(in);
+                }
+                connection.key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+
+            int start = in.position();
+            int limit = in.limit();
+            in.position(start + BankProtocol.LENGTH_BYTES).limit(start + length);
+            ByteBuffer frame = ByteBuffer.allocate(in.remaining()).put(in).flip();
+            in.limit(limit);
+            in.compact();
+
+            connection.key.interestOps(0);
+            connection.busy = true;
+            try {
+                executor.execute(() -> {
+                    connection.out = handle(frame);
+                    responded.add(connection);
+                    selector.wakeup();
+                });
+            } catch (RejectedExecutionException e) {
+                close(connection);
+            }
+        }
+
+        private void close(Connection connection) {
+            connection.key.cancel();
+            closeQuietly(connection.channel);
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing useful to do
+        }
+    }
+
+    /**
+     * Serves a bank on loopback until the process is stopped.
+     *
+     * Usage: java BankServer [port] [journalFile]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        Bank bank = args.length > 1 ? Bank.open(Path.of(args[1]), 2, 256 * 1024) : new Bank();
+        BankServer server = start(bank, port);
+        System.out.println("Bank server listening on " + server.server.getLocalAddress());
+        Thread.currentThread().join();
+    }
+}
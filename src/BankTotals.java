@@ -0,0 +1,179 @@
+/**
+ * Bank-wide totals from one {@link Bank#checkpoint()}, as of a single
+ * consistent cut of all accounts. Amounts are in cents.
+ *
+ * Reconciliation: transfers move money between accounts, so the total
+ * balance only changes through deposits and withdrawals. Every account
+ * tracks its external net flow (opening balance plus deposits minus
+ * withdrawals); in a consistent bank the two totals are equal
+ * ({@link #isBalanced()}), and between two checkpoints the balance change
+ * equals the external flow ({@link #reconcilesWith(BankTotals)}).
+ */
+public final class BankTotals {
+
+    private static final AccountStatus[] STATUSES = AccountStatus.values();
+
+    private final long epoch;
+    private final long epochDay;
+    private final long accounts;
+    private final long balanceCents;
+    private final long externalNetCents;
+    private final long withdrawnTodayCents;
+    private final long[] countsByStatus;
+
+    private BankTotals(Builder b) {
+        this.epoch = b.epoch;
+        this.epochDay = b.epochDay;
+        this.accounts = b.accounts;
+        this.balanceCents = b.balance;
+        this.externalNetCents = b.externalNet;
+        this.withdrawnTodayCents = b.withdrawnToday;
+        this.countsByStatus = b.countsByStatus;
+    }
+
+    /**
+     * Sequence number of the checkpoint; later checkpoints have larger ones.
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Day (see {@link BankClock#epochDay()}) on which the checkpoint started.
+     */
+    public long epochDay() {
+        return epochDay;
+    }
+
+    public long accounts() {
+        return accounts;
+    }
+
+    public long count(AccountStatus status) {
+        return countsByStatus[status.ordinal()];
+    }
+
+    public long totalBalanceCents() {
+        return balanceCents;
+    }
+
+    /**
+     * Sum over all accounts of opening balance plus deposits minus withdrawals.
+     */
+    public long externalNetCents() {
+        return externalNetCents;
+    }
+
+    /**
+     * Sum of the amounts withdrawn on {@link #epochDay()}.
+     */
+    public long totalWithdrawnTodayCents() {
+        return withdrawnTodayCents;
+    }
+
+    /**
+     * Total balance minus external net flow; zero when the books balance.
+     */
+    public long discrepancyCents() {
+        return balanceCents - externalNetCents;
+    }
+
+    public boolean isBalanced() {
+        return discrepancyCents() == 0;
+    }
+
+    /**
+     * Change of the total balance since {@code previous}.
+     */
+    public long balanceChangeSince(BankTotals previous) {
+        return balanceCents - previous.balanceCents;
+    }
+
+    /**
+     * Deposits minus withdrawals since {@code previous}, including opening
+     * balances of accounts added in between.
+     */
+    public long externalFlowSince(BankTotals previous) {
+        return externalNetCents - previous.externalNetCents;
+    }
+
+    /**
+     * True if the balance change since {@code previous} is fully explained by
+     * deposits, withdrawals and new accounts.
+     */
+    public boolean reconcilesWith(BankTotals previous) {
+        if (previous.epoch >= epoch) {
+            throw new IllegalArgumentException("Previous checkpoint must be older.");
+        }
+        return balanceChangeSince(previous) == externalFlowSince(previous);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("BankTotals{epoch=").append(epoch)
+                .append(", accounts=").append(accounts)
+                .append(", balance=").append(Money.toAmount(balanceCents))
+                .append(", externalNet=").append(Money.toAmount(externalNetCents))
+                .append(", withdrawnToday=").append(Money.toAmount(withdrawnTodayCents));
+        for (AccountStatus status : STATUSES) {
+            sb.append(", ").append(status).append('=').append(count(status));
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Accumulates the accounts of one part of the scan. Package-private; used
+     * by {@link Bank#checkpoint()}.
+     */
+    static final class Builder {
+
+        final long epoch;
+        final long epochDay;
+        long accounts;
+        long balance;
+        long externalNet;
+        long withdrawnToday;
+        final long[] countsByStatus = new long[STATUSES.length];
+
+        Builder(long epoch, long epochDay) {
+            this.epoch = epoch;
+            this.epochDay = epochDay;
+        }
+
+        void add(BankAccount account) {
+            long accountBalance;
+            long accountExternalNet;
+            long accountWithdrawn;
+            AccountStatus status;
+            account.getLock().lock();
+            try {
+                account.captureAuditState(epoch);
+                accountBalance = account.getAuditBalance();
+                accountExternalNet = account.getAuditExternalNet();
+                accountWithdrawn = account.getAuditWithdrawnCents(epochDay);
+                status = account.getAuditStatus();
+            } finally {
+                account.getLock().unlock();
+            }
+            accounts++;
+            balance = Math.addExact(balance, accountBalance);
+            externalNet = Math.addExact(externalNet, accountExternalNet);
+            withdrawnToday = Math.addExact(withdrawnToday, accountWithdrawn);
+            countsByStatus[status.ordinal()]++;
+        }
+
+        void combine(Builder other) {
+            accounts += other.accounts;
+            balance = Math.addExact(balance, other.balance);
+            externalNet = Math.addExact(externalNet, other.externalNet);
+            withdrawnToday = Math.addExact(withdrawnToday, other.withdrawnToday);
+            for (int i = 0; i < countsByStatus.length; i++) {
+                countsByStatus[i] += other.countsByStatus[i];
+            }
+        }
+
+        BankTotals build() {
+            return new BankTotals(this);
+        }
+    }
+}
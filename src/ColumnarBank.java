@@ -0,0 +1,521 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Alternative {@link Bank} storage engine for very large account counts.
+ *
+ * Instead of one {@link BankAccount} object per account, account state is
+ * kept in primitive columns indexed by a slot number: balances, limits,
+ * daily withdrawn amounts (cents) and the day of the last withdrawal in
+ * {@code long[]}, status in a
+ * {@code byte[]}, and account numbers and owner names in chunked
+ * {@code char[]} arenas. An open-addressing {@code int[]} table maps an
+ * account number to its slot. Per account this costs a few dozen bytes and
+ * no objects, so the garbage collector has almost nothing to trace.
+ *
+ * Operations take account numbers and follow the same rules as
+ * {@link Bank} and {@link BankAccount}. Mutations lock one of a fixed set of
+ * striped locks (two for a transfer, taken in stripe order); lookups are
+ * lock-free. The capacity is fixed when the bank is created.
+ *
+ * Daily withdrawal limits roll over lazily as in {@link BankAccount}: a
+ * withdrawn amount recorded on an earlier {@link BankClock} day counts as zero.
+ *
+ * As on {@link Bank}, every operation has a {@code try...} form returning
+ * the {@link ResultCode} of the check that rejected it.
+ */
+public class ColumnarBank {
+
+    private static final VarHandle TABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final int STRIPES = 4096;
+    private static final int ARENA_CHUNK_BITS = 20;
+    private static final int ARENA_CHUNK_CHARS = 1 << ARENA_CHUNK_BITS;
+
+    private static final byte ACTIVE = AccountStatus.ACTIVE.code();
+
+    private final int capacity;
+
+    // Columns, indexed by slot
+    private final long[] balance;
+    private final long[] dailyWithdrawalLimit;
+    private final long[] dailyWithdrawnAmount;
+    private final long[] withdrawalDay; // epoch day of the last withdrawal
+    private final byte[] status;
+    private final int[] numberHash;
+    private final long[] numberRef; // arena position of the account number
+    private final long[] ownerRef;  // arena position of the owner name
+
+    // Index: slot + 1 per entry, 0 = empty. Written with release, read with acquire.
+    private final int[] table;
+    private final int tableMask;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final BankClock clock;
+
+    // Guarded by "this" (inserts are serialized; lookups never lock)
+    private volatile char[][] arena = new char[16][];
+    private long arenaEnd;
+    private volatile int size;
+
+    /**
+     * Creates an empty bank able to hold {@code capacity} accounts, using the
+     * system clock for daily withdrawal limits.
+     */
+    public ColumnarBank(int capacity) {
+        this(capacity, BankClock.systemDefault());
+    }
+
+    /**
+     * @param capacity number of accounts the bank can hold
+     * @param clock    clock for daily withdrawal limits
+     */
+    public ColumnarBank(int capacity, BankClock clock) {
+        if (capacity <= 0 || capacity > (1 << 29)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^29.");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null.");
+        }
+        this.capacity = capacity;
+        this.clock = clock;
+        this.balance = new long[capacity];
+        this.dailyWithdrawalLimit = new long[capacity];
+        this.dailyWithdrawnAmount = new long[capacity];
+        this.withdrawalDay = new long[capacity];
+        this.status = new byte[capacity];
+        this.numberHash = new int[capacity];
+        this.numberRef = new long[capacity];
+        this.ownerRef = new long[capacity];
+        this.table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        this.tableMask = table.length - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // --------- Accounts --------- //
+
+    /**
+     * Adds an account. Same validation as the {@link BankAccount} constructor.
+     *
+     * @return false if the account number is already taken
+     * @throws IllegalStateException if the bank is full
+     */
+    public boolean addAccount(String accountNumber, String ownerName, double initialBalance,
+                              double dailyWithdrawalLimit) {
+        return addAccountCents(accountNumber, ownerName, Money.toCents(initialBalance),
+                Money.toCents(dailyWithdrawalLimit));
+    }
+
+    public synchronized boolean addAccountCents(String accountNumber, String ownerName, long initialBalance,
+                                                long dailyWithdrawalLimit) {
+        BankAccount.checkArguments(accountNumber, ownerName, initialBalance, dailyWithdrawalLimit);
+        String number = accountNumber.trim();
+        if (slotOf(number) >= 0) {
+            // Duplicate account number not allowed
+            return false;
+        }
+        if (size == capacity) {
+            throw new IllegalStateException("Bank is full (capacity " + capacity + ").");
+        }
+
+        int slot = size;
+        int hash = number.hashCode();
+        balance[slot] = initialBalance;
+        this.dailyWithdrawalLimit[slot] = dailyWithdrawalLimit;
+        dailyWithdrawnAmount[slot] = 0;
+        withdrawalDay[slot] = BankAccount.NO_WITHDRAWAL_DAY;
+        status[slot] = ACTIVE;
+        numberHash[slot] = hash;
+        numberRef[slot] = store(number);
+        ownerRef[slot] = store(ownerName.trim());
+
+        int i = mix(hash) & tableMask;
+        while ((int) TABLE.getAcquire(table, i) != 0) {
+            i = (i + 1) & tableMask;
+        }
+        // Publishes the column values written above to lock-free readers
+        TABLE.setRelease(table, i, slot + 1);
+        size = slot + 1;
+        return true;
+    }
+
+    public boolean containsAccount(String accountNumber) {
+        return accountNumber != null && slotOf(accountNumber) >= 0;
+    }
+
+    public String getOwnerName(String accountNumber) {
+        int slot = requireSlot(accountNumber);
+        return load(ownerRef[slot]);
+    }
+
+    public long getBalanceCents(String accountNumber) {
+        int slot = requireSlot(accountNumber);
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            return balance[slot];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getBalance(String accountNumber) {
+        return Money.toAmount(getBalanceCents(accountNumber));
+    }
+
+    public long getDailyWithdrawalLimitCents(String accountNumber) {
+        int slot = requireSlot(accountNumber);
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            return dailyWithdrawalLimit[slot];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Amount withdrawn today; 0 if the last withdrawal was on an earlier day.
+     */
+    public long getDailyWithdrawnAmountCents(String accountNumber) {
+        int slot = requireSlot(accountNumber);
+        long today = clock.epochDay();
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            return withdrawalDay[slot] == today ? dailyWithdrawnAmount[slot] : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public AccountStatus getStatus(String accountNumber) {
+        int slot = requireSlot(accountNumber);
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            return AccountStatus.fromCode(status[slot]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --------- Core Operations --------- //
+
+    public boolean deposit(String accountNumber, double amount) {
+        return depositCents(accountNumber, Money.toCents(amount));
+    }
+
+    public boolean depositCents(String accountNumber, long amount) {
+        return tryDepositCents(accountNumber, amount) == ResultCode.OK;
+    }
+
+    public ResultCode tryDeposit(String accountNumber, double amount) {
+        return tryDepositCents(accountNumber, Money.toCents(amount));
+    }
+
+    /**
+     * Same rules as {@link BankAccount#tryDepositCents}, plus UNKNOWN_ACCOUNT.
+     */
+    public ResultCode tryDepositCents(String accountNumber, long amount) {
+        int slot = slotOf(accountNumber);
+        if (slot < 0) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            if (status[slot] != ACTIVE) {
+                return ResultCode.NOT_ACTIVE;
+            }
+            if (amount <= 0) {
+                return ResultCode.NON_POSITIVE_AMOUNT;
+            }
+            if (amount > Long.MAX_VALUE - balance[slot]) {
+                return ResultCode.BALANCE_OVERFLOW;
+            }
+            balance[slot] += amount;
+            return ResultCode.OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean withdraw(String accountNumber, double amount) {
+        return withdrawCents(accountNumber, Money.toCents(amount));
+    }
+
+    public boolean withdrawCents(String accountNumber, long amount) {
+        return tryWithdrawCents(accountNumber, amount) == ResultCode.OK;
+    }
+
+    public ResultCode tryWithdraw(String accountNumber, double amount) {
+        return tryWithdrawCents(accountNumber, Money.toCents(amount));
+    }
+
+    /**
+     * Same rules as {@link BankAccount#tryWithdrawCents}, plus UNKNOWN_ACCOUNT.
+     */
+    public ResultCode tryWithdrawCents(String accountNumber, long amount) {
+        int slot = slotOf(accountNumber);
+        if (slot < 0) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        long today = clock.epochDay();
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            if (status[slot] != ACTIVE) {
+                return ResultCode.NOT_ACTIVE;
+            }
+            if (amount <= 0) {
+                return ResultCode.NON_POSITIVE_AMOUNT;
+            }
+            long withdrawn = withdrawalDay[slot] == today ? dailyWithdrawnAmount[slot] : 0;
+            if (amount > dailyWithdrawalLimit[slot] - withdrawn) {
+                return ResultCode.DAILY_LIMIT_EXCEEDED;
+            }
+            if (amount > balance[slot]) {
+                return ResultCode.INSUFFICIENT_BALANCE;
+            }
+            balance[slot] -= amount;
+            dailyWithdrawnAmount[slot] = withdrawn + amount;
+            withdrawalDay[slot] = today;
+            return ResultCode.OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return transferCents(fromAccountNumber, toAccountNumber, Money.toCents(amount));
+    }
+
+    public boolean transferCents(String fromAccountNumber, String toAccountNumber, long amount) {
+        return tryTransferCents(fromAccountNumber, toAccountNumber, amount) == ResultCode.OK;
+    }
+
+    public ResultCode tryTransfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return tryTransferCents(fromAccountNumber, toAccountNumber, Money.toCents(amount));
+    }
+
+    /**
+     * Same rules as {@link Bank#tryTransferCents}. Locks the two stripes in
+     * stripe order, or one stripe if both accounts share it.
+     */
+    public ResultCode tryTransferCents(String fromAccountNumber, String toAccountNumber, long amount) {
+        int from = slotOf(fromAccountNumber);
+        int to = slotOf(toAccountNumber);
+        if (from < 0 || to < 0) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        if (from == to) {
+            return ResultCode.SAME_ACCOUNT;
+        }
+
+        int first = Math.min(stripeIndex(from), stripeIndex(to));
+        int second = Math.max(stripeIndex(from), stripeIndex(to));
+        stripes[first].lock();
+        if (second != first) {
+            stripes[second].lock();
+        }
+        try {
+            if (status[to] != ACTIVE) {
+                return ResultCode.NOT_ACTIVE;
+            }
+            if (amount <= 0) {
+                return ResultCode.NON_POSITIVE_AMOUNT;
+            }
+            if (amount > balance[from]) {
+                return ResultCode.INSUFFICIENT_BALANCE;
+            }
+            if (amount > Long.MAX_VALUE - balance[to]) {
+                return ResultCode.BALANCE_OVERFLOW;
+            }
+            balance[from] -= amount;
+            balance[to] += amount;
+            return ResultCode.OK;
+        } finally {
+            if (second != first) {
+                stripes[second].unlock();
+            }
+            stripes[first].unlock();
+        }
+    }
+
+    public boolean changeStatus(String accountNumber, AccountStatus newStatus) {
+        return tryChangeStatus(accountNumber, newStatus) == ResultCode.OK;
+    }
+
+    /**
+     * Same rules as {@link Bank#tryChangeStatus}.
+     */
+    public ResultCode tryChangeStatus(String accountNumber, AccountStatus newStatus) {
+        if (accountNumber == null || accountNumber.trim().isEmpty()) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        if (newStatus == null) {
+            return ResultCode.INVALID_ARGUMENT;
+        }
+        int slot = slotOf(accountNumber);
+        if (slot < 0) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        byte code = newStatus.code();
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            if (status[slot] == code) {
+                return ResultCode.NO_CHANGE;
+            }
+            status[slot] = code;
+            return ResultCode.OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean setDailyLimit(String accountNumber, double newLimit) {
+        return setDailyLimitCents(accountNumber, Money.toCents(newLimit));
+    }
+
+    public boolean setDailyLimitCents(String accountNumber, long newLimit) {
+        return trySetDailyLimitCents(accountNumber, newLimit) == ResultCode.OK;
+    }
+
+    public ResultCode trySetDailyLimit(String accountNumber, double newLimit) {
+        return trySetDailyLimitCents(accountNumber, Money.toCents(newLimit));
+    }
+
+    /**
+     * Same checks in the same order as {@link Bank#trySetDailyLimitCents}.
+     * Columnar accounts have no policy of their own, so the range is that of
+     * {@link AccountPolicy#STANDARD}.
+     */
+    public ResultCode trySetDailyLimitCents(String accountNumber, long newLimit) {
+        if (accountNumber == null || accountNumber.trim().isEmpty()) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        int slot = slotOf(accountNumber);
+        if (slot < 0) {
+            return ResultCode.UNKNOWN_ACCOUNT;
+        }
+        ReentrantLock lock = stripeOf(slot);
+        lock.lock();
+        try {
+            if (!AccountPolicy.STANDARD.allowsDailyLimit(newLimit)) {
+                return ResultCode.LIMIT_OUT_OF_RANGE;
+            }
+            if (dailyWithdrawalLimit[slot] == newLimit) {
+                return ResultCode.NO_CHANGE;
+            }
+            dailyWithdrawalLimit[slot] = newLimit;
+            return ResultCode.OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --------- Index and arena --------- //
+
+    private int slotOf(String accountNumber) {
+        if (accountNumber == null) {
+            return -1;
+        }
+        int hash = accountNumber.hashCode();
+        int i = mix(hash) & tableMask;
+        while (true) {
+            int entry = (int) TABLE.getAcquire(table, i);
+            if (entry == 0) {
+                return -1;
+            }
+            int slot = entry - 1;
+            if (numberHash[slot] == hash && equalsStored(numberRef[slot], accountNumber)) {
+                return slot;
+            }
+            i = (i + 1) & tableMask;
+        }
+    }
+
+    private int requireSlot(String accountNumber) {
+        int slot = slotOf(accountNumber);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown account: " + accountNumber);
+        }
+        return slot;
+    }
+
+    private int stripeIndex(int slot) {
+        return slot & (STRIPES - 1);
+    }
+
+    private ReentrantLock stripeOf(int slot) {
+        return stripes[stripeIndex(slot)];
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16) ^ (hash >>> 7);
+    }
+
+    // Stores a length-prefixed string so that it never crosses a chunk boundary.
+    private long store(String value) {
+        if (value.length() >= ARENA_CHUNK_CHARS || value.length() > 0xFFFF) {
+            throw new IllegalArgumentException("Value too long.");
+        }
+        int needed = value.length() + 1;
+        long position = arenaEnd;
+        int offset = (int) (position & (ARENA_CHUNK_CHARS - 1));
+        if (offset + needed > ARENA_CHUNK_CHARS) {
+            position += ARENA_CHUNK_CHARS - offset;
+            offset = 0;
+        }
+        int chunkIndex = (int) (position >>> ARENA_CHUNK_BITS);
+        char[][] chunks = arena;
+        if (chunkIndex >= chunks.length) {
+            char[][] grown = new char[chunks.length * 2][];
+            System.arraycopy(chunks, 0, grown, 0, chunks.length);
+            chunks = grown;
+        }
+        if (chunks[chunkIndex] == null) {
+            chunks[chunkIndex] = new char[ARENA_CHUNK_CHARS];
+        }
+        char[] chunk = chunks[chunkIndex];
+        chunk[offset] = (char) value.length();
+        value.getChars(0, value.length(), chunk, offset + 1);
+        arena = chunks;
+        arenaEnd = position + needed;
+        return position;
+    }
+
+    private boolean equalsStored(long position, String value) {
+        char[] chunk = arena[(int) (position >>> ARENA_CHUNK_BITS)];
+        int offset = (int) (position & (ARENA_CHUNK_CHARS - 1));
+        int length = chunk[offset];
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chunk[offset + 1 + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String load(long position) {
+        char[] chunk = arena[(int) (position >>> ARENA_CHUNK_BITS)];
+        int offset = (int) (position & (ARENA_CHUNK_CHARS - 1));
+        return new String(chunk, offset + 1, chunk[offset]);
+    }
+}
@@ -0,0 +1,571 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of account mutations, written through a
+ * {@link FileChannel} with group commit.
+ *
+ * Appends only copy the record into an in-memory buffer. A background thread
+ * writes and fsyncs the buffer once the group-commit window has elapsed since
+ * the first pending record, or once the buffer holds {@code groupCommitBytes}.
+ * Callers that need durability wait with {@link #awaitDurable(long)}, so one
+ * fsync covers every record appended during the window.
+ *
+ * Record layout (big-endian):
+ * <pre>
+ *   int    length of type + payload
+ *   byte   record type
+ *   ...    payload (strings are a short length followed by UTF-8 bytes)
+ *   int    CRC32C of type + payload
+ * </pre>
+ * A record's position (LSN) is the file offset where it ends. Replay stops at
+ * the first incomplete or corrupt record, which is where a crash mid-write
+ * leaves the file; reopening truncates that tail.
+ */
+public class Journal implements Closeable {
+
+    static final byte OPEN = 1;
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte TRANSFER = 4;
+    static final byte STATUS = 5;
+    static final byte LIMIT = 6;
+    static final byte RESET_DAILY = 7;
+    static final byte MULTI_TRANSFER = 8;
+
+    private static final int HEADER_BYTES = 4;
+    private static final int TRAILER_BYTES = 4;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    static final int MAX_RECORD_BYTES = 1 << 18;
+
+    private static final int COMPLETE = 0;
+    private static final int INCOMPLETE = 1;
+    private static final int CORRUPT = 2;
+
+    /**
+     * Callback for decoded records, used by replay.
+     */
+    public interface Visitor {
+        void onOpen(long lsn, String accountNumber, String ownerName, long balance, long dailyWithdrawalLimit,
+                    long dailyWithdrawnAmount, long withdrawalDay, AccountStatus status);
+
+        void onDeposit(long lsn, String accountNumber, long amount);
+
+        /**
+         * @param day epoch day the withdrawal counted against (see {@link BankClock})
+         */
+        void onWithdraw(long lsn, String accountNumber, long amount, long day);
+
+        void onTransfer(long lsn, String fromAccountNumber, String toAccountNumber, long amount);
+
+        /**
+         * Legs of one atomic transfer; leg {@code i} moves {@code amounts[i]}
+         * from {@code accountNumbers[fromIndexes[i]]} to
+         * {@code accountNumbers[toIndexes[i]]}.
+         */
+        void onMultiTransfer(long lsn, String[] accountNumbers, int[] fromIndexes, int[] toIndexes, long[] amounts);
+
+        void onStatus(long lsn, String accountNumber, AccountStatus status);
+
+        void onLimit(long lsn, String accountNumber, long dailyWithdrawalLimit);
+
+        void onResetDaily(long lsn, String accountNumber);
+    }
+
+    private final FileChannel channel;
+    private final long groupCommitNanos;
+    private final int groupCommitBytes;
+    private final Thread flusher;
+    private final CRC32C crc = new CRC32C();
+
+    // Guarded by "this"
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private int recordStart;
+    private long firstPendingNanos;
+    private long appendedPosition;
+    private long durablePosition;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens a journal for appending. Existing content up to the last valid
+     * record is kept; a torn tail is truncated.
+     *
+     * @param file             journal file (created if missing)
+     * @param groupCommitMillis maximum time a record waits before it is fsynced (0 = as soon as possible)
+     * @param groupCommitBytes  pending bytes that trigger an fsync before the window elapses
+     */
+    public Journal(Path file, long groupCommitMillis, int groupCommitBytes) throws IOException {
+        this(file, groupCommitMillis, groupCommitBytes, Files.exists(file) ? replay(file, 0, null) : 0);
+    }
+
+    /**
+     * Opens a journal whose valid end is already known from a replay, so the
+     * file is not scanned a second time.
+     */
+    Journal(Path file, long groupCommitMillis, int groupCommitBytes, long validEnd) throws IOException {
+        if (groupCommitMillis < 0 || groupCommitBytes <= 0) {
+            throw new IllegalArgumentException("Group commit window must be non-negative and size positive.");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validEnd);
+        channel.position(validEnd);
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.groupCommitBytes = groupCommitBytes;
+        this.appendedPosition = validEnd;
+        this.durablePosition = validEnd;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher-" + file.getFileName());
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // --------- Appending --------- //
+
+    // Account numbers and owner names are at most BankAccount.MAX_TEXT_BYTES
+    // (checked by the constructor), so an OPEN record always fits MAX_RECORD_BYTES
+    long appendOpen(BankAccount account) {
+        byte[] number = account.accountNumberBytes();
+        byte[] owner = account.getOwnerName().getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer buf = begin(OPEN, 2 + number.length + 2 + owner.length + 8 * 4 + 1);
+            putString(buf, number);
+            putString(buf, owner);
+            buf.putLong(account.getBalanceCents());
+            buf.putLong(account.getDailyWithdrawalLimitCents());
+            buf.putLong(account.getDailyWithdrawnAmountCents());
+            buf.putLong(account.getWithdrawalDay());
+            buf.put(account.getStatus().code());
+            return end(buf);
+        }
+    }
+
+    long appendAmount(byte type, BankAccount account, long amount) {
+        byte[] number = account.accountNumberBytes();
+        synchronized (this) {
+            ByteBuffer buf = begin(type, 2 + number.length + 8);
+            putString(buf, number);
+            buf.putLong(amount);
+            return end(buf);
+        }
+    }
+
+    long appendWithdraw(BankAccount account, long amount, long day) {
+        byte[] number = account.accountNumberBytes();
+        synchronized (this) {
+            ByteBuffer buf = begin(WITHDRAW, 2 + number.length + 8 + 8);
+            putString(buf, number);
+            buf.putLong(amount);
+            buf.putLong(day);
+            return end(buf);
+        }
+    }
+
+    long appendTransfer(BankAccount from, BankAccount to, long amount) {
+        byte[] fromNumber = from.accountNumberBytes();
+        byte[] toNumber = to.accountNumberBytes();
+        synchronized (this) {
+            ByteBuffer buf = begin(TRANSFER, 2 + fromNumber.length + 2 + toNumber.length + 8);
+            putString(buf, fromNumber);
+            putString(buf, toNumber);
+            buf.putLong(amount);
+            return end(buf);
+        }
+    }
+
+    /**
+     * Payload size of a multi-transfer record over the first {@code count}
+     * entries of {@code accounts} with {@code legs} legs, or -1 if it does not
+     * fit in one record.
+     */
+    static int multiTransferBytes(BankAccount[] accounts, int count, int legs) {
+        if (count > 0xFFFF) {
+            return -1;
+        }
+        long bytes = 2 + 4 + (long) legs * (2 + 2 + 8);
+        for (int i = 0; i < count; i++) {
+            bytes += 2 + accounts[i].accountNumberBytes().length;
+        }
+        return 1 + bytes <= MAX_RECORD_BYTES ? (int) bytes : -1;
+    }
+
+    /**
+     * Appends all legs of an atomic transfer as one record, so replay sees
+     * either every leg or none. Accounts are written once and referenced by
+     * index; {@code payloadBytes} comes from {@link #multiTransferBytes}.
+     */
+    long appendMultiTransfer(BankAccount[] accounts, int count, int[] fromIndexes, int[] toIndexes, long[] amounts,
+                             int payloadBytes) {
+        synchronized (this) {
+            ByteBuffer buf = begin(MULTI_TRANSFER, payloadBytes);
+            buf.putShort((short) count);
+            for (int i = 0; i < count; i++) {
+                putString(buf, accounts[i].accountNumberBytes());
+            }
+            buf.putInt(amounts.length);
+            for (int i = 0; i < amounts.length; i++) {
+                buf.putShort((short) fromIndexes[i]);
+                buf.putShort((short) toIndexes[i]);
+                buf.putLong(amounts[i]);
+            }
+            return end(buf);
+        }
+    }
+
+    long appendStatus(BankAccount account, AccountStatus status) {
+        byte[] number = account.accountNumberBytes();
+        synchronized (this) {
+            ByteBuffer buf = begin(STATUS, 2 + number.length + 1);
+            putString(buf, number);
+            buf.put(status.code());
+            return end(buf);
+        }
+    }
+
+    long appendResetDaily(BankAccount account) {
+        byte[] number = account.accountNumberBytes();
+        synchronized (this) {
+            ByteBuffer buf = begin(RESET_DAILY, 2 + number.length);
+            putString(buf, number);
+            return end(buf);
+        }
+    }
+
+    private ByteBuffer begin(byte type, int payloadBytes) {
+        checkOpen();
+        int needed = HEADER_BYTES + 1 + payloadBytes + TRAILER_BYTES;
+        if (pending.remaining() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        recordStart = pending.position();
+        pending.putInt(1 + payloadBytes);
+        pending.put(type);
+        return pending;
+    }
+
+    private long end(ByteBuffer buf) {
+        int bodyStart = recordStart + HEADER_BYTES;
+        crc.reset();
+        crc.update(buf.array(), bodyStart, buf.position() - bodyStart);
+        buf.putInt((int) crc.getValue());
+        appendedPosition += buf.position() - recordStart;
+
+        if (recordStart == 0) {
+            // First record of a new group: start the window and wake the flusher
+            firstPendingNanos = System.nanoTime();
+            notifyAll();
+        } else if (recordStart < groupCommitBytes && buf.position() >= groupCommitBytes) {
+            notifyAll();
+        }
+        return appendedPosition;
+    }
+
+    private static void putString(ByteBuffer buf, byte[] bytes) {
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+    }
+
+    // --------- Durability --------- //
+
+    /**
+     * Position just after the last appended record.
+     */
+    public synchronized long appendedPosition() {
+        return appendedPosition;
+    }
+
+    /**
+     * Position up to which the journal is known to be on disk.
+     */
+    public synchronized long durablePosition() {
+        return durablePosition;
+    }
+
+    /**
+     * Blocks until every record ending at or before {@code position} has been
+     * fsynced.
+     */
+    public synchronized void awaitDurable(long position) {
+        boolean interrupted = false;
+        while (durablePosition < position) {
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed", failure);
+            }
+            if (closed && !flusher.isAlive()) {
+                throw new IllegalStateException("Journal is closed.");
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until the durable position passes {@code position} or
+     * {@code timeoutNanos} elapse, and returns the durable position. Used by
+     * {@link ReplicationLeader} to ship records once they are on disk.
+     */
+    synchronized long awaitDurableAfter(long position, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        long remaining = timeoutNanos;
+        while (durablePosition <= position && remaining > 0) {
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed", failure);
+            }
+            if (closed && !flusher.isAlive()) {
+                throw new IllegalStateException("Journal is closed.");
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return durablePosition;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer toWrite;
+            long endPosition;
+            synchronized (this) {
+                try {
+                    long waitNanos;
+                    while ((waitNanos = flushDelayNanos()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                if (pending.position() == 0) {
+                    if (closed) {
+                        notifyAll();
+                        return;
+                    }
+                    continue;
+                }
+                toWrite = pending;
+                pending = spare;
+                spare = toWrite;
+                endPosition = appendedPosition;
+            }
+
+            IOException error = null;
+            try {
+                toWrite.flip();
+                while (toWrite.hasRemaining()) {
+                    channel.write(toWrite);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            toWrite.clear();
+
+            synchronized (this) {
+                if (error != null) {
+                    failure = error;
+                    closed = true;
+                } else {
+                    durablePosition = endPosition;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Nanoseconds the flusher should still wait; 0 when a flush is due or the journal is closing.
+    private long flushDelayNanos() {
+        if (closed) {
+            return 0;
+        }
+        if (pending.position() == 0) {
+            return Long.MAX_VALUE;
+        }
+        if (pending.position() >= groupCommitBytes) {
+            return 0;
+        }
+        return Math.max(0, groupCommitNanos - (System.nanoTime() - firstPendingNanos));
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+    }
+
+    /**
+     * Flushes pending records, stops the flusher thread and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed && !flusher.isAlive()) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // --------- Reading --------- //
+
+    /**
+     * Decodes every valid record of a journal file starting at {@code fromPosition}.
+     *
+     * @param visitor receives the records; may be null to only validate
+     * @return position just after the last valid record
+     */
+    public static long replay(Path file, long fromPosition, Visitor visitor) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+            long position = fromPosition;
+            in.position(fromPosition);
+            while (true) {
+                int read = in.read(buf);
+                buf.flip();
+                position += decode(buf, position, visitor);
+                if (read < 0 || recordStatus(buf) == CORRUPT) {
+                    // Whatever is left is a torn or damaged tail
+                    return position;
+                }
+                if (buf.position() == 0 && buf.limit() == buf.capacity()) {
+                    // A single record larger than the buffer
+                    ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+                    bigger.put(buf);
+                    buf = bigger;
+                } else {
+                    buf.compact();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes as many complete, valid records as {@code buf} holds, starting at
+     * its position. Stops before the first incomplete or corrupt record.
+     *
+     * @param basePosition journal position of {@code buf.position()}
+     * @return number of bytes consumed
+     */
+    static int decode(ByteBuffer buf, long basePosition, Visitor visitor) {
+        int start = buf.position();
+        while (recordStatus(buf) == COMPLETE) {
+            int bodyStart = buf.position() + HEADER_BYTES;
+            int next = bodyStart + buf.getInt(buf.position()) + TRAILER_BYTES;
+            if (visitor != null) {
+                buf.position(bodyStart);
+                dispatch(buf, basePosition + (next - start), visitor);
+            }
+            buf.position(next);
+        }
+        return buf.position() - start;
+    }
+
+    private static int recordStatus(ByteBuffer buf) {
+        if (buf.remaining() < HEADER_BYTES) {
+            return INCOMPLETE;
+        }
+        int recordStart = buf.position();
+        int length = buf.getInt(recordStart);
+        if (length <= 0 || length > MAX_RECORD_BYTES) {
+            return CORRUPT;
+        }
+        if (buf.remaining() < HEADER_BYTES + length + TRAILER_BYTES) {
+            return INCOMPLETE;
+        }
+        CRC32C check = new CRC32C();
+        ByteBuffer body = buf.duplicate();
+        body.position(recordStart + HEADER_BYTES).limit(recordStart + HEADER_BYTES + length);
+        check.update(body);
+        if ((int) check.getValue() != buf.getInt(recordStart + HEADER_BYTES + length)) {
+            return CORRUPT;
+        }
+        return COMPLETE;
+    }
+
+    private static void dispatch(ByteBuffer buf, long lsn, Visitor visitor) {
+        byte type = buf.get();
+        switch (type) {
+            case OPEN:
+                visitor.onOpen(lsn, getString(buf), getString(buf), buf.getLong(), buf.getLong(), buf.getLong(),
+                        buf.getLong(), AccountStatus.fromCode(buf.get()));
+                break;
+            case DEPOSIT:
+                visitor.onDeposit(lsn, getString(buf), buf.getLong());
+                break;
+            case WITHDRAW:
+                visitor.onWithdraw(lsn, getString(buf), buf.getLong(), buf.getLong());
+                break;
+            case TRANSFER:
+                visitor.onTransfer(lsn, getString(buf), getString(buf), buf.getLong());
+                break;
+            case MULTI_TRANSFER:
+                dispatchMultiTransfer(buf, lsn, visitor);
+                break;
+            case STATUS:
+                visitor.onStatus(lsn, getString(buf), AccountStatus.fromCode(buf.get()));
+                break;
+            case LIMIT:
+                visitor.onLimit(lsn, getString(buf), buf.getLong());
+                break;
+            case RESET_DAILY:
+                visitor.onResetDaily(lsn, getString(buf));
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    private static void dispatchMultiTransfer(ByteBuffer buf, long lsn, Visitor visitor) {
+        String[] accountNumbers = new String[buf.getShort() & 0xFFFF];
+        for (int i = 0; i < accountNumbers.length; i++) {
+            accountNumbers[i] = getString(buf);
+        }
+        int legs = buf.getInt();
+        int[] fromIndexes = new int[legs];
+        int[] toIndexes = new int[legs];
+        long[] amounts = new long[legs];
+        for (int i = 0; i < legs; i++) {
+            fromIndexes[i] = buf.getShort() & 0xFFFF;
+            toIndexes[i] = buf.getShort() & 0xFFFF;
+            amounts[i] = buf.getLong();
+        }
+        visitor.onMultiTransfer(lsn, accountNumbers, fromIndexes, toIndexes, amounts);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getShort() & 0xFFFF;
+        String value = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,158 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Concurrent log-linear latency histogram in the style of HdrHistogram.
+ *
+ * Values (nanoseconds) below 128 get one bucket each; above that every power
+ * of two is split into 64 equal buckets, so a recorded value is off by at
+ * most 1/64 (about 1.6%). Values above {@link #MAX_VALUE} (about 68 seconds)
+ * are clamped.
+ *
+ * Counts are striped: each recording thread updates one of several bucket
+ * arrays chosen by its thread id, so threads rarely touch the same cache
+ * lines. {@link #snapshot()} adds the stripes up without stopping writers.
+ */
+public final class LatencyHistogram {
+
+    private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+
+    /** Largest value recorded exactly (within bucket precision). */
+    public static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    // Per stripe, after the buckets: sum of values and maximum value
+    private static final int SUM = BUCKETS;
+    private static final int MAX = BUCKETS + 1;
+    // Padding so neighbouring stripes do not share cache lines
+    private static final int STRIPE_LENGTH = BUCKETS + 2 + 8;
+
+    private final long[][] stripes;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int count = Integer.highestOneBit(Math.max(1, 2 * Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        this.stripes = new long[count][STRIPE_LENGTH];
+        this.stripeMask = count - 1;
+    }
+
+    /**
+     * Records one value in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        long id = Thread.currentThread().getId();
+        long[] stripe = stripes[(int) (id ^ (id >>> 16)) & stripeMask];
+        COUNTS.getAndAdd(stripe, indexOf(value), 1L);
+        COUNTS.getAndAdd(stripe, SUM, value);
+        long max;
+        while (value > (max = (long) COUNTS.getOpaque(stripe, MAX))
+                && !COUNTS.weakCompareAndSet(stripe, MAX, max, value)) {
+            // Lost a race with a larger or equal value; re-read
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Largest value that falls into bucket {@code index}.
+     */
+    static long highestValueIn(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long top = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Current contents, summed over all stripes.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        long max = 0;
+        for (long[] stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += (long) COUNTS.getOpaque(stripe, i);
+            }
+            sum += (long) COUNTS.getOpaque(stripe, SUM);
+            max = Math.max(max, (long) COUNTS.getOpaque(stripe, MAX));
+        }
+        return new Snapshot(counts, sum, max);
+    }
+
+    /**
+     * Immutable copy of a histogram.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long max) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.counts = counts;
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Sum of all recorded values in nanoseconds.
+         */
+        public long sum() {
+            return sum;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Smallest bucket bound such that at least {@code percentile} percent
+         * of the values are at or below it; 0 when empty.
+         *
+         * @param percentile between 0 and 100
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lock-free variant of {@link BankAccount} for deposit-heavy workloads.
+ *
+ * All mutable state (balance, daily limit, daily withdrawn amount and its
+ * day, status) lives in one immutable {@link State} that every operation
+ * replaces with a single compare-and-set through a {@link VarHandle}. An
+ * operation checks the state it read and commits its change only if nobody
+ * changed the account in between, otherwise it re-reads and checks again.
+ * So {@link #depositCents} never blocks, {@link #withdrawCents} simply
+ * retries when it loses a race, and every check holds at the moment the
+ * change commits: no deposit or withdrawal completes after a concurrent
+ * {@link #setStatus} froze the account. Each change allocates one small
+ * object.
+ *
+ * The daily withdrawn amount belongs to the day of the last withdrawal, so
+ * daily limits roll over lazily as in {@link BankAccount}: an amount from an
+ * earlier {@link BankClock} day counts as zero.
+ *
+ * The checks and their order are the same as in {@link BankAccount}. A
+ * transfer spans two accounts and so two steps: it debits this account, then
+ * credits the target, and refunds the debit if the target rejects the
+ * credit. Between those steps the amount is in neither account, so a reader
+ * summing balances can see money missing; use {@link BankAccount} where
+ * balances are summed while transfers run. The debited amount stays
+ * reserved against this account's maximum balance until the transfer ends,
+ * so the refund always fits.
+ */
+public class LockFreeBankAccount {
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(LockFreeBankAccount.class, "state", State.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String accountNumber;
+    private final String ownerName;
+
+    // Replaced as a whole through STATE
+    private volatile State state;
+    private volatile BankClock clock = BankClock.systemDefault();
+
+    /**
+     * Creates a new LockFreeBankAccount. Same rules as the {@link BankAccount}
+     * constructor.
+     */
+    public LockFreeBankAccount(String accountNumber, String ownerName, double initialBalance,
+                               double dailyWithdrawalLimit) {
+        this(accountNumber, ownerName, Money.toCents(initialBalance), Money.toCents(dailyWithdrawalLimit));
+    }
+
+    private LockFreeBankAccount(String accountNumber, String ownerName, long initialBalance,
+                                long dailyWithdrawalLimit) {
+        BankAccount.checkArguments(accountNumber, ownerName, initialBalance, dailyWithdrawalLimit);
+
+        this.accountNumber = accountNumber.trim();
+        this.ownerName = ownerName.trim();
+        this.state = new State(initialBalance, 0, dailyWithdrawalLimit, 0, BankAccount.NO_WITHDRAWAL_DAY,
+                AccountStatus.ACTIVE);
+    }
+
+    public static LockFreeBankAccount ofCents(String accountNumber, String ownerName, long initialBalanceCents,
+                                              long dailyWithdrawalLimitCents) {
+        return new LockFreeBankAccount(accountNumber, ownerName, initialBalanceCents, dailyWithdrawalLimitCents);
+    }
+
+    // --------- Getters --------- //
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public double getBalance() {
+        return Money.toAmount(getBalanceCents());
+    }
+
+    public double getDailyWithdrawalLimit() {
+        return Money.toAmount(getDailyWithdrawalLimitCents());
+    }
+
+    public double getDailyWithdrawnAmount() {
+        return Money.toAmount(getDailyWithdrawnAmountCents());
+    }
+
+    public long getBalanceCents() {
+        return state.balance;
+    }
+
+    public long getDailyWithdrawalLimitCents() {
+        return state.dailyWithdrawalLimit;
+    }
+
+    /**
+     * Amount withdrawn today; 0 if the last withdrawal was on an earlier day.
+     */
+    public long getDailyWithdrawnAmountCents() {
+        return state.withdrawnOn(clock.epochDay());
+    }
+
+    public AccountStatus getStatus() {
+        return state.status;
+    }
+
+    public void setDailyWithdrawalLimit(double dailyWithdrawalLimit) {
+        setDailyWithdrawalLimitCents(Money.toCents(dailyWithdrawalLimit));
+    }
+
+    public void setDailyWithdrawalLimitCents(long dailyWithdrawalLimit) {
+        if (dailyWithdrawalLimit <= 0) {
+            throw new IllegalArgumentException("Daily withdrawal limit must be positive.");
+        }
+        State current;
+        do {
+            current = state;
+        } while (!STATE.weakCompareAndSet(this, current, new State(current.balance, current.inFlight,
+                dailyWithdrawalLimit, current.withdrawn, current.withdrawalDay, current.status)));
+    }
+
+    public void setStatus(AccountStatus status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Status cannot be null.");
+        }
+
+        State current;
+        do {
+            current = state;
+        } while (!STATE.weakCompareAndSet(this, current, new State(current.balance, current.inFlight,
+                current.dailyWithdrawalLimit, current.withdrawn, current.withdrawalDay, status)));
+    }
+
+    /**
+     * Sets the clock that decides when a new day starts for the daily limit.
+     */
+    public void setClock(BankClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null.");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Not needed at day rollover (see {@link BankClock}); kept for explicit
+     * resets.
+     */
+    public void resetDailyWithdrawnAmount() {
+        State current;
+        do {
+            current = state;
+        } while (!STATE.weakCompareAndSet(this, current, new State(current.balance, current.inFlight,
+                current.dailyWithdrawalLimit, 0, BankAccount.NO_WITHDRAWAL_DAY, current.status)));
+    }
+
+    // --------- Core Operations --------- //
+
+    public boolean deposit(double amount) {
+        return depositCents(Money.toCents(amount));
+    }
+
+    /**
+     * Deposits money into the account without blocking.
+     *
+     * @param amount amount to deposit in cents (must be > 0)
+     * @return true if the deposit succeeded, false otherwise.
+     */
+    public boolean depositCents(long amount) {
+        State current;
+        do {
+            current = state;
+            if (current.status != AccountStatus.ACTIVE) {
+                // Cannot deposit into frozen or closed accounts
+                return false;
+            }
+
+            if (amount <= 0) {
+                return false;
+            }
+
+            if (amount > Long.MAX_VALUE - current.balance - current.inFlight) {
+                // Balance would overflow, counting outgoing transfers that may be refunded
+                return false;
+            }
+        } while (!STATE.weakCompareAndSet(this, current, current.withBalance(current.balance + amount)));
+        return true;
+    }
+
+    public boolean withdraw(double amount) {
+        return withdrawCents(Money.toCents(amount));
+    }
+
+    /**
+     * Withdraws money from the account. Checks status, amount, daily limit and
+     * balance against one state and commits with one compare-and-set; retries
+     * on conflicting updates instead of blocking.
+     *
+     * @param amount amount to withdraw in cents (must be > 0)
+     * @return true if the withdrawal succeeded, false otherwise.
+     */
+    public boolean withdrawCents(long amount) {
+        long today = clock.epochDay();
+        State current;
+        long withdrawn;
+        do {
+            current = state;
+            if (current.status != AccountStatus.ACTIVE) {
+                // Cannot withdraw from frozen or closed accounts
+                return false;
+            }
+
+            if (amount <= 0) {
+                return false;
+            }
+
+            // What was withdrawn on an earlier day does not count
+            withdrawn = current.withdrawnOn(today);
+            if (amount > current.dailyWithdrawalLimit - withdrawn) {
+                return false;
+            }
+
+            if (amount > current.balance) {
+                return false;
+            }
+        } while (!STATE.weakCompareAndSet(this, current, new State(current.balance - amount, current.inFlight,
+                current.dailyWithdrawalLimit, withdrawn + amount, today, current.status)));
+        return true;
+    }
+
+    public boolean transferTo(LockFreeBankAccount target, double amount) {
+        return transferToCents(target, Money.toCents(amount));
+    }
+
+    /**
+     * Transfers money to another LockFreeBankAccount. Same checks as
+     * {@link BankAccount#transferToCents}. The debit and the credit are two
+     * separate atomic steps; if the credit fails (the target was frozen in
+     * between, or would overflow) the amount is returned to this account.
+     *
+     * @param target the target account to transfer to (must not be null)
+     * @param amount amount to transfer in cents
+     * @return true if the transfer succeeded, false otherwise.
+     */
+    public boolean transferToCents(LockFreeBankAccount target, long amount) {
+        if (target == null) {
+            return false;
+        }
+
+        // Cannot transfer to the same account
+        if (this == target) {
+            return false;
+        }
+
+        if (target.state.status != AccountStatus.ACTIVE) {
+            return false;
+        }
+
+        // Pre Withdraw checking
+        if (amount <= 0) {
+            return false;
+        }
+
+        // Debit, keeping the amount reserved until the credit is settled
+        State current;
+        do {
+            current = state;
+            if (amount > current.balance) {
+                return false;
+            }
+        } while (!STATE.weakCompareAndSet(this, current, new State(current.balance - amount,
+                current.inFlight + amount, current.dailyWithdrawalLimit, current.withdrawn, current.withdrawalDay,
+                current.status)));
+
+        boolean credited = target.depositCents(amount);
+        // Settle: drop the reservation, and on failure return the amount. It
+        // fits because deposits counted the reservation against the maximum.
+        do {
+            current = state;
+        } while (!STATE.weakCompareAndSet(this, current, new State(
+                credited ? current.balance : current.balance + amount, current.inFlight - amount,
+                current.dailyWithdrawalLimit, current.withdrawn, current.withdrawalDay, current.status)));
+        return credited;
+    }
+
+    @Override
+    public String toString() {
+        State current = state;
+        return "LockFreeBankAccount{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", ownerName='" + ownerName + '\'' +
+                ", balance=" + Money.toAmount(current.balance) +
+                ", dailyWithdrawalLimit=" + Money.toAmount(current.dailyWithdrawalLimit) +
+                ", dailyWithdrawnAmount=" + Money.toAmount(current.withdrawnOn(clock.epochDay())) +
+                ", status=" + current.status +
+                '}';
+    }
+
+    /**
+     * One version of the account's mutable state, all amounts in cents.
+     * Immutable; replaced as a whole by compare-and-set.
+     */
+    private static final class State {
+
+        final long balance;
+        final long inFlight; // debited by transfers whose credit is not settled yet
+        final long dailyWithdrawalLimit;
+        final long withdrawn;
+        final long withdrawalDay; // epoch day of the last withdrawal
+        final AccountStatus status;
+
+        State(long balance, long inFlight, long dailyWithdrawalLimit, long withdrawn, long withdrawalDay,
+              AccountStatus status) {
+            this.balance = balance;
+            this.inFlight = inFlight;
+            this.dailyWithdrawalLimit = dailyWithdrawalLimit;
+            this.withdrawn = withdrawn;
+            this.withdrawalDay = withdrawalDay;
+            this.status = status;
+        }
+
+        long withdrawnOn(long today) {
+            return withdrawalDay == today ? withdrawn : 0;
+        }
+
+        State withBalance(long newBalance) {
+            return new State(newBalance, inFlight, dailyWithdrawalLimit, withdrawn, withdrawalDay, status);
+        }
+    }
+}
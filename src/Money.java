@@ -0,0 +1,29 @@
+/**
+ * Conversions between decimal amounts and the fixed-point representation used
+ * internally by {@link BankAccount}: a {@code long} count of minor units (cents).
+ *
+ * Keeping money as whole cents makes every comparison and update exact and
+ * allocation-free. Decimal amounts are converted once at the API edge.
+ */
+public final class Money {
+
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a decimal amount to cents, rounding half-up to the nearest cent.
+     * NaN converts to 0; values beyond the {@code long} range saturate.
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Converts cents back to a decimal amount.
+     */
+    public static double toAmount(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Hot standby for a journaled {@link Bank}: connects to a
+ * {@link ReplicationLeader}, applies the leader's journal records to its own
+ * in-memory bank as they arrive (with {@link JournalApplier}, as recovery
+ * does) and serves read-only queries from it.
+ *
+ * Reads go through {@link BankAccount#readView()}, so they never wait for the
+ * applier and always see whole records: a transfer is visible on both of its
+ * accounts or on neither. The follower's state is the leader's as of
+ * {@link #appliedPosition()}; {@link #lagBytes()} is how much durable journal
+ * the leader has that is not applied here yet.
+ *
+ * The follower starts from an empty bank and receives the whole journal.
+ * If the connection drops it stops applying and keeps serving the state it
+ * reached; {@link #isConnected()} turns false.
+ */
+public final class ReplicationFollower implements Closeable {
+
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final Bank bank = new Bank();
+    private final JournalApplier applier = new JournalApplier(bank);
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Thread thread;
+
+    // Written by the applier thread only; guarded by "this" for waiting
+    private volatile long appliedPosition;
+    private volatile long leaderPosition;
+    private volatile boolean connected = true;
+
+    private ReplicationFollower(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), INITIAL_BUFFER_BYTES));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(ReplicationLeader.MAGIC);
+        out.writeLong(0);
+        out.flush();
+        this.thread = new Thread(this::applyLoop, "replication-follower-" + socket.getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Connects to a leader on {@code port} of the loopback interface and
+     * starts following it.
+     */
+    public static ReplicationFollower connect(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            socket.setTcpNoDelay(true);
+            return new ReplicationFollower(socket);
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Current state of an account, or null if the follower has not seen it.
+     */
+    public AccountView findAccount(String accountNumber) {
+        BankAccount account = bank.findAccount(accountNumber);
+        return account == null ? null : account.readView();
+    }
+
+    /**
+     * Same as {@link Bank#readAccounts}: several accounts as of one moment.
+     */
+    public AccountView[] readAccounts(String... accountNumbers) {
+        return bank.readAccounts(accountNumbers);
+    }
+
+    /**
+     * Number of accounts replicated so far.
+     */
+    public int size() {
+        return bank.size();
+    }
+
+    /**
+     * Journal position up to which the leader's records are applied here.
+     */
+    public long appliedPosition() {
+        return appliedPosition;
+    }
+
+    /**
+     * Durable journal position of the leader as of its last frame.
+     */
+    public long leaderPosition() {
+        return leaderPosition;
+    }
+
+    /**
+     * Bytes of the leader's durable journal, as of its last frame, that are
+     * not applied here yet.
+     */
+    public long lagBytes() {
+        return leaderPosition - appliedPosition;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Waits until records up to {@code position} are applied, e.g. the
+     * leader's {@link ReplicationLeader#durablePosition()} for a
+     * read-your-writes query.
+     *
+     * @return false if the time ran out or the connection dropped first
+     */
+    public synchronized boolean awaitPosition(long position, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (appliedPosition < position) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !connected) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Disconnects from the leader. The replicated state stays readable.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void applyLoop() {
+        // Received bytes not yet applied: at most one partial record between frames
+        ByteBuffer buf = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        long received = 0;
+        long applied = 0;
+        try {
+            while (true) {
+                long start = in.readLong();
+                long durable = in.readLong();
+                int length = in.readInt();
+                if (start != received || length < 0 || length > ReplicationLeader.BATCH_BYTES) {
+                    throw new IOException("Replication stream out of order at " + received + ".");
+                }
+                if (buf.remaining() < length) {
+                    ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + length));
+                    buf.flip();
+                    bigger.put(buf);
+                    buf = bigger;
+                }
+                in.readFully(buf.array(), buf.position(), length);
+                buf.position(buf.position() + length);
+                received += length;
+
+                buf.flip();
+                applied += Journal.decode(buf, applied, applier);
+                buf.compact();
+                if (buf.position() > Journal.MAX_RECORD_BYTES + 8) {
+                    // More than one whole record that still does not decode
+                    throw new IOException("Corrupt replication stream at " + applied + ".");
+                }
+
+                synchronized (this) {
+                    appliedPosition = applied;
+                    leaderPosition = durable;
+                    notifyAll();
+                }
+                out.writeLong(applied);
+                out.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Leader gone, follower closed or a record it cannot apply: keep serving what was applied
+        } finally {
+            synchronized (this) {
+                connected = false;
+                notifyAll();
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already disconnected
+            }
+        }
+    }
+}
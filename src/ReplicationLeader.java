@@ -0,0 +1,282 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Leader side of journal shipping: streams a journaled {@link Bank}'s
+ * {@link Journal} to {@link ReplicationFollower}s over TCP on the loopback
+ * interface, so a follower keeps a hot copy of the bank.
+ *
+ * Records are shipped from the journal file only once they are durable, by
+ * one thread per follower; the leader's operations do no replication work
+ * and never wait for a follower. Whatever became durable since the last send
+ * goes out as one frame of up to {@link #BATCH_BYTES}, so under load one
+ * frame carries a whole group commit. A frame may end inside a record; the
+ * follower keeps the partial record until the rest arrives.
+ *
+ * Lag is reported on the leader's clock: {@link #lagBytes()} is how far the
+ * slowest follower's applied position is behind the durable journal, and
+ * {@link #replicationLatency()} the time from shipping a frame to the
+ * follower acknowledging that it has applied it.
+ *
+ * Protocol (big-endian):
+ * <pre>
+ *   follower to leader, once:     int magic, long position to start from
+ *   leader to follower, repeated: long start position, long durable position,
+ *                                 int length, journal bytes (length 0 = heartbeat)
+ *   follower to leader, per frame: long applied position
+ * </pre>
+ */
+public final class ReplicationLeader implements Closeable {
+
+    static final int MAGIC = 0x42524550; // "BREP"
+
+    static final int BATCH_BYTES = 256 * 1024;
+
+    // A heartbeat goes out when nothing new became durable for this long
+    private static final long HEARTBEAT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Journal journal;
+    private final Path journalFile;
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder shippedBytes = new LongAdder();
+    private volatile boolean closed;
+
+    private ReplicationLeader(Journal journal, Path journalFile, ServerSocket server) {
+        this.journal = journal;
+        this.journalFile = journalFile;
+        this.server = server;
+        this.acceptor = daemon(this::acceptLoop, "replication-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Starts accepting followers of {@code bank} on {@code port} of the
+     * loopback interface (0 picks a free port).
+     *
+     * @param bank        a bank opened with {@link Bank#open}
+     * @param journalFile the journal file that bank was opened with
+     * @throws IllegalArgumentException if the bank has no journal
+     */
+    public static ReplicationLeader start(Bank bank, Path journalFile, int port) throws IOException {
+        Journal journal = bank.getJournal();
+        if (journal == null || journalFile == null) {
+            throw new IllegalArgumentException("Replication needs a journaled bank and its journal file.");
+        }
+        ServerSocket server = new ServerSocket(port, 16, InetAddress.getLoopbackAddress());
+        return new ReplicationLeader(journal, journalFile, server);
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public int followerCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Journal position up to which records can be shipped.
+     */
+    public long durablePosition() {
+        return journal.durablePosition();
+    }
+
+    /**
+     * Bytes of durable journal the slowest connected follower has not yet
+     * applied; 0 without followers.
+     */
+    public long lagBytes() {
+        long durable = journal.durablePosition();
+        long lag = 0;
+        for (Session session : sessions) {
+            lag = Math.max(lag, durable - session.acked);
+        }
+        return lag;
+    }
+
+    /**
+     * Nanoseconds from shipping a frame until a follower reported it applied.
+     */
+    public LatencyHistogram.Snapshot replicationLatency() {
+        return latency.snapshot();
+    }
+
+    /**
+     * Journal bytes sent to all followers so far.
+     */
+    public long shippedBytes() {
+        return shippedBytes.sum();
+    }
+
+    /**
+     * Stops accepting and disconnects every follower. The bank and its
+     * journal stay open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        server.close();
+        List<Session> open = new ArrayList<>(sessions);
+        for (Session session : open) {
+            session.close();
+        }
+        try {
+            acceptor.join();
+            for (Session session : open) {
+                session.shipper.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return; // Closed
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket);
+                sessions.add(session);
+                session.shipper.start();
+            } catch (IOException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * One connected follower: a thread shipping frames and a thread reading
+     * its acknowledgements.
+     */
+    private final class Session {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final Thread shipper;
+        private final Thread acks;
+        // Frames not yet acknowledged: end position and nanoTime when shipped. Guarded by itself.
+        private final ArrayDeque<long[]> unacked = new ArrayDeque<>();
+        private volatile long acked;
+
+        Session(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            int port = socket.getPort();
+            this.shipper = daemon(this::shipLoop, "replication-shipper-" + port);
+            this.acks = daemon(this::ackLoop, "replication-acks-" + port);
+        }
+
+        private void shipLoop() {
+            try (FileChannel file = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a replication follower.");
+                }
+                long position = in.readLong();
+                if (position < 0 || position > journal.durablePosition()) {
+                    throw new IOException("Follower position " + position + " is not in the journal.");
+                }
+                acked = position;
+                acks.start();
+                ByteBuffer batch = ByteBuffer.allocate(BATCH_BYTES);
+                while (!closed) {
+                    long durable = journal.awaitDurableAfter(position, HEARTBEAT_NANOS);
+                    batch.clear();
+                    batch.limit((int) Math.min(BATCH_BYTES, durable - position));
+                    while (batch.hasRemaining()) {
+                        if (file.read(batch, position + batch.position()) < 0) {
+                            throw new EOFException("Journal file is shorter than its durable position.");
+                        }
+                    }
+                    int length = batch.position();
+                    if (length > 0) {
+                        // Before sending: the acknowledgement may arrive before flush returns
+                        shippedBytes.add(length);
+                        synchronized (unacked) {
+                            unacked.add(new long[]{position + length, System.nanoTime()});
+                        }
+                    }
+                    out.writeLong(position);
+                    out.writeLong(durable);
+                    out.writeInt(length);
+                    out.write(batch.array(), 0, length);
+                    out.flush();
+                    position += length;
+                }
+            } catch (IOException | UncheckedIOException | IllegalStateException e) {
+                // Follower gone, or journal closed or failed: drop the follower
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void ackLoop() {
+            try {
+                while (true) {
+                    long applied = in.readLong();
+                    acked = applied;
+                    long now = System.nanoTime();
+                    synchronized (unacked) {
+                        while (!unacked.isEmpty() && unacked.peek()[0] <= applied) {
+                            latency.record(now - unacked.poll()[1]);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            sessions.remove(this);
+            closeQuietly(socket);
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with it
+        }
+    }
+}
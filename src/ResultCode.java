@@ -0,0 +1,36 @@
+/**
+ * Outcome of a banking operation. {@link #OK} means the operation was applied;
+ * every other value names the check that rejected it.
+ *
+ * Each constant has a stable one-byte {@link #code()} so results can be
+ * returned in compact {@code byte[]} arrays (see {@link Bank#transferBatch}).
+ * New constants are only ever appended, so existing codes never change.
+ */
+public enum ResultCode {
+    OK,
+    UNKNOWN_ACCOUNT,
+    SAME_ACCOUNT,
+    NOT_ACTIVE,
+    NON_POSITIVE_AMOUNT,
+    INSUFFICIENT_BALANCE,
+    BALANCE_OVERFLOW,
+    DAILY_LIMIT_EXCEEDED,
+    LIMIT_OUT_OF_RANGE,
+    NO_CHANGE,
+    INVALID_ARGUMENT,
+    TRANSACTION_LIMIT_EXCEEDED,
+    VELOCITY_LIMIT_EXCEEDED;
+
+    private static final ResultCode[] BY_CODE = values();
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    public static ResultCode fromCode(byte code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown result code: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
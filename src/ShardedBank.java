@@ -0,0 +1,608 @@
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Alternative {@link Bank} execution engine without locks.
+ *
+ * Accounts are hash-partitioned by account number across a fixed number of
+ * shards. Each shard owns its accounts outright: one thread consumes the
+ * shard's command ring and is the only code that reads or writes them, so
+ * account state is plain fields with no locks or atomics, and a shard's
+ * working set stays in its core's cache.
+ *
+ * Every operation is a command put on the owning shard's ring and completes a
+ * future on the shard thread (callbacks attached to it run there too, so they
+ * must not block). The blocking methods simply wait for that future.
+ *
+ * A transfer between two shards is two messages. The source shard validates
+ * the debit and moves the amount from the balance into a reservation, then
+ * asks the target shard to credit it. The target either credits it and tells
+ * the source to release the reservation, or rejects it and tells the source
+ * to refund. Balances never go negative and money in flight is always held by
+ * exactly one reservation. Messages between shards use an unbounded mailbox
+ * so two shards sending to each other can never block on full rings.
+ *
+ * Rules are the same as for {@link Bank} and {@link BankAccount}.
+ */
+public class ShardedBank implements Closeable {
+
+    private static final int DEFAULT_RING_CAPACITY = 1 << 14;
+
+    // Commands
+    private static final byte ADD = 1;
+    private static final byte DEPOSIT = 2;
+    private static final byte WITHDRAW = 3;
+    private static final byte TRANSFER = 4;
+    private static final byte STATUS = 5;
+    private static final byte LIMIT = 6;
+    private static final byte BALANCE = 7;
+    private static final byte CANCELLED = 0; // Submitted while closing; its future has already failed
+
+    // Shard-to-shard messages
+    private static final byte CREDIT = 8;
+    private static final byte COMMIT = 9;
+    private static final byte ABORT = 10;
+
+    private final Shard[] shards;
+    private final BankClock clock;
+    private volatile boolean closed;  // No new commands accepted
+    private volatile boolean stopped; // Shard threads exit
+
+    /**
+     * Creates an engine with {@code shardCount} shard threads and the system clock.
+     */
+    public ShardedBank(int shardCount) {
+        this(shardCount, DEFAULT_RING_CAPACITY, BankClock.systemDefault());
+    }
+
+    /**
+     * @param shardCount   number of shards (and threads)
+     * @param ringCapacity commands each shard can queue before producers wait (rounded up to a power of two)
+     * @param clock        clock for daily withdrawal limits
+     */
+    public ShardedBank(int shardCount, int ringCapacity, BankClock clock) {
+        if (shardCount <= 0 || ringCapacity <= 0 || ringCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Shard count and ring capacity must be positive.");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null.");
+        }
+        this.clock = clock;
+        this.shards = new Shard[shardCount];
+        int capacity = Integer.highestOneBit(ringCapacity * 2 - 1);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, capacity);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // --------- Asynchronous API --------- //
+
+    /**
+     * Adds an account. Same validation as the {@link BankAccount} constructor;
+     * completes with false if the number is taken.
+     */
+    public CompletableFuture<Boolean> addAccountAsync(String accountNumber, String ownerName, long initialBalance,
+                                                      long dailyWithdrawalLimit) {
+        BankAccount.checkArguments(accountNumber, ownerName, initialBalance, dailyWithdrawalLimit);
+        String number = accountNumber.trim();
+        return submit(ADD, number, ownerName.trim(), initialBalance, dailyWithdrawalLimit, null);
+    }
+
+    public CompletableFuture<Boolean> depositAsync(String accountNumber, long amount) {
+        return submit(DEPOSIT, accountNumber, null, amount, 0, null);
+    }
+
+    public CompletableFuture<Boolean> withdrawAsync(String accountNumber, long amount) {
+        return submit(WITHDRAW, accountNumber, null, amount, 0, null);
+    }
+
+    public CompletableFuture<Boolean> transferAsync(String fromAccountNumber, String toAccountNumber, long amount) {
+        if (toAccountNumber == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(TRANSFER, fromAccountNumber, toAccountNumber, amount, 0, null);
+    }
+
+    public CompletableFuture<Boolean> changeStatusAsync(String accountNumber, AccountStatus newStatus) {
+        if (newStatus == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(STATUS, accountNumber, null, 0, 0, newStatus);
+    }
+
+    /**
+     * Completes with false for an unknown account, a limit outside the range
+     * of {@link AccountPolicy#STANDARD}, or the current limit.
+     */
+    public CompletableFuture<Boolean> setDailyLimitAsync(String accountNumber, long newLimit) {
+        return submit(LIMIT, accountNumber, null, newLimit, 0, null);
+    }
+
+    /**
+     * Completes with the balance in cents, or -1 if there is no such account.
+     */
+    public CompletableFuture<Long> balanceAsync(String accountNumber) {
+        return submit(BALANCE, accountNumber, null, 0, 0, null);
+    }
+
+    // --------- Blocking API --------- //
+
+    public boolean addAccount(String accountNumber, String ownerName, long initialBalance,
+                              long dailyWithdrawalLimit) {
+        return addAccountAsync(accountNumber, ownerName, initialBalance, dailyWithdrawalLimit).join();
+    }
+
+    public boolean deposit(String accountNumber, long amount) {
+        return depositAsync(accountNumber, amount).join();
+    }
+
+    public boolean withdraw(String accountNumber, long amount) {
+        return withdrawAsync(accountNumber, amount).join();
+    }
+
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        return transferAsync(fromAccountNumber, toAccountNumber, amount).join();
+    }
+
+    public boolean changeStatus(String accountNumber, AccountStatus newStatus) {
+        return changeStatusAsync(accountNumber, newStatus).join();
+    }
+
+    public boolean setDailyLimit(String accountNumber, long newLimit) {
+        return setDailyLimitAsync(accountNumber, newLimit).join();
+    }
+
+    public long getBalanceCents(String accountNumber) {
+        return balanceAsync(accountNumber).join();
+    }
+
+    /**
+     * Stops the shard threads once every command already accepted (including
+     * the second half of cross-shard transfers) has run. Commands submitted
+     * from then on fail with {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Work only creates more work while a transfer is in flight, so one
+        // pass that finds every shard idle means all of them are done.
+        while (!allIdle()) {
+            LockSupport.parkNanos(100_000);
+        }
+        stopped = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean allIdle() {
+        for (Shard shard : shards) {
+            if (!shard.ring.isEmpty() || !shard.mailbox.isEmpty() || shard.outstanding != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --------- Dispatch --------- //
+
+    private <T> CompletableFuture<T> submit(byte op, String number, String other, long amount, long amount2,
+                                            AccountStatus status) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (number == null) {
+            // Unknown account
+            complete(future, op == BALANCE ? -1L : Boolean.FALSE);
+            return future;
+        }
+        shardOf(number).ring.put(op, number, other, amount, amount2, status, future);
+        return future;
+    }
+
+    private static void failClosed(CompletableFuture<?> future) {
+        future.completeExceptionally(new IllegalStateException("Bank is closed."));
+    }
+
+    private Shard shardOf(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void complete(CompletableFuture<?> future, Object value) {
+        ((CompletableFuture<Object>) future).complete(value);
+    }
+
+    /**
+     * Account state; touched only by its shard's thread.
+     */
+    private static final class Account {
+        long balance;
+        long reserved; // Debited by outgoing cross-shard transfers not yet credited
+        long dailyWithdrawalLimit;
+        long dailyWithdrawnAmount;
+        long withdrawalDay = BankAccount.NO_WITHDRAWAL_DAY;
+        AccountStatus status = AccountStatus.ACTIVE;
+    }
+
+    /**
+     * Message between shards of one cross-shard transfer.
+     */
+    private static final class Message {
+        final byte op;
+        final String accountNumber;
+        final String sourceAccountNumber;
+        final long amount;
+        final CompletableFuture<?> future;
+
+        Message(byte op, String accountNumber, String sourceAccountNumber, long amount, CompletableFuture<?> future) {
+            this.op = op;
+            this.accountNumber = accountNumber;
+            this.sourceAccountNumber = sourceAccountNumber;
+            this.amount = amount;
+            this.future = future;
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        final Thread thread;
+        final CommandRing ring;
+        final Queue<Message> mailbox = new ConcurrentLinkedQueue<>();
+        final Map<String, Account> accounts = new HashMap<>();
+        volatile int outstanding; // Cross-shard transfers from this shard awaiting COMMIT/ABORT; written by the shard only
+
+        Shard(int index, int ringCapacity) {
+            this.thread = new Thread(this, "bank-shard-" + index);
+            this.thread.setDaemon(true);
+            this.ring = new CommandRing(ringCapacity, thread);
+        }
+
+        void send(Message message) {
+            mailbox.add(message);
+            ring.wake();
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (!stopped) {
+                boolean worked = false;
+                for (Message message; (message = mailbox.poll()) != null; ) {
+                    onMessage(message);
+                    worked = true;
+                }
+                if (ring.poll(this)) {
+                    worked = true;
+                }
+                if (worked) {
+                    idle = 0;
+                } else if (++idle < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    ring.park(mailbox);
+                }
+            }
+        }
+
+        void execute(byte op, String number, String other, long amount, long amount2, AccountStatus status,
+                     CompletableFuture<?> future) {
+            switch (op) {
+                case CANCELLED:
+                    break;
+                case ADD:
+                    complete(future, add(number, amount, amount2));
+                    break;
+                case DEPOSIT:
+                    complete(future, deposit(accounts.get(number), amount));
+                    break;
+                case WITHDRAW:
+                    complete(future, withdraw(accounts.get(number), amount));
+                    break;
+                case TRANSFER:
+                    transfer(number, other, amount, future);
+                    break;
+                case STATUS:
+                    complete(future, changeStatus(accounts.get(number), status));
+                    break;
+                case LIMIT:
+                    complete(future, setDailyLimit(accounts.get(number), amount));
+                    break;
+                case BALANCE: {
+                    Account account = accounts.get(number);
+                    complete(future, account == null ? -1L : account.balance);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown command: " + op);
+            }
+        }
+
+        private boolean add(String number, long initialBalance, long dailyWithdrawalLimit) {
+            if (accounts.containsKey(number)) {
+                // Duplicate account number not allowed
+                return false;
+            }
+            Account account = new Account();
+            account.balance = initialBalance;
+            account.dailyWithdrawalLimit = dailyWithdrawalLimit;
+            accounts.put(number, account);
+            return true;
+        }
+
+        private boolean deposit(Account account, long amount) {
+            if (account == null || account.status != AccountStatus.ACTIVE) {
+                return false;
+            }
+            if (amount <= 0) {
+                return false;
+            }
+            if (amount > Long.MAX_VALUE - account.balance - account.reserved) {
+                // Balance would overflow (counting money that may be refunded)
+                return false;
+            }
+            account.balance += amount;
+            return true;
+        }
+
+        private boolean withdraw(Account account, long amount) {
+            if (account == null || account.status != AccountStatus.ACTIVE) {
+                return false;
+            }
+            if (amount <= 0) {
+                return false;
+            }
+            long today = clock.epochDay();
+            long withdrawn = today == account.withdrawalDay ? account.dailyWithdrawnAmount : 0;
+            if (amount > account.dailyWithdrawalLimit - withdrawn) {
+                return false;
+            }
+            if (amount > account.balance) {
+                return false;
+            }
+            account.balance -= amount;
+            account.dailyWithdrawnAmount = withdrawn + amount;
+            account.withdrawalDay = today;
+            return true;
+        }
+
+        private void transfer(String fromNumber, String toNumber, long amount, CompletableFuture<?> future) {
+            Account from = accounts.get(fromNumber);
+            if (from == null || fromNumber.equals(toNumber)) {
+                complete(future, false);
+                return;
+            }
+
+            Shard target = shardOf(toNumber);
+            if (target == this) {
+                Account to = accounts.get(toNumber);
+                boolean ok = to != null && to.status == AccountStatus.ACTIVE && amount > 0
+                        && amount <= from.balance && amount <= Long.MAX_VALUE - to.balance - to.reserved;
+                if (ok) {
+                    from.balance -= amount;
+                    to.balance += amount;
+                }
+                complete(future, ok);
+                return;
+            }
+
+            // Cross-shard: reserve here, credit there
+            if (amount <= 0 || amount > from.balance) {
+                complete(future, false);
+                return;
+            }
+            from.balance -= amount;
+            from.reserved += amount;
+            outstanding++;
+            target.send(new Message(CREDIT, toNumber, fromNumber, amount, future));
+        }
+
+        private boolean changeStatus(Account account, AccountStatus newStatus) {
+            if (account == null || account.status == newStatus) {
+                return false;
+            }
+            account.status = newStatus;
+            return true;
+        }
+
+        private boolean setDailyLimit(Account account, long newLimit) {
+            if (account == null) {
+                return false;
+            }
+            // Same range as Bank's default policy
+            if (!AccountPolicy.STANDARD.allowsDailyLimit(newLimit)) {
+                return false;
+            }
+            if (account.dailyWithdrawalLimit == newLimit) {
+                return false;
+            }
+            account.dailyWithdrawalLimit = newLimit;
+            return true;
+        }
+
+        private void onMessage(Message message) {
+            switch (message.op) {
+                case CREDIT: {
+                    Account to = accounts.get(message.accountNumber);
+                    Shard source = shardOf(message.sourceAccountNumber);
+                    if (to == null || to.status != AccountStatus.ACTIVE
+                            || message.amount > Long.MAX_VALUE - to.balance - to.reserved) {
+                        source.send(new Message(ABORT, message.sourceAccountNumber, null, message.amount,
+                                message.future));
+                        return;
+                    }
+                    to.balance += message.amount;
+                    source.send(new Message(COMMIT, message.sourceAccountNumber, null, message.amount, null));
+                    complete(message.future, true);
+                    break;
+                }
+                case COMMIT:
+                    accounts.get(message.accountNumber).reserved -= message.amount;
+                    outstanding--;
+                    break;
+                case ABORT: {
+                    Account from = accounts.get(message.accountNumber);
+                    from.reserved -= message.amount;
+                    from.balance += message.amount;
+                    outstanding--;
+                    complete(message.future, false);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown message: " + message.op);
+            }
+        }
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer ring of commands.
+     *
+     * Slots are preallocated and reused. A producer claims a sequence number,
+     * waits until the slot for it is free (the consumer has moved a full lap
+     * past it), fills the slot and publishes it by writing the slot's
+     * sequence. The consumer reads slots in sequence order, so commands of one
+     * producer run in submission order.
+     */
+    private final class CommandRing {
+
+        private final Slot[] slots;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private final Thread consumer;
+        private long head; // Consumer only
+        private volatile long consumed; // head as of the end of the last poll, for close()
+        private volatile boolean parked;
+
+        CommandRing(int capacity, Thread consumer) {
+            this.slots = new Slot[capacity];
+            this.mask = capacity - 1;
+            this.consumer = consumer;
+            for (int i = 0; i < capacity; i++) {
+                slots[i] = new Slot(i);
+            }
+        }
+
+        void put(byte op, String number, String other, long amount, long amount2, AccountStatus status,
+                 CompletableFuture<?> future) {
+            long sequence = tail.getAndIncrement();
+            // Read after claiming: close() waits for every claimed slot, so either the command
+            // is seen as rejected here or close() waits for it to run
+            if (closed) {
+                failClosed(future);
+                op = CANCELLED;
+            }
+            Slot slot = slots[(int) sequence & mask];
+            int spins = 0;
+            while (slot.sequence != sequence) {
+                if (stopped) {
+                    // Nobody will free the slot; the command was rejected above
+                    return;
+                }
+                // Ring full: wait for the consumer to free this slot
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            slot.op = op;
+            slot.number = number;
+            slot.other = other;
+            slot.amount = amount;
+            slot.amount2 = amount2;
+            slot.status = status;
+            slot.future = future;
+            slot.sequence = sequence + 1;
+            wake();
+        }
+
+        /**
+         * Runs the commands published so far, up to one lap of the ring.
+         *
+         * @return true if at least one command ran
+         */
+        boolean poll(Shard shard) {
+            int ran = 0;
+            while (ran <= mask) {
+                Slot slot = slots[(int) head & mask];
+                if (slot.sequence != head + 1) {
+                    break;
+                }
+                CompletableFuture<?> future = slot.future;
+                try {
+                    shard.execute(slot.op, slot.number, slot.other, slot.amount, slot.amount2, slot.status, future);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+                slot.number = null;
+                slot.other = null;
+                slot.status = null;
+                slot.future = null;
+                slot.sequence = head + slots.length;
+                head++;
+                ran++;
+            }
+            if (ran > 0) {
+                consumed = head;
+            }
+            return ran > 0;
+        }
+
+        boolean isEmpty() {
+            return tail.get() == consumed;
+        }
+
+        void park(Queue<Message> mailbox) {
+            parked = true;
+            // Re-check after announcing, so a producer either sees "parked" or we see its command
+            if (!stopped && slots[(int) head & mask].sequence != head + 1 && mailbox.isEmpty()) {
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+
+        void wake() {
+            if (parked) {
+                LockSupport.unpark(consumer);
+            }
+        }
+    }
+
+    private static final class Slot {
+        volatile long sequence;
+        byte op;
+        String number;
+        String other;
+        long amount;
+        long amount2;
+        AccountStatus status;
+        CompletableFuture<?> future;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
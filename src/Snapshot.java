@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Point-in-time image of every account of a {@link Bank}, stored in a
+ * fixed-layout binary file that is written and read through memory mappings.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header   int magic, int version, long journalStart, long accountCount
+ *   records  accountCount x 56 bytes:
+ *            long balance, long dailyWithdrawalLimit, long dailyWithdrawnAmount,
+ *            long withdrawalDay, long journalLsn, long stringOffset, byte status,
+ *            7 bytes padding
+ *   strings  per account: short length + UTF-8 account number,
+ *            short length + UTF-8 owner name (stringOffset points here)
+ * </pre>
+ *
+ * Snapshots are taken while the bank keeps running: each account is copied
+ * under its own lock together with the journal position of its last change.
+ * Recovery loads the snapshot and replays the journal from
+ * {@code journalStart}, skipping records an account already contains.
+ */
+final class Snapshot {
+
+    private static final int MAGIC = 0x42534e50; // "BSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    static final int RECORD_BYTES = 56;
+    private static final byte[] PADDING = new byte[7];
+
+    // Mapping window; keeps each MappedByteBuffer well below the 2 GB limit.
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private final long journalStart;
+    private final ConcurrentMap<String, BankAccount> accounts;
+
+    private Snapshot(long journalStart, ConcurrentMap<String, BankAccount> accounts) {
+        this.journalStart = journalStart;
+        this.accounts = accounts;
+    }
+
+    /**
+     * Journal position from which records must be replayed on top of this snapshot.
+     */
+    long journalStart() {
+        return journalStart;
+    }
+
+    ConcurrentMap<String, BankAccount> accounts() {
+        return accounts;
+    }
+
+    /**
+     * Writes a snapshot of {@code accounts} to {@code file}, replacing it
+     * atomically once the new image is complete and on disk.
+     *
+     * @param journalStart journal position read before the accounts were listed
+     */
+    static void write(Path file, long journalStart, Collection<BankAccount> accounts) throws IOException {
+        List<BankAccount> list = new ArrayList<>(accounts);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long recordsEnd = HEADER_BYTES + (long) list.size() * RECORD_BYTES;
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedWindow records = new MappedWindow(channel, FileChannel.MapMode.READ_WRITE, 0);
+            MappedWindow strings = new MappedWindow(channel, FileChannel.MapMode.READ_WRITE, recordsEnd);
+
+            records.ensure(HEADER_BYTES);
+            records.buffer.putInt(MAGIC).putInt(VERSION).putLong(journalStart).putLong(list.size());
+
+            for (BankAccount account : list) {
+                long balance;
+                long limit;
+                long withdrawn;
+                long withdrawalDay;
+                long lsn;
+                AccountStatus status;
+                ReentrantLock lock = account.getLock();
+                lock.lock();
+                try {
+                    balance = account.getBalanceCents();
+                    limit = account.getDailyWithdrawalLimitCents();
+                    withdrawn = account.getDailyWithdrawnAmountCents();
+                    withdrawalDay = account.getWithdrawalDay();
+                    lsn = account.getJournalLsn();
+                    status = account.getStatus();
+                } finally {
+                    lock.unlock();
+                }
+
+                records.ensure(RECORD_BYTES);
+                records.buffer.putLong(balance).putLong(limit).putLong(withdrawn).putLong(withdrawalDay).putLong(lsn)
+                        .putLong(strings.position())
+                        .put(status.code())
+                        .put(PADDING);
+
+                strings.putString(account.accountNumberBytes());
+                strings.putString(account.getOwnerName().getBytes(StandardCharsets.UTF_8));
+            }
+
+            long end = strings.position();
+            records.force();
+            strings.force();
+            channel.truncate(end);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps {@code file} and rebuilds its accounts.
+     */
+    static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedWindow records = new MappedWindow(channel, FileChannel.MapMode.READ_ONLY, 0);
+            records.ensure(HEADER_BYTES);
+            if (records.buffer.getInt() != MAGIC || records.buffer.getInt() != VERSION) {
+                throw new IOException("Not a bank snapshot: " + file);
+            }
+            long journalStart = records.buffer.getLong();
+            long count = records.buffer.getLong();
+            if (count < 0 || HEADER_BYTES + count * RECORD_BYTES > channel.size()) {
+                throw new IOException("Truncated bank snapshot: " + file);
+            }
+
+            ConcurrentMap<String, BankAccount> accounts = new ConcurrentHashMap<>((int) Math.min(
+                    Integer.MAX_VALUE, count * 4 / 3 + 1));
+            MappedWindow strings = new MappedWindow(channel, FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + count * RECORD_BYTES);
+            for (long i = 0; i < count; i++) {
+                records.ensure(RECORD_BYTES);
+                long balance = records.buffer.getLong();
+                long limit = records.buffer.getLong();
+                long withdrawn = records.buffer.getLong();
+                long withdrawalDay = records.buffer.getLong();
+                long lsn = records.buffer.getLong();
+                records.buffer.getLong(); // string offset; strings are read sequentially
+                AccountStatus status = AccountStatus.fromCode(records.buffer.get());
+                records.buffer.position(records.buffer.position() + 7);
+
+                String number = strings.getString();
+                String owner = strings.getString();
+                BankAccount account = BankAccount.ofCents(number, owner, balance, limit);
+                account.applyRecoveredState(balance, limit, withdrawn, withdrawalDay, status);
+                account.setJournalLsn(lsn);
+                accounts.put(account.getAccountNumber(), account);
+            }
+            return new Snapshot(journalStart, accounts);
+        }
+    }
+
+    /**
+     * Sequential cursor over a file that maps one window at a time.
+     */
+    private static final class MappedWindow {
+
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private long base;
+        private MappedByteBuffer buffer;
+
+        MappedWindow(FileChannel channel, FileChannel.MapMode mode, long position) {
+            this.channel = channel;
+            this.mode = mode;
+            this.base = position;
+        }
+
+        long position() {
+            return buffer == null ? base : base + buffer.position();
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer != null && buffer.remaining() >= bytes) {
+                return;
+            }
+            long position = position();
+            force();
+            long size = mode == FileChannel.MapMode.READ_ONLY
+                    ? Math.min(WINDOW_BYTES, channel.size() - position)
+                    : WINDOW_BYTES;
+            if (size < bytes) {
+                throw new IOException("Truncated bank snapshot");
+            }
+            base = position;
+            buffer = channel.map(mode, base, size);
+        }
+
+        void putString(byte[] bytes) throws IOException {
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        String getString() throws IOException {
+            ensure(2);
+            int length = buffer.getShort() & 0xFFFF;
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void force() {
+            if (buffer != null && mode == FileChannel.MapMode.READ_WRITE) {
+                buffer.force();
+            }
+        }
+    }
+}
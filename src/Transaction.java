@@ -0,0 +1,75 @@
+/**
+ * One entry of an account's transaction history (see
+ * {@link BankAccount#getRecentTransactions(int)}). Amounts are in cents.
+ */
+public final class Transaction {
+
+    public enum Type {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER_OUT,
+        TRANSFER_IN;
+
+        private static final Type[] VALUES = values();
+
+        static Type ofCode(byte code) {
+            if (code < 0 || code >= VALUES.length) {
+                throw new IllegalArgumentException("Unknown transaction type code: " + code);
+            }
+            return VALUES[code];
+        }
+
+        byte code() {
+            return (byte) ordinal();
+        }
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final long amountCents;
+    private final String counterparty;
+    private final long timestampMillis;
+
+    Transaction(long sequence, Type type, long amountCents, String counterparty, long timestampMillis) {
+        this.sequence = sequence;
+        this.type = type;
+        this.amountCents = amountCents;
+        this.counterparty = counterparty;
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * Position in the account's history, starting at 0 for its first transaction.
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public long amountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Account number of the other side of a transfer, or null.
+     */
+    public String counterparty() {
+        return counterparty;
+    }
+
+    /**
+     * Time of the transaction, from {@link BankClock#currentTimeMillis()}.
+     */
+    public long timestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction{#" + sequence + " " + type + " " + Money.toAmount(amountCents)
+                + (counterparty != null ? " " + counterparty : "") + " at " + timestampMillis + "}";
+    }
+}
@@ -0,0 +1,353 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Bounded history of an account's recent transactions, kept in a ring of
+ * primitive arrays so that recording one allocates nothing. Enabled with
+ * {@link Bank#enableHistory(int)} or {@link BankAccount#enableHistory(int)};
+ * the instance methods are guarded by the owning account's lock.
+ *
+ * Once the ring is full each transaction overwrites the oldest one.
+ * {@link #spill(Bank, Path)} appends every entry recorded since the last
+ * spill to a history file, so calling it at least once per {@code capacity}
+ * transactions of the busiest account keeps the complete history;
+ * {@link #read(Path, String)} reads an account's entries back.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   header   int magic, int version
+ *   entries  int length of the body, then the body:
+ *              short length + UTF-8 account number, long sequence, byte type,
+ *              long amount, long timestampMillis,
+ *              short length + UTF-8 counterparty (0 = none)
+ *            then int CRC32C of the body
+ * </pre>
+ * As with {@link Journal}, a crash can leave a torn entry at the end of the
+ * file: {@link #read} stops before it and the next spill truncates it. A
+ * spill that fails truncates the file back to where it started, so retrying
+ * writes no entry twice.
+ */
+public final class TransactionHistory {
+
+    public static final int MAX_CAPACITY = 1 << 16;
+
+    static final int MAGIC = 0x42485354; // "BHST"
+    static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 8;
+    // Fixed fields of an entry body: two string lengths, sequence, type, amount, timestamp
+    private static final int MIN_BODY_BYTES = 2 + 25 + 2;
+    private static final int MAX_BODY_BYTES = MIN_BODY_BYTES + 2 * 0xFFFF;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    // Holds the largest entry: two strings of up to 0xFFFF bytes plus the fixed fields
+    private static final int SPILL_BUFFER_BYTES = 256 * 1024;
+
+    // History file -> size at the end of the last spill that checked or wrote it,
+    // so a file is only scanned for a torn tail when something else changed it.
+    // Guarded by the class (spill is static synchronized).
+    private static final Map<Path, Long> verifiedSizes = new HashMap<>();
+
+    private final byte[] types;
+    private final long[] amounts;
+    private final String[] counterparties;
+    private final long[] timestamps;
+
+    // Number of transactions ever recorded; entry n is in slot n % capacity
+    private long recorded;
+    // Entries below this sequence are in a history file
+    private long spilled;
+
+    TransactionHistory(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("History capacity must be between 1 and " + MAX_CAPACITY + ".");
+        }
+        types = new byte[capacity];
+        amounts = new long[capacity];
+        counterparties = new String[capacity];
+        timestamps = new long[capacity];
+    }
+
+    int capacity() {
+        return types.length;
+    }
+
+    void record(Transaction.Type type, long amount, String counterparty, long timestampMillis) {
+        int slot = (int) (recorded % types.length);
+        types[slot] = type.code();
+        amounts[slot] = amount;
+        counterparties[slot] = counterparty;
+        timestamps[slot] = timestampMillis;
+        recorded++;
+    }
+
+    /**
+     * Adds the last {@code n} retained transactions to {@code out}, oldest first.
+     */
+    void copyRecent(int n, List<Transaction> out) {
+        long from = Math.max(recorded - Math.min(n, types.length), 0);
+        for (long seq = from; seq < recorded; seq++) {
+            int slot = (int) (seq % types.length);
+            out.add(new Transaction(seq, Transaction.Type.ofCode(types[slot]), amounts[slot],
+                    counterparties[slot], timestamps[slot]));
+        }
+    }
+
+    /**
+     * Writes every retained entry not yet spilled to {@code file} (created if
+     * missing, appended to otherwise) and returns how many were written.
+     * Entries overwritten since the last spill are not in the file. Accounts
+     * are only locked while their entries are copied; entries count as
+     * spilled once the file is forced to disk.
+     */
+    public static synchronized long spill(Bank bank, Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        int count = bank.size();
+        long[] spilledUpTo = new long[count];
+        long written = 0;
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long start = out.size();
+            if (start > 0) {
+                checkHeader(out, file);
+                Long verified = verifiedSizes.remove(key);
+                if (verified == null || verified != start) {
+                    start = validEnd(out);
+                    out.truncate(start);
+                }
+            }
+            try {
+                written = write(bank, count, out, start, spilledUpTo);
+            } catch (IOException | RuntimeException e) {
+                // Leave the file as it was, so a retry writes no entry twice
+                try {
+                    out.truncate(start);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                throw e;
+            }
+            verifiedSizes.put(key, out.size());
+        }
+        for (int i = 0; i < count; i++) {
+            if (spilledUpTo[i] > 0) {
+                BankAccount account = bank.accountAt(i);
+                ReentrantLock lock = account.getLock();
+                lock.lock();
+                try {
+                    TransactionHistory history = account.getHistory();
+                    history.spilled = Math.max(history.spilled, spilledUpTo[i]);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return written;
+    }
+
+    // Appends the unspilled entries of the first count accounts at position
+    // start, then forces the file; fills spilledUpTo per account
+    private static long write(Bank bank, int count, FileChannel out, long start, long[] spilledUpTo)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SPILL_BUFFER_BYTES);
+        if (start == 0) {
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+        out.position(start);
+        CRC32C crc = new CRC32C();
+        Copy copy = new Copy();
+        long written = 0;
+        for (int i = 0; i < count; i++) {
+            BankAccount account = bank.accountAt(i);
+            if (!copy.take(account)) {
+                continue;
+            }
+            byte[] number = checkLength(account.accountNumberBytes(), "Account number");
+            for (int e = 0; e < copy.entries; e++) {
+                byte[] counterparty = copy.counterparties[e] == null ? new byte[0]
+                        : checkLength(copy.counterparties[e].getBytes(StandardCharsets.UTF_8), "Counterparty");
+                int body = MIN_BODY_BYTES + number.length + counterparty.length;
+                if (buffer.remaining() < 4 + body + 4) {
+                    drain(buffer, out);
+                }
+                buffer.putInt(body);
+                int bodyStart = buffer.position();
+                buffer.putShort((short) number.length).put(number)
+                        .putLong(copy.firstSequence + e).put(copy.types[e])
+                        .putLong(copy.amounts[e]).putLong(copy.timestamps[e])
+                        .putShort((short) counterparty.length).put(counterparty);
+                crc.reset();
+                crc.update(buffer.duplicate().position(bodyStart).limit(buffer.position()));
+                buffer.putInt((int) crc.getValue());
+            }
+            written += copy.entries;
+            spilledUpTo[i] = copy.firstSequence + copy.entries;
+        }
+        drain(buffer, out);
+        out.force(false);
+        return written;
+    }
+
+    /**
+     * Reads the entries of {@code accountNumber} from a history file, in the
+     * order they were spilled.
+     */
+    public static List<Transaction> read(Path file, String accountNumber) throws IOException {
+        byte[] wanted = accountNumber.getBytes(StandardCharsets.UTF_8);
+        List<Transaction> result = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file),
+                BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a transaction history file: " + file);
+            }
+            ByteBuffer body = ByteBuffer.allocate(MAX_BODY_BYTES);
+            CRC32C crc = new CRC32C();
+            // Stops at the end of the file or before a torn entry
+            while (readEntry(in, body, crc)) {
+                int length = body.getShort() & 0xFFFF;
+                int numberStart = body.position();
+                body.position(numberStart + length);
+                long sequence = body.getLong();
+                byte type = body.get();
+                long amount = body.getLong();
+                long timestamp = body.getLong();
+                int counterpartyLength = body.getShort() & 0xFFFF;
+                if (length == wanted.length
+                        && Arrays.equals(body.array(), numberStart, numberStart + length, wanted, 0, length)) {
+                    result.add(new Transaction(sequence, Transaction.Type.ofCode(type), amount,
+                            counterpartyLength == 0 ? null : new String(body.array(), body.position(),
+                                    counterpartyLength, StandardCharsets.UTF_8),
+                            timestamp));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Reads the next entry's body into body (flipped for reading); false at
+    // the end of the file or at an incomplete or damaged entry
+    private static boolean readEntry(DataInputStream in, ByteBuffer body, CRC32C crc) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < MIN_BODY_BYTES || length > MAX_BODY_BYTES) {
+                return false;
+            }
+            body.clear();
+            in.readFully(body.array(), 0, length);
+            int checksum = in.readInt();
+            crc.reset();
+            crc.update(body.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return false;
+            }
+            body.limit(length);
+            return true;
+        } catch (EOFException torn) {
+            return false;
+        }
+    }
+
+    // Position after the last complete entry of a history file
+    private static long validEnd(FileChannel channel) throws IOException {
+        // Not closed: closing the stream would close the channel
+        InputStream stream = Channels.newInputStream(channel.position(HEADER_BYTES));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_BYTES));
+        ByteBuffer body = ByteBuffer.allocate(MAX_BODY_BYTES);
+        CRC32C crc = new CRC32C();
+        long end = HEADER_BYTES;
+        while (readEntry(in, body, crc)) {
+            end += 4 + body.limit() + 4;
+        }
+        return end;
+    }
+
+    private static void checkHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        int read;
+        do {
+            read = channel.read(header, header.position());
+        } while (read > 0 && header.hasRemaining());
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a transaction history file: " + file);
+        }
+    }
+
+    private static byte[] checkLength(byte[] utf8, String field) throws IOException {
+        if (utf8.length > 0xFFFF) {
+            throw new IOException(field + " too long for the history format: " + utf8.length + " bytes");
+        }
+        return utf8;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Unspilled entries of one account, copied under its lock.
+     */
+    private static final class Copy {
+
+        byte[] types = new byte[0];
+        long[] amounts = new long[0];
+        String[] counterparties = new String[0];
+        long[] timestamps = new long[0];
+        long firstSequence;
+        int entries;
+
+        // Returns false if the account has nothing to spill
+        boolean take(BankAccount account) {
+            ReentrantLock lock = account.getLock();
+            lock.lock();
+            try {
+                TransactionHistory history = account.getHistory();
+                if (history == null) {
+                    return false;
+                }
+                int capacity = history.types.length;
+                firstSequence = Math.max(history.spilled, history.recorded - capacity);
+                entries = (int) (history.recorded - firstSequence);
+                if (entries == 0) {
+                    return false;
+                }
+                if (types.length < entries) {
+                    types = new byte[capacity];
+                    amounts = new long[capacity];
+                    counterparties = new String[capacity];
+                    timestamps = new long[capacity];
+                }
+                for (int e = 0; e < entries; e++) {
+                    int slot = (int) ((firstSequence + e) % capacity);
+                    types[e] = history.types[slot];
+                    amounts[e] = history.amounts[slot];
+                    counterparties[e] = history.counterparties[slot];
+                    timestamps[e] = history.timestamps[slot];
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
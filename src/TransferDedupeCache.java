@@ -0,0 +1,159 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Remembers the results of recent keyed transfers so that a retried request
+ * gets the original result instead of moving money twice (see
+ * {@link Bank#tryTransferCents(String, String, String, long)}).
+ *
+ * Memory is fixed at construction: parallel arrays organised as sets of
+ * {@link #WAYS} slots, each request ID hashing to one set. Sets are guarded
+ * by {@link #STRIPES} striped locks, so there is no global lock. An entry is
+ * forgotten once it is older than the time-to-live, or when its set is full
+ * and it is the oldest entry there; the cache therefore keeps at least the
+ * last {@code capacity / WAYS} requests per set and may forget sooner under
+ * skewed hashing.
+ *
+ * A request runs in three steps: {@link #begin} reserves a slot (or returns
+ * the remembered result), the caller performs the transfer, then
+ * {@link #complete} stores the result. A duplicate arriving while the
+ * original is still running waits for its result.
+ */
+final class TransferDedupeCache {
+
+    static final int DEFAULT_CAPACITY = 1 << 16;
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private static final int WAYS = 8;
+    private static final int STRIPES = 64;
+    private static final byte PENDING = -1;
+
+    private final String[] keys;
+    private final int[] hashes;
+    private final long[] createdMillis;
+    private final byte[] results; // ResultCode.code(), or PENDING while the transfer runs
+    private final int setMask;
+    private final long ttlMillis;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Condition[] changed = new Condition[STRIPES];
+
+    /**
+     * @param capacity  number of remembered requests, rounded up to a power of two of at least {@link #WAYS}
+     * @param ttlMillis how long a result is remembered
+     */
+    TransferDedupeCache(int capacity, long ttlMillis) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Dedupe capacity must be between 1 and 2^30.");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Dedupe time-to-live must be positive.");
+        }
+        int slots = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+        keys = new String[slots];
+        hashes = new int[slots];
+        createdMillis = new long[slots];
+        results = new byte[slots];
+        setMask = slots / WAYS - 1;
+        this.ttlMillis = ttlMillis;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+            changed[i] = locks[i].newCondition();
+        }
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Looks up {@code requestId}. If its result is remembered, returns
+     * {@code -1 - code}; otherwise reserves a slot and returns its index,
+     * which the caller must pass to {@link #complete} or {@link #abort}.
+     */
+    int begin(String requestId, long nowMillis) {
+        int hash = spread(requestId.hashCode());
+        int base = (hash & setMask) * WAYS;
+        int stripe = stripeOf(base);
+        ReentrantLock lock = locks[stripe];
+        lock.lock();
+        try {
+            while (true) {
+                int free = -1;
+                int oldest = -1;
+                boolean wait = false;
+                for (int slot = base; slot < base + WAYS; slot++) {
+                    String key = keys[slot];
+                    if (key == null) {
+                        free = free < 0 ? slot : free;
+                        continue;
+                    }
+                    boolean pending = results[slot] == PENDING;
+                    if (!pending && nowMillis - createdMillis[slot] >= ttlMillis) {
+                        // Expired: reusable, and no longer a match
+                        free = free < 0 ? slot : free;
+                    } else if (hashes[slot] == hash && key.equals(requestId)) {
+                        if (!pending) {
+                            return -1 - results[slot];
+                        }
+                        wait = true;
+                        break;
+                    } else if (!pending && (oldest < 0 || createdMillis[slot] < createdMillis[oldest])) {
+                        oldest = slot;
+                    }
+                }
+                int slot = free >= 0 ? free : oldest;
+                if (wait || slot < 0) {
+                    // The original is still running, or every slot of the set is in use
+                    changed[stripe].awaitUninterruptibly();
+                    continue;
+                }
+                keys[slot] = requestId;
+                hashes[slot] = hash;
+                createdMillis[slot] = nowMillis;
+                results[slot] = PENDING;
+                return slot;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores the result of the transfer that reserved {@code slot}.
+     */
+    void complete(int slot, ResultCode result) {
+        int stripe = stripeOf(slot);
+        locks[stripe].lock();
+        try {
+            results[slot] = result.code();
+            changed[stripe].signalAll();
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    /**
+     * Releases {@code slot} without a result, e.g. when the transfer threw; a
+     * retry of the same request then runs again.
+     */
+    void abort(int slot) {
+        int stripe = stripeOf(slot);
+        locks[stripe].lock();
+        try {
+            keys[slot] = null;
+            results[slot] = 0;
+            changed[stripe].signalAll();
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int stripeOf(int slot) {
+        return (slot / WAYS) & (STRIPES - 1);
+    }
+}
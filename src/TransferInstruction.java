@@ -0,0 +1,45 @@
+/**
+ * One line of a transfer batch: move an amount (in cents) from one account
+ * number to another. Used with {@link Bank#transferBatch}.
+ */
+public final class TransferInstruction {
+
+    private final String fromAccountNumber;
+    private final String toAccountNumber;
+    private final long amountCents;
+
+    private TransferInstruction(String fromAccountNumber, String toAccountNumber, long amountCents) {
+        this.fromAccountNumber = fromAccountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amountCents = amountCents;
+    }
+
+    public static TransferInstruction of(String fromAccountNumber, String toAccountNumber, double amount) {
+        return new TransferInstruction(fromAccountNumber, toAccountNumber, Money.toCents(amount));
+    }
+
+    public static TransferInstruction ofCents(String fromAccountNumber, String toAccountNumber, long amountCents) {
+        return new TransferInstruction(fromAccountNumber, toAccountNumber, amountCents);
+    }
+
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferInstruction{" +
+                "from='" + fromAccountNumber + '\'' +
+                ", to='" + toAccountNumber + '\'' +
+                ", amount=" + Money.toAmount(amountCents) +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountLoaderTest {
+
+    // L1: accounts exported as CSV load back with the same state
+    @Test
+    void loadCsv_readsExportedAccounts(@TempDir Path dir) throws Exception {
+        Bank source = new Bank();
+        source.addAccount(BankAccount.ofCents("A1", "Smith, \"Jo\"", 123_45, 500_00));
+        source.addAccount(BankAccount.ofCents("A2", "Zoë", 5, 100_00));
+        source.findAccount("A1").withdrawCents(1_05);
+        source.changeStatus("A2", AccountStatus.CLOSED);
+        Path file = dir.resolve("accounts.csv");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            AccountExport.writeCsv(source, out);
+        }
+
+        Bank bank = new Bank(2);
+        AccountLoader.Result result = AccountLoader.loadCsv(bank, file);
+
+        assertEquals(2, result.loaded());
+        assertEquals(0, result.rejected());
+        BankAccount a1 = bank.findAccount("A1");
+        assertEquals("Smith, \"Jo\"", a1.getOwnerName());
+        assertEquals(122_40, a1.getBalanceCents());
+        assertEquals(1_05, a1.getDailyWithdrawnAmountCents());
+        assertEquals(AccountStatus.CLOSED, bank.findAccount("A2").getStatus());
+        assertEquals("Zoë", bank.findAccount("A2").getOwnerName());
+        assertEquals(2, bank.size());
+    }
+
+    // L2: invalid and duplicate lines are skipped and reported with their line numbers
+    @Test
+    void loadCsv_reportsRejectedLines(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("accounts.csv");
+        Files.write(file, String.join("\n",
+                "accountNumber,ownerName,balance,dailyWithdrawalLimit",
+                "A1,Fares,10.5,100",
+                "A2,Sara,-1,100",
+                "A3, ,0,100",
+                "",
+                "A4,Omar,abc,100",
+                "A1,Again,0,100",
+                "A5,Lina,1.234,100",
+                "A6,\"Lina,0,100",
+                "A7,Huda",
+                "A8,Ali,0,0",
+                "A9,Noor,7,100,0,FROZEN\r",
+                "A10,Rami,1,100,0,LOST").getBytes(StandardCharsets.UTF_8));
+
+        Bank bank = new Bank();
+        AccountLoader.Result result = AccountLoader.loadCsv(bank, file);
+
+        assertEquals(2, result.loaded());
+        assertEquals(9, result.rejected());
+        List<AccountLoader.Rejection> rejections = result.rejections();
+        long[] lines = rejections.stream().mapToLong(AccountLoader.Rejection::line).toArray();
+        assertArrayEquals(new long[]{3, 4, 6, 7, 8, 9, 10, 11, 13}, lines);
+        assertEquals("Initial balance cannot be negative.", rejections.get(0).reason());
+        assertEquals("Owner name must not be empty.", rejections.get(1).reason());
+        assertEquals("Duplicate account number.", rejections.get(3).reason());
+        assertEquals(1_050, bank.findAccount("A1").getBalanceCents());
+        assertEquals("Fares", bank.findAccount("A1").getOwnerName());
+        assertEquals(AccountStatus.FROZEN, bank.findAccount("A9").getStatus());
+    }
+
+    // L3: files spanning many chunks load completely in both formats
+    @Test
+    void load_manyChunks_bothFormats(@TempDir Path dir) throws Exception {
+        int accounts = 200_000;
+        Bank source = new Bank(accounts);
+        BankAccount[] batch = new BankAccount[accounts];
+        for (int i = 0; i < accounts; i++) {
+            batch[i] = BankAccount.ofCents("ACC" + i, "Owner " + i, i, 100_00);
+        }
+        source.addAccounts(batch);
+        Path csv = dir.resolve("accounts.csv");
+        Path binary = dir.resolve("accounts.bin");
+        try (OutputStream out = Files.newOutputStream(csv)) {
+            AccountExport.writeCsv(source, out);
+        }
+        try (OutputStream out = Files.newOutputStream(binary)) {
+            AccountExport.writeBinary(source, out);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean useCsv : new boolean[]{true, false}) {
+                Bank bank = new Bank(accounts);
+                AccountLoader.Result result = useCsv
+                        ? AccountLoader.loadCsv(bank, csv, pool)
+                        : AccountLoader.loadBinary(bank, binary, pool);
+                assertEquals(accounts, result.loaded());
+                assertEquals(0, result.rejected());
+                for (int i = 0; i < accounts; i += 9_999) {
+                    assertEquals(i, bank.findAccount("ACC" + i).getBalanceCents());
+                }
+                assertEquals(1, bank.findAccountsByOwner("Owner 123456").size());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(Files.size(csv) > 8 << 20); // More than one CSV chunk
+    }
+}
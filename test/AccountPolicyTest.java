@@ -0,0 +1,169 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class AccountPolicyTest {
+
+    private static final AccountPolicy BASIC = AccountPolicy.builder("basic")
+            .maxPerTransaction(50_00)
+            .maxTransfer(20_00)
+            .minBalance(10_00)
+            .dailyLimitRange(10_00, 300_00)
+            .build();
+
+    // P1: accounts start on the standard policy, which keeps the original rules
+    @Test
+    void standardPolicy_keepsOriginalRules() {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 100_00, 500_00));
+        BankAccount a1 = bank.findAccount("A1");
+
+        assertSame(AccountPolicy.STANDARD, a1.getPolicy());
+        assertEquals(Long.MAX_VALUE, AccountPolicy.STANDARD.maxWithdrawalCents());
+        assertEquals(ResultCode.OK, a1.tryWithdrawCents(100_00)); // Down to zero
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, bank.trySetDailyLimitCents("A1", 99_99));
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, bank.trySetDailyLimitCents("A1", 5000_01));
+        assertEquals(ResultCode.OK, bank.trySetDailyLimitCents("A1", 5000_00));
+    }
+
+    // P2: a tier's caps, minimum balance and limit range are enforced
+    @Test
+    void tierPolicy_enforcesCapsAndMinimumBalance() {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 100_00, 500_00));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, 500_00));
+        BankAccount a1 = bank.findAccount("A1");
+        a1.setPolicy(BASIC);
+
+        assertEquals(ResultCode.TRANSACTION_LIMIT_EXCEEDED, a1.tryDepositCents(50_01));
+        assertEquals(ResultCode.OK, a1.tryDepositCents(50_00));
+        assertEquals(ResultCode.TRANSACTION_LIMIT_EXCEEDED, a1.tryWithdrawCents(60_00));
+        assertEquals(ResultCode.NON_POSITIVE_AMOUNT, a1.tryWithdrawCents(0)); // Sign is checked first
+        assertEquals(ResultCode.TRANSACTION_LIMIT_EXCEEDED, bank.tryTransferCents("A1", "B1", 20_01));
+        assertEquals(ResultCode.OK, bank.tryTransferCents("A1", "B1", 20_00));
+        assertEquals(ResultCode.OK, a1.tryWithdrawCents(50_00));
+        assertEquals(ResultCode.OK, a1.tryWithdrawCents(50_00));
+        assertEquals(30_00, a1.getBalanceCents());
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, a1.tryWithdrawCents(20_01)); // Would leave less than 10
+        assertEquals(ResultCode.OK, bank.tryTransferCents("A1", "B1", 20_00));
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, bank.tryTransferCents("A1", "B1", 1));
+
+        // Only the tiered account is capped
+        assertEquals(ResultCode.OK, bank.findAccount("B1").tryDepositCents(1_000_00));
+        assertEquals(ResultCode.OK, bank.trySetDailyLimitCents("A1", 10_00));
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, bank.trySetDailyLimitCents("A1", 300_01));
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, bank.trySetDailyLimitCents("B1", 10_00));
+    }
+
+    // P3: rules for the same check combine to the strictest; invalid rules are rejected
+    @Test
+    void builder_combinesAndValidatesRules() {
+        AccountPolicy policy = AccountPolicy.builder("gold")
+                .maxWithdrawal(100_00)
+                .maxPerTransaction(200_00)
+                .maxWithdrawal(150_00)
+                .minBalance(5_00)
+                .minBalance(1_00)
+                .build();
+
+        assertEquals("gold", policy.tier());
+        assertEquals(100_00, policy.maxWithdrawalCents());
+        assertEquals(200_00, policy.maxDepositCents());
+        assertEquals(200_00, policy.maxTransferCents());
+        assertEquals(5_00, policy.minBalanceCents());
+        assertTrue(policy.allowsDailyLimit(100_00));
+        assertFalse(policy.allowsDailyLimit(99_99));
+        assertThrows(IllegalArgumentException.class, () -> AccountPolicy.builder(" "));
+        assertThrows(IllegalArgumentException.class, () -> AccountPolicy.builder("x").maxDeposit(0));
+        assertThrows(IllegalArgumentException.class, () -> AccountPolicy.builder("x").minBalance(-1));
+        assertThrows(IllegalArgumentException.class, () -> AccountPolicy.builder("x").dailyLimitRange(10, 9));
+        assertThrows(IllegalArgumentException.class, () -> BankAccount.ofCents("A1", "F", 0, 1).setPolicy(null));
+    }
+
+    private static Bank bankWithClock(AtomicLong millis) {
+        return new Bank(new BankClock() {
+            @Override
+            public long epochDay() {
+                return 0;
+            }
+
+            @Override
+            public long currentTimeMillis() {
+                return millis.get();
+            }
+        });
+    }
+
+    // P4: velocity windows count withdrawals and outgoing transfers and roll forward with time
+    @Test
+    void velocityLimits_rollingWindows() {
+        AtomicLong millis = new AtomicLong(1_000_000);
+        Bank bank = bankWithClock(millis);
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 1_000_00, 5000_00));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, 5000_00));
+        BankAccount a1 = bank.findAccount("A1");
+        a1.setPolicy(AccountPolicy.builder("velocity")
+                .velocityLimit(60_000, 6, 100_00)    // 100 per minute, in 10 s buckets
+                .velocityLimit(3_600_000, 250_00)    // 250 per hour
+                .build());
+
+        assertEquals(ResultCode.OK, a1.tryWithdrawCents(60_00));
+        assertEquals(ResultCode.OK, bank.tryTransferCents("A1", "B1", 40_00));
+        assertEquals(ResultCode.VELOCITY_LIMIT_EXCEEDED, a1.tryWithdrawCents(1));
+        assertEquals(ResultCode.VELOCITY_LIMIT_EXCEEDED, bank.tryTransferCents("A1", "B1", 1));
+        assertEquals(ResultCode.OK, bank.tryTransferCents("B1", "A1", 1)); // Incoming does not count
+        assertEquals(ResultCode.OK, a1.tryDepositCents(1));
+        millis.addAndGet(50_000);
+        assertEquals(ResultCode.VELOCITY_LIMIT_EXCEEDED, a1.tryWithdrawCents(1)); // Still within the minute
+        millis.addAndGet(10_000);
+        assertEquals(ResultCode.OK, a1.tryWithdrawCents(100_00));                // Minute has rolled over
+        millis.addAndGet(60_000);
+        assertEquals(ResultCode.VELOCITY_LIMIT_EXCEEDED, a1.tryWithdrawCents(50_01)); // Hour: 200 used
+        assertEquals(ResultCode.OK, a1.tryWithdrawCents(50_00));
+        millis.addAndGet(3_600_000);
+        assertEquals(ResultCode.OK, a1.tryWithdrawCents(100_00));
+        assertEquals(1_000_00 - 350_00 + 2, a1.getBalanceCents());
+
+        assertThrows(IllegalArgumentException.class, () -> AccountPolicy.builder("x").velocityLimit(5, 6, 1));
+        assertThrows(IllegalArgumentException.class, () -> AccountPolicy.builder("x").velocityLimit(60_000, 0));
+    }
+
+    // P5: withdrawals stay allocation-free with several velocity windows
+    @Test
+    void velocityLimits_doNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        AtomicLong millis = new AtomicLong();
+        Bank bank = bankWithClock(millis);
+        BankAccount a = BankAccount.ofCents("A1", "Fares", Long.MAX_VALUE / 2, Long.MAX_VALUE);
+        bank.addAccount(a);
+        a.setPolicy(AccountPolicy.builder("velocity")
+                .dailyLimitRange(1, Long.MAX_VALUE)
+                .velocityLimit(60_000, Long.MAX_VALUE / 4)
+                .velocityLimit(3_600_000, 60, Long.MAX_VALUE / 4)
+                .velocityLimit(86_400_000, Long.MAX_VALUE / 4)
+                .build());
+
+        long thread = Thread.currentThread().getId();
+        long before = 0;
+        // First round warms up; measure the second
+        for (int round = 0; round < 2; round++) {
+            before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 100_000; i++) {
+                millis.addAndGet(997);
+                assertTrue(a.withdrawCents(1));
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Allow for incidental JVM allocations, far below one object per call
+        assertTrue(allocated < 10_000, "allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountStatusTest {
+
+    // P1: names read from files/network (not interned) parse to the same status
+    @Test
+    void parse_nonInternedNames_returnsStatus() {
+        String fromWire = new String(new char[]{'F', 'r', 'o', 'z', 'e', 'n'});
+
+        assertSame(AccountStatus.FROZEN, AccountStatus.parse(fromWire));
+        assertSame(AccountStatus.ACTIVE, AccountStatus.parse(new StringBuilder("ACTIVE")));
+        assertSame(AccountStatus.CLOSED, AccountStatus.parse("closed"));
+    }
+
+    // P2: unknown or null names → null
+    @Test
+    void parse_unknownName_returnsNull() {
+        assertNull(AccountStatus.parse(null));
+        assertNull(AccountStatus.parse(""));
+        assertNull(AccountStatus.parse("Activ"));
+        assertNull(AccountStatus.parse("Actives"));
+        assertNull(AccountStatus.parse("Arctic"));
+    }
+
+    // P3: codes round-trip
+    @Test
+    void fromCode_roundTripsEveryStatus() {
+        for (AccountStatus status : AccountStatus.values()) {
+            assertSame(status, AccountStatus.fromCode(status.code()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> AccountStatus.fromCode((byte) 9));
+    }
+
+    // P4: a parsed status is accepted by Bank.changeStatus
+    @Test
+    void changeStatus_withParsedStatus_updatesAccount() {
+        Bank bank = new Bank();
+        bank.addAccount(new BankAccount("A123", "Fares", 1000.0, 1000.0));
+
+        assertTrue(bank.changeStatus("A123", AccountStatus.parse(new String("Frozen"))));
+
+        assertEquals(AccountStatus.FROZEN, bank.findAccount("A123").getStatus());
+    }
+}
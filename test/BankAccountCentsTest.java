@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankAccountCentsTest {
+
+    private BankAccount createActiveAccount(long balanceCents, long dailyLimitCents) {
+        BankAccount acc = BankAccount.ofCents("M123", "Fares", balanceCents, dailyLimitCents);
+        assertEquals(AccountStatus.ACTIVE, acc.getStatus());
+        return acc;
+    }
+
+    // M1: repeated 0.10 deposits stay exact (no floating-point drift)
+    @Test
+    void deposit_manySmallAmounts_isExact() {
+        BankAccount acc = createActiveAccount(0, 100_000);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(acc.deposit(0.10));
+        }
+
+        assertEquals(10_000, acc.getBalanceCents());
+        assertEquals(100.0, acc.getBalance());
+    }
+
+    // M2: daily limit reached exactly through fractional amounts → allowed
+    @Test
+    void withdraw_fractionalAmountsReachLimitExactly_returnsTrue() {
+        BankAccount acc = createActiveAccount(100_000, 30);
+
+        assertTrue(acc.withdraw(0.10));
+        assertTrue(acc.withdraw(0.20));
+
+        assertEquals(30, acc.getDailyWithdrawnAmountCents());
+        assertFalse(acc.withdrawCents(1));
+    }
+
+    // M3: sub-cent amounts round to zero cents → rejected
+    @Test
+    void deposit_subCentAmount_returnsFalse() {
+        BankAccount acc = createActiveAccount(1000, 1000);
+
+        assertFalse(acc.deposit(0.004));
+        assertEquals(1000, acc.getBalanceCents());
+    }
+
+    // M4: cents overloads move exact amounts
+    @Test
+    void transferToCents_validAmount_movesExactCents() {
+        BankAccount source = createActiveAccount(1001, 5000);
+        BankAccount target = BankAccount.ofCents("M456", "Mohammed", 0, 5000);
+
+        assertTrue(source.transferToCents(target, 333));
+
+        assertEquals(668, source.getBalanceCents());
+        assertEquals(333, target.getBalanceCents());
+    }
+
+    // M5: deposit that would overflow the balance → rejected
+    @Test
+    void depositCents_overflow_returnsFalse() {
+        BankAccount acc = createActiveAccount(Long.MAX_VALUE - 10, 1000);
+
+        assertFalse(acc.depositCents(11));
+        assertEquals(Long.MAX_VALUE - 10, acc.getBalanceCents());
+    }
+
+    // M6: ofCents validates like the constructor
+    @Test
+    void ofCents_nonPositiveLimit_throws() {
+        assertThrows(IllegalArgumentException.class, () -> BankAccount.ofCents("M1", "Owner", 0, 0));
+    }
+}
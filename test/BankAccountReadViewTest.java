@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankAccountReadViewTest {
+
+    private static final BankClock DAY_ZERO = () -> 0;
+
+    // V1: a view carries every field and its version moves with each change
+    @Test
+    void readView_reflectsCurrentState() {
+        Bank bank = new Bank(DAY_ZERO);
+        BankAccount account = BankAccount.ofCents("A1", "Fares", 100_00, 500_00);
+        bank.addAccount(account);
+
+        AccountView before = account.readView();
+        assertEquals("A1", before.accountNumber());
+        assertEquals(100_00, before.balanceCents());
+        assertEquals(500_00, before.dailyWithdrawalLimitCents());
+        assertEquals(0, before.dailyWithdrawnAmountCents());
+        assertEquals(AccountStatus.ACTIVE, before.status());
+
+        assertTrue(account.withdrawCents(30_00));
+        assertTrue(bank.changeStatus("A1", AccountStatus.FROZEN));
+        AccountView after = account.readView();
+        assertEquals(70_00, after.balanceCents());
+        assertEquals(30_00, after.dailyWithdrawnAmountCents());
+        assertEquals(AccountStatus.FROZEN, after.status());
+        assertTrue(after.version() > before.version());
+        assertEquals(0, after.version() % 2);
+
+        assertFalse(account.withdrawCents(1)); // Rejected: no change, same version
+        assertEquals(after.version(), account.readView().version());
+    }
+
+    // V2: fields changed together by one withdrawal are never seen half-updated
+    @Test
+    void readView_concurrentWithdrawals_seesWholeChanges() throws Exception {
+        BankAccount account = BankAccount.ofCents("A1", "Fares", 1_000_000, Long.MAX_VALUE);
+        account.setClock(DAY_ZERO);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            while (!stop.get() && account.withdrawCents(1)) {
+                // Keep changing balance and withdrawn amount together
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 200_000; i++) {
+                AccountView view = account.readView();
+                assertEquals(1_000_000, view.balanceCents() + view.dailyWithdrawnAmountCents());
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    // V3: a multi-account read sees each transfer on both sides or on neither
+    @Test
+    void readAccounts_concurrentTransfers_totalIsConstant() throws Exception {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 500_000, Long.MAX_VALUE));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 500_000, Long.MAX_VALUE));
+        bank.addAccount(BankAccount.ofCents("C1", "Omar", 0, Long.MAX_VALUE));
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; !stop.get(); i++) {
+                bank.transferCents((i & 1) == 0 ? "A1" : "B1", (i & 1) == 0 ? "B1" : "A1", 1 + i % 7);
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                AccountView[] views = bank.readAccounts("A1", "X1", "B1");
+                assertNull(views[1]);
+                assertEquals(1_000_000, views[0].balanceCents() + views[2].balanceCents());
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+        assertEquals(0, bank.readAccounts("C1")[0].balanceCents());
+    }
+}
@@ -0,0 +1,176 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankAtomicTransferTest {
+
+    private static Bank createBank() {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A", "Owner A", 1_000_00, 1_000_00));
+        bank.addAccount(BankAccount.ofCents("B", "Owner B", 500_00, 1_000_00));
+        bank.addAccount(BankAccount.ofCents("C", "Owner C", 0, 1_000_00));
+        bank.addAccount(BankAccount.ofCents("D", "Owner D", 0, 1_000_00));
+        return bank;
+    }
+
+    private static long balance(Bank bank, String accountNumber) {
+        return bank.findAccount(accountNumber).getBalanceCents();
+    }
+
+    // M1: all legs are applied together, each seeing the balances left by the earlier ones
+    @Test
+    void transferAtomic_allLegsValid_appliesEveryLeg() {
+        Bank bank = createBank();
+        bank.enableHistory(8);
+
+        AtomicTransferResult result = bank.tryTransferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A", "C", 400_00),
+                TransferInstruction.ofCents("A", "D", 600_00),  // Drains A
+                TransferInstruction.ofCents("C", "B", 150_00),  // Spends what leg 0 credited
+                TransferInstruction.ofCents("B", "A", 50_00),
+        });
+
+        assertTrue(result.isOk());
+        assertEquals(-1, result.failedLeg());
+        assertEquals(50_00, balance(bank, "A"));
+        assertEquals(600_00, balance(bank, "B"));
+        assertEquals(250_00, balance(bank, "C"));
+        assertEquals(600_00, balance(bank, "D"));
+        assertEquals(3, bank.findAccount("A").getRecentTransactions(10).size());
+        assertTrue(bank.transferAtomic(new TransferInstruction[0]));
+    }
+
+    // M2: one failing leg rejects the whole transfer and reports which leg failed
+    @Test
+    void transferAtomic_failingLeg_changesNothing() {
+        Bank bank = createBank();
+        bank.changeStatus("D", AccountStatus.FROZEN);
+
+        AtomicTransferResult result = bank.tryTransferAtomic(List.of(
+                TransferInstruction.ofCents("A", "B", 100_00),
+                TransferInstruction.ofCents("A", "C", 100_00),
+                TransferInstruction.ofCents("A", "D", 100_00)));
+        assertEquals(ResultCode.NOT_ACTIVE, result.result());
+        assertEquals(2, result.failedLeg());
+
+        // A has 1,000 in total, the legs ask for 1,001
+        result = bank.tryTransferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A", "B", 500_00),
+                TransferInstruction.ofCents("A", "C", 500_01),
+        });
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, result.result());
+        assertEquals(1, result.failedLeg());
+
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, bank.tryTransferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A", "B", 1), TransferInstruction.ofCents("A", "X", 1)}).result());
+        assertEquals(ResultCode.SAME_ACCOUNT, bank.tryTransferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("B", "B", 1)}).result());
+        assertEquals(ResultCode.NON_POSITIVE_AMOUNT, bank.tryTransferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A", "B", 1), TransferInstruction.ofCents("B", "C", 0)}).result());
+
+        assertEquals(1_000_00, balance(bank, "A"));
+        assertEquals(500_00, balance(bank, "B"));
+        assertEquals(0, balance(bank, "C"));
+        assertEquals(0, balance(bank, "D"));
+    }
+
+    // M3: policy caps and velocity limits count every leg from the same source
+    @Test
+    void transferAtomic_policyLimits_checkedAcrossLegs() {
+        Bank bank = createBank();
+        bank.findAccount("A").setPolicy(AccountPolicy.builder("capped")
+                .maxTransfer(300_00)
+                .velocityLimit(60_000, 500_00)
+                .minBalance(100_00)
+                .build());
+
+        AtomicTransferResult result = bank.tryTransferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A", "B", 300_01)});
+        assertEquals(ResultCode.TRANSACTION_LIMIT_EXCEEDED, result.result());
+
+        // Each leg is under the cap, but together they exceed the velocity limit
+        result = bank.tryTransferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A", "B", 300_00),
+                TransferInstruction.ofCents("A", "C", 300_00)});
+        assertEquals(ResultCode.VELOCITY_LIMIT_EXCEEDED, result.result());
+        assertEquals(1, result.failedLeg());
+
+        // The rejected transfer did not count against the window
+        assertTrue(bank.transferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A", "B", 300_00),
+                TransferInstruction.ofCents("A", "C", 200_00)}));
+        assertEquals(ResultCode.VELOCITY_LIMIT_EXCEEDED, bank.tryTransferCents("A", "D", 1));
+        assertEquals(500_00, balance(bank, "A"));
+    }
+
+    // M4: an atomic transfer is one journal record and survives a restart
+    @Test
+    void transferAtomic_journaled_survivesRestart(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("bank.journal");
+        try (Bank bank = Bank.open(file, 1, 64 * 1024)) {
+            bank.addAccount(BankAccount.ofCents("PAYER", "Payroll", 10_000_00, 1_000_00));
+            for (int i = 0; i < 100; i++) {
+                bank.addAccount(BankAccount.ofCents("E" + i, "Employee " + i, 0, 1_000_00));
+            }
+            TransferInstruction[] payroll = new TransferInstruction[100];
+            for (int i = 0; i < payroll.length; i++) {
+                payroll[i] = TransferInstruction.ofCents("PAYER", "E" + i, 50_00 + i);
+            }
+            assertTrue(bank.transferAtomic(payroll));
+            assertTrue(bank.transferCents("E0", "E1", 10_00));
+        }
+
+        try (Bank reopened = Bank.open(file, 1, 64 * 1024)) {
+            assertEquals(10_000_00 - 100 * 50_00 - 4950, reopened.findAccount("PAYER").getBalanceCents());
+            assertEquals(40_00, reopened.findAccount("E0").getBalanceCents());
+            assertEquals(60_01, reopened.findAccount("E1").getBalanceCents());
+            assertEquals(50_99, reopened.findAccount("E99").getBalanceCents());
+        }
+    }
+
+    // M5: concurrent overlapping atomic transfers neither deadlock nor lose money
+    @Test
+    void transferAtomic_concurrentOverlappingSets_conserveMoney() throws Exception {
+        Bank bank = new Bank();
+        int accounts = 8;
+        for (int i = 0; i < accounts; i++) {
+            bank.addAccount(BankAccount.ofCents("N" + i, "Owner " + i, 1_000_00, 1_000_00));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        int from = (seed + i) % accounts;
+                        bank.tryTransferAtomic(new TransferInstruction[]{
+                                TransferInstruction.ofCents("N" + from, "N" + (from + 3) % accounts, 7),
+                                TransferInstruction.ofCents("N" + (from + 5) % accounts, "N" + from, 5),
+                                TransferInstruction.ofCents("N" + from, "N" + (from + 1) % accounts, 3)});
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long total = 0;
+        for (int i = 0; i < accounts; i++) {
+            total += balance(bank, "N" + i);
+        }
+        assertEquals(accounts * 1_000_00L, total);
+    }
+}
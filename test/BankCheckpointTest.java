@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankCheckpointTest {
+
+    // K1: totals, status counts and today's withdrawals cover every account
+    @Test
+    void checkpoint_sumsAllAccounts() {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 100_00, 500_00));
+        bank.addAccount(BankAccount.ofCents("A2", "Sara", 50_00, 500_00));
+        bank.addAccount(BankAccount.ofCents("A3", "Omar", 0, 500_00));
+        bank.findAccount("A1").withdrawCents(10_00);
+        bank.changeStatus("A3", AccountStatus.FROZEN);
+
+        BankTotals totals = bank.checkpoint();
+
+        assertEquals(3, totals.accounts());
+        assertEquals(140_00, totals.totalBalanceCents());
+        assertEquals(10_00, totals.totalWithdrawnTodayCents());
+        assertEquals(2, totals.count(AccountStatus.ACTIVE));
+        assertEquals(1, totals.count(AccountStatus.FROZEN));
+        assertEquals(0, totals.count(AccountStatus.CLOSED));
+        assertTrue(totals.isBalanced());
+        assertEquals(0, new Bank().checkpoint().accounts());
+    }
+
+    // K2: between checkpoints the balance change equals deposits minus withdrawals
+    @Test
+    void checkpoint_reconcilesExternalFlows() {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 100_00, 500_00));
+        bank.addAccount(BankAccount.ofCents("A2", "Sara", 50_00, 500_00));
+        BankTotals first = bank.checkpoint();
+
+        bank.findAccount("A1").depositCents(25_00);
+        bank.findAccount("A2").withdrawCents(5_00);
+        bank.transferCents("A1", "A2", 30_00);
+        bank.addAccount(BankAccount.ofCents("A3", "Omar", 7_00, 500_00));
+        BankTotals second = bank.checkpoint();
+
+        assertTrue(second.epoch() > first.epoch());
+        assertEquals(27_00, second.balanceChangeSince(first));
+        assertEquals(27_00, second.externalFlowSince(first));
+        assertTrue(second.reconcilesWith(first));
+        assertTrue(second.isBalanced());
+        assertThrows(IllegalArgumentException.class, () -> first.reconcilesWith(second));
+    }
+
+    // K3: checkpoints taken during concurrent transfers see a consistent cut
+    @Test
+    void checkpoint_duringTransfers_isConsistent() throws Exception {
+        int accounts = 64;
+        Bank bank = new Bank();
+        for (int i = 0; i < accounts; i++) {
+            bank.addAccount(BankAccount.ofCents("C" + i, "Owner", 1_000_00, Long.MAX_VALUE));
+        }
+        long total = accounts * 1_000_00L;
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                workers.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!stop.get()) {
+                        int from = random.nextInt(accounts);
+                        int to = random.nextInt(accounts);
+                        if (from != to) {
+                            bank.transferCents("C" + from, "C" + to, random.nextInt(1, 100));
+                        }
+                    }
+                }));
+            }
+            BankTotals previous = bank.checkpoint();
+            for (int i = 0; i < 200; i++) {
+                BankTotals totals = bank.checkpoint();
+                assertEquals(total, totals.totalBalanceCents());
+                assertTrue(totals.isBalanced());
+                assertTrue(totals.reconcilesWith(previous));
+                previous = totals;
+            }
+            stop.set(true);
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            stop.set(true);
+            pool.shutdown();
+        }
+    }
+
+    // K4: a bank recovered from its journal balances from its recovered state
+    @Test
+    void checkpoint_afterRecovery_isBalanced(@TempDir Path dir) throws Exception {
+        Path journal = dir.resolve("bank.journal");
+        try (Bank bank = Bank.open(journal, 1, 1 << 16)) {
+            bank.addAccount(BankAccount.ofCents("A1", "Fares", 100_00, 500_00));
+            bank.addAccount(BankAccount.ofCents("A2", "Sara", 0, 500_00));
+            bank.transferCents("A1", "A2", 40_00);
+            bank.findAccount("A2").depositCents(5_00);
+        }
+        try (Bank bank = Bank.open(journal, 1, 1 << 16)) {
+            BankTotals totals = bank.checkpoint();
+            assertEquals(105_00, totals.totalBalanceCents());
+            assertTrue(totals.isBalanced());
+        }
+    }
+}
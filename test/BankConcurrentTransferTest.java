@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankConcurrentTransferTest {
+
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 20_000;
+
+    private Bank createBank(int accountCount, double balance) {
+        Bank bank = new Bank();
+        for (int i = 0; i < accountCount; i++) {
+            assertTrue(bank.addAccount(new BankAccount("C" + i, "Owner " + i, balance, 1000.0)));
+        }
+        return bank;
+    }
+
+    private void runConcurrently(Runnable task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                task.run();
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS), "Transfers should finish without deadlock");
+    }
+
+    // CT1: opposite-direction transfers between the same two accounts → no deadlock, money conserved
+    @Test
+    void transfer_oppositeDirections_doesNotDeadlock_andConservesMoney() throws InterruptedException {
+        Bank bank = createBank(2, 1_000_000.0);
+
+        runConcurrently(() -> {
+            for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                if (i % 2 == 0) {
+                    bank.transfer("C0", "C1", 1.0);
+                } else {
+                    bank.transfer("C1", "C0", 1.0);
+                }
+            }
+        });
+
+        double total = bank.findAccount("C0").getBalance() + bank.findAccount("C1").getBalance();
+        assertEquals(2_000_000.0, total, 0.0001);
+    }
+
+    // CT2: random transfers across many accounts → total balance unchanged
+    @Test
+    void transfer_randomPairs_conservesTotalBalance() throws InterruptedException {
+        int accountCount = 16;
+        Bank bank = createBank(accountCount, 10_000.0);
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                int from = random.nextInt(accountCount);
+                int to = random.nextInt(accountCount);
+                bank.transfer("C" + from, "C" + to, 1.0 + random.nextInt(50));
+            }
+        });
+
+        double total = 0;
+        for (int i = 0; i < accountCount; i++) {
+            BankAccount acc = bank.findAccount("C" + i);
+            assertTrue(acc.getBalance() >= 0, "Balance must never go negative");
+            total += acc.getBalance();
+        }
+        assertEquals(accountCount * 10_000.0, total, 0.0001);
+    }
+
+    // CT3: concurrent addAccount with the same number → exactly one wins
+    @Test
+    void addAccount_sameNumberConcurrently_onlyOneSucceeds() throws InterruptedException {
+        Bank bank = new Bank();
+        AtomicInteger added = new AtomicInteger();
+
+        runConcurrently(() -> {
+            if (bank.addAccount(new BankAccount("DUP", "Owner", 0.0, 100.0))) {
+                added.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, added.get());
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankDailyRolloverTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong day = new AtomicLong(20_000);
+    private final BankClock clock = day::get;
+
+    // R1: the daily limit applies again on the next day without any reset call
+    @Test
+    void withdraw_nextDay_limitStartsOver() {
+        Bank bank = new Bank(clock);
+        BankAccount acc = new BankAccount("A1", "Fares", 1000.0, 100.0);
+        bank.addAccount(acc);
+
+        assertTrue(acc.withdraw(100.0));
+        assertFalse(acc.withdraw(1.0));
+        assertEquals(100.0, acc.getDailyWithdrawnAmount(), 0.0001);
+
+        day.incrementAndGet();
+
+        assertEquals(0.0, acc.getDailyWithdrawnAmount(), 0.0001);
+        assertTrue(acc.withdraw(60.0));
+        assertEquals(60.0, acc.getDailyWithdrawnAmount(), 0.0001);
+        assertEquals(840.0, acc.getBalance(), 0.0001);
+    }
+
+    // R2: a failed withdrawal on a new day leaves the previous total untouched
+    @Test
+    void withdraw_rejectedOnNewDay_doesNotChangeState() {
+        Bank bank = new Bank(clock);
+        BankAccount acc = new BankAccount("A1", "Fares", 50.0, 100.0);
+        bank.addAccount(acc);
+        assertTrue(acc.withdraw(40.0));
+
+        day.incrementAndGet();
+        assertFalse(acc.withdraw(20.0)); // Only 10 left in the balance
+
+        day.decrementAndGet();
+        assertEquals(40.0, acc.getDailyWithdrawnAmount(), 0.0001);
+    }
+
+    // R3: the day of the last withdrawal survives journal replay and snapshots
+    @Test
+    void open_afterRestart_keepsWithdrawalDay() throws IOException {
+        Path journal = dir.resolve("bank.journal");
+        Path snapshot = dir.resolve("bank.snapshot");
+        try (Bank bank = Bank.open(journal, snapshot, 1, 64 * 1024, clock)) {
+            bank.addAccount(new BankAccount("A1", "Fares", 1000.0, 100.0));
+            bank.addAccount(new BankAccount("B1", "Sara", 1000.0, 100.0));
+            assertTrue(bank.findAccount("A1").withdraw(70.0));
+            bank.writeSnapshot(snapshot);
+            assertTrue(bank.findAccount("B1").withdraw(30.0));
+        }
+
+        try (Bank reopened = Bank.open(journal, snapshot, 1, 64 * 1024, clock)) {
+            assertEquals(70.0, reopened.findAccount("A1").getDailyWithdrawnAmount(), 0.0001);
+            assertEquals(30.0, reopened.findAccount("B1").getDailyWithdrawnAmount(), 0.0001);
+            assertFalse(reopened.findAccount("A1").withdraw(31.0));
+        }
+
+        day.incrementAndGet();
+        try (Bank reopened = Bank.open(journal, snapshot, 1, 64 * 1024, clock)) {
+            assertEquals(0.0, reopened.findAccount("A1").getDailyWithdrawnAmount(), 0.0001);
+            assertEquals(0.0, reopened.findAccount("B1").getDailyWithdrawnAmount(), 0.0001);
+            assertTrue(reopened.findAccount("A1").withdraw(100.0));
+        }
+    }
+
+    // R4: the wall clock changes day at local midnight of its zone
+    @Test
+    void systemClock_matchesLocalDate() {
+        ZoneId zone = ZoneId.of("Asia/Riyadh");
+        BankClock wallClock = BankClock.system(zone);
+
+        assertEquals(LocalDate.now(zone).toEpochDay(), wallClock.epochDay());
+        assertEquals(wallClock.epochDay(), wallClock.epochDay()); // Cached day
+    }
+}
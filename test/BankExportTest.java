@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankExportTest {
+
+    private static Bank sampleBank() {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 123_45, 500_00));
+        bank.addAccount(BankAccount.ofCents("A2", "Smith, \"Jo\"", 5, 100_00));
+        bank.addAccount(BankAccount.ofCents("A3", "Zoë", 0, 100_00));
+        bank.findAccount("A1").withdrawCents(1_05);
+        bank.changeStatus("A3", AccountStatus.FROZEN);
+        return bank;
+    }
+
+    // E1: CSV has a header, decimal amounts, status names and quoted special fields
+    @Test
+    void writeCsv_writesOneLinePerAccount() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3, AccountExport.writeCsv(sampleBank(), out));
+
+        assertEquals(AccountExport.CSV_HEADER + "\n"
+                + "A1,Fares,122.40,500.00,1.05,ACTIVE\n"
+                + "A2,\"Smith, \"\"Jo\"\"\",0.05,100.00,0.00,ACTIVE\n"
+                + "A3,Zoë,0.00,100.00,0.00,FROZEN\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    // E2: binary records carry every field and end with the record count
+    @Test
+    void writeBinary_roundTrips() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3, AccountExport.writeBinary(sampleBank(), out));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(AccountExport.MAGIC, in.readInt());
+        assertEquals(AccountExport.VERSION, in.readInt());
+        assertEquals("A1", in.readUTF());
+        assertEquals("Fares", in.readUTF());
+        assertEquals(122_40, in.readLong());
+        assertEquals(500_00, in.readLong());
+        assertEquals(1_05, in.readLong());
+        in.readLong(); // Withdrawal day
+        assertEquals(AccountStatus.ACTIVE.code(), in.readByte());
+        assertEquals("A2", in.readUTF());
+        assertEquals("Smith, \"Jo\"", in.readUTF());
+        in.skipNBytes(33);
+        assertEquals("A3", in.readUTF());
+        assertEquals("Zoë", in.readUTF());
+        in.skipNBytes(32);
+        assertEquals(AccountStatus.FROZEN.code(), in.readByte());
+        assertEquals(0, in.readShort());
+        assertEquals(3, in.readLong());
+        assertEquals(-1, in.read());
+    }
+
+    // E3: paging visits every account once, including accounts added while paging
+    @Test
+    void listAccounts_pagesInInsertionOrder() {
+        Bank bank = new Bank();
+        for (int i = 0; i < 25; i++) {
+            bank.addAccount(BankAccount.ofCents("ACC" + i, "Owner", 0, 100));
+        }
+
+        Set<String> seen = new HashSet<>();
+        long cursor = 0;
+        Bank.Page page;
+        int pages = 0;
+        do {
+            page = bank.listAccounts(cursor, 10);
+            for (BankAccount account : page.accounts()) {
+                assertTrue(seen.add(account.getAccountNumber()));
+            }
+            if (pages++ == 0) {
+                assertEquals("ACC0", page.accounts().get(0).getAccountNumber());
+                bank.addAccount(BankAccount.ofCents("LATE", "Owner", 0, 100));
+            }
+            cursor = page.nextCursor();
+        } while (page.hasMore());
+
+        assertEquals(26, seen.size());
+        assertEquals(26, bank.size());
+        assertEquals(3, pages);
+        assertTrue(bank.listAccounts(cursor, 10).accounts().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bank.listAccounts(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> bank.listAccounts(0, 0));
+    }
+}
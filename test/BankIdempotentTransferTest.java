@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankIdempotentTransferTest {
+
+    private static Bank bankWithClock(AtomicLong millis) {
+        Bank bank = new Bank(new BankClock() {
+            @Override
+            public long epochDay() {
+                return 0;
+            }
+
+            @Override
+            public long currentTimeMillis() {
+                return millis.get();
+            }
+        });
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 100_00, 500_00));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, 500_00));
+        return bank;
+    }
+
+    // D1: a retried request returns the original result and moves money once
+    @Test
+    void transfer_duplicateRequest_appliedOnce() {
+        Bank bank = bankWithClock(new AtomicLong());
+
+        assertTrue(bank.transferCents("req-1", "A1", "B1", 30_00));
+        assertTrue(bank.transferCents("req-1", "A1", "B1", 30_00));
+        assertEquals(ResultCode.OK, bank.tryTransferCents("req-1", "B1", "A1", 5_00)); // Same ID, other transfer
+        assertEquals(70_00, bank.findAccount("A1").getBalanceCents());
+        assertEquals(30_00, bank.findAccount("B1").getBalanceCents());
+
+        // Rejections are remembered too
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, bank.tryTransferCents("req-2", "B1", "A1", 50_00));
+        bank.findAccount("B1").depositCents(50_00);
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, bank.tryTransferCents("req-2", "B1", "A1", 50_00));
+        assertEquals(ResultCode.OK, bank.tryTransferCents("req-3", "B1", "A1", 50_00));
+
+        assertEquals(ResultCode.INVALID_ARGUMENT, bank.tryTransferCents(null, "A1", "B1", 1));
+        assertEquals(ResultCode.INVALID_ARGUMENT, bank.tryTransferCents("", "A1", "B1", 1));
+        assertTrue(bank.transfer("req-4", "A1", "B1", 1.0));
+        assertEquals(ResultCode.OK, bank.tryTransfer("req-4", "A1", "B1", 1.0));
+        assertEquals(119_00, bank.findAccount("A1").getBalanceCents());
+    }
+
+    // D2: entries expire after the time-to-live and when their set is full
+    @Test
+    void transfer_forgetsExpiredAndEvictedRequests() {
+        AtomicLong millis = new AtomicLong(1_000);
+        Bank bank = bankWithClock(millis);
+        bank.enableTransferDedupe(8, 60_000); // A single set of 8 slots
+
+        assertTrue(bank.transferCents("req-1", "A1", "B1", 1_00));
+        millis.addAndGet(59_999);
+        assertTrue(bank.transferCents("req-1", "A1", "B1", 1_00));
+        assertEquals(1_00, bank.findAccount("B1").getBalanceCents());
+        millis.incrementAndGet();
+        assertTrue(bank.transferCents("req-1", "A1", "B1", 1_00)); // Expired: applied again
+        assertEquals(2_00, bank.findAccount("B1").getBalanceCents());
+
+        for (int i = 0; i < 8; i++) {
+            millis.incrementAndGet();
+            assertTrue(bank.transferCents("other-" + i, "A1", "B1", 1));
+        }
+        assertTrue(bank.transferCents("req-1", "A1", "B1", 1_00)); // Oldest in its set: evicted
+        assertEquals(3_08, bank.findAccount("B1").getBalanceCents());
+    }
+
+    // D3: duplicates sent concurrently are applied once each
+    @Test
+    void transfer_concurrentDuplicates_appliedOnce() throws Exception {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 1_000_000, Long.MAX_VALUE));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, Long.MAX_VALUE));
+        int requests = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                done.add(pool.submit(() -> {
+                    int ok = 0;
+                    for (int i = 0; i < requests; i++) {
+                        ok += bank.transferCents("req-" + i, "A1", "B1", 1) ? 1 : 0;
+                    }
+                    return ok;
+                }));
+            }
+            for (Future<Integer> f : done) {
+                assertEquals(requests, f.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(requests, bank.findAccount("B1").getBalanceCents());
+    }
+}
@@ -0,0 +1,217 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private void assertSameAccount(BankAccount expected, BankAccount actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getOwnerName(), actual.getOwnerName());
+        assertEquals(expected.getBalanceCents(), actual.getBalanceCents());
+        assertEquals(expected.getDailyWithdrawalLimitCents(), actual.getDailyWithdrawalLimitCents());
+        assertEquals(expected.getDailyWithdrawnAmountCents(), actual.getDailyWithdrawnAmountCents());
+        assertEquals(expected.getStatus(), actual.getStatus());
+    }
+
+    // J1: every kind of mutation survives a restart
+    @Test
+    void open_afterRestart_rebuildsAllAccountState() throws IOException {
+        Path file = dir.resolve("bank.journal");
+        BankAccount a;
+        BankAccount b;
+        BankAccount c;
+        try (Bank bank = Bank.open(file, 1, 64 * 1024)) {
+            a = new BankAccount("A1", "Fares", 1000.0, 1000.0);
+            b = new BankAccount("B1", "Mohammed", 300.0, 400.0);
+            c = new BankAccount("C1", "Sara", 50.0, 200.0);
+            assertTrue(bank.addAccount(a));
+            assertTrue(bank.addAccount(b));
+            assertTrue(bank.addAccount(c));
+
+            assertTrue(a.deposit(200.0));
+            assertTrue(a.withdraw(150.0));
+            assertTrue(bank.transfer("A1", "B1", 75.5));
+            assertTrue(bank.setDailyLimit("B1", 2500.0));
+            assertTrue(bank.changeStatus("C1", AccountStatus.FROZEN));
+            assertTrue(b.withdraw(100.0));
+            b.resetDailyWithdrawnAmount();
+            assertFalse(c.deposit(10.0));
+        }
+
+        try (Bank reopened = Bank.open(file, 1, 64 * 1024)) {
+            assertSameAccount(a, reopened.findAccount("A1"));
+            assertSameAccount(b, reopened.findAccount("B1"));
+            assertSameAccount(c, reopened.findAccount("C1"));
+
+            // The reopened bank keeps journaling
+            assertTrue(reopened.transfer("B1", "A1", 1.0));
+        }
+
+        try (Bank again = Bank.open(file, 1, 64 * 1024)) {
+            assertEquals(a.getBalanceCents() + 100, again.findAccount("A1").getBalanceCents());
+        }
+    }
+
+    // J2: a torn record at the end of the file is ignored and truncated
+    @Test
+    void open_withTornTail_recoversLastCompleteRecord() throws IOException {
+        Path file = dir.resolve("torn.journal");
+        try (Bank bank = Bank.open(file, 0, 64 * 1024)) {
+            bank.addAccount(new BankAccount("A1", "Fares", 100.0, 1000.0));
+            bank.findAccount("A1").deposit(5.0);
+        }
+        long validSize = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0, 40, Journal.DEPOSIT, 1, 2}, StandardOpenOption.APPEND);
+
+        try (Bank reopened = Bank.open(file, 0, 64 * 1024)) {
+            assertEquals(10_500, reopened.findAccount("A1").getBalanceCents());
+        }
+        assertEquals(validSize, Files.size(file));
+    }
+
+    // J3: concurrent durable transfers share fsyncs and all survive a restart
+    @Test
+    void transfer_concurrentWithGroupCommit_allChangesDurable() throws Exception {
+        Path file = dir.resolve("group.journal");
+        int threads = 8;
+        int transfers = 500;
+        try (Bank bank = Bank.open(file, 2, 64 * 1024)) {
+            for (int i = 0; i < threads * 2; i++) {
+                bank.addAccount(new BankAccount("G" + i, "Owner " + i, 10_000.0, 1000.0));
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<Integer>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int from = t * 2;
+                done.add(pool.submit(() -> {
+                    int succeeded = 0;
+                    for (int i = 0; i < transfers; i++) {
+                        if (bank.transfer("G" + from, "G" + (from + 1), 1.0)) {
+                            succeeded++;
+                        }
+                    }
+                    return succeeded;
+                }));
+            }
+            try {
+                for (Future<Integer> f : done) {
+                    assertEquals(transfers, f.get(60, TimeUnit.SECONDS));
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        try (Bank reopened = Bank.open(file, 2, 64 * 1024)) {
+            for (int t = 0; t < threads; t++) {
+                assertEquals(10_000.0 - transfers, reopened.findAccount("G" + (t * 2)).getBalance(), 0.0001);
+                assertEquals(10_000.0 + transfers, reopened.findAccount("G" + (t * 2 + 1)).getBalance(), 0.0001);
+            }
+        }
+    }
+
+    // J4: a mutation the closed journal cannot record throws and changes nothing
+    @Test
+    void mutation_afterJournalClosed_throwsAndLeavesAccountUnchanged() throws IOException {
+        Path file = dir.resolve("closed.journal");
+        Bank bank = Bank.open(file, 0, 64 * 1024);
+        BankAccount a = BankAccount.ofCents("A1", "Fares", 1_000_00, 500_00);
+        BankAccount b = BankAccount.ofCents("B1", "Sara", 300_00, 400_00);
+        bank.addAccount(a);
+        bank.addAccount(b);
+        assertTrue(a.withdrawCents(10_00));
+        bank.close();
+
+        assertThrows(IllegalStateException.class, () -> a.depositCents(5_00));
+        assertThrows(IllegalStateException.class, () -> a.withdrawCents(5_00));
+        assertThrows(IllegalStateException.class, () -> bank.transferCents("A1", "B1", 5_00));
+        assertThrows(IllegalStateException.class, () -> bank.transferAtomic(new TransferInstruction[]{
+                TransferInstruction.ofCents("A1", "B1", 5_00)}));
+        assertThrows(IllegalStateException.class, () -> a.setStatus(AccountStatus.FROZEN));
+        assertThrows(IllegalStateException.class, () -> a.setDailyWithdrawalLimitCents(2_000_00));
+        assertThrows(IllegalStateException.class, a::resetDailyWithdrawnAmount);
+
+        assertEquals(990_00, a.getBalanceCents());
+        assertEquals(300_00, b.getBalanceCents());
+        assertEquals(10_00, a.getDailyWithdrawnAmountCents());
+        assertEquals(500_00, a.getDailyWithdrawalLimitCents());
+        assertEquals(AccountStatus.ACTIVE, a.getStatus());
+
+        try (Bank reopened = Bank.open(file, 0, 64 * 1024)) {
+            assertSameAccount(a, reopened.findAccount("A1"));
+            assertSameAccount(b, reopened.findAccount("B1"));
+        }
+    }
+
+    // J5: names that do not fit a journal record are rejected up front; the longest one replays
+    @Test
+    void open_longestOwnerName_survivesRestart() throws IOException {
+        String longest = "\u00e9".repeat(BankAccount.MAX_TEXT_BYTES / 2) + "x";
+        assertThrows(IllegalArgumentException.class, () -> new BankAccount("A1", longest + "x", 0.0, 100.0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BankAccount("9".repeat(BankAccount.MAX_TEXT_BYTES + 1), "Fares", 0.0, 100.0));
+
+        Path file = dir.resolve("long.journal");
+        try (Bank bank = Bank.open(file, 0, 64 * 1024)) {
+            bank.addAccount(new BankAccount("A1", longest, 10.0, 100.0));
+            bank.addAccount(new BankAccount("B1", "Sara", 20.0, 100.0));
+        }
+        try (Bank reopened = Bank.open(file, 0, 64 * 1024)) {
+            assertEquals(longest, reopened.findAccount("A1").getOwnerName());
+            assertEquals(2_000, reopened.findAccount("B1").getBalanceCents());
+        }
+    }
+
+    // J6: an account is only visible once its OPEN record is written, so no transfer out of it goes unjournaled
+    @Test
+    void addAccount_notVisibleUntilJournaled_transfersSurviveRestart() throws Exception {
+        Path file = dir.resolve("publish.journal");
+        try (Bank bank = Bank.open(file, 0, 64 * 1024)) {
+            bank.addAccount(BankAccount.ofCents("T1", "Target", 0, 100_00));
+            Thread adder = new Thread(() -> bank.addAccount(BankAccount.ofCents("N1", "New", 5_00, 100_00)));
+            // Holding the journal's monitor stalls the adder while it writes the OPEN record
+            boolean visibleBeforeJournaled;
+            synchronized (bank.getJournal()) {
+                adder.start();
+                long deadline = System.currentTimeMillis() + 200;
+                while (bank.findAccount("N1") == null && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+                visibleBeforeJournaled = bank.findAccount("N1") != null;
+            }
+            adder.join();
+            assertFalse(visibleBeforeJournaled);
+
+            Thread mover = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    bank.transferCents("N1", "T1", 1);
+                }
+            });
+            mover.start();
+            for (int i = 0; i < 100; i++) {
+                bank.transferCents("T1", "N1", 1);
+            }
+            mover.join();
+        }
+
+        try (Bank reopened = Bank.open(file, 0, 64 * 1024)) {
+            assertEquals(5_00, reopened.findAccount("T1").getBalanceCents()
+                    + reopened.findAccount("N1").getBalanceCents());
+        }
+    }
+}
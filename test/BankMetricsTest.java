@@ -0,0 +1,123 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankMetricsTest {
+
+    // M1: every rejection reason of the account operations is counted separately
+    @Test
+    void accountOperations_countEachResult() {
+        AtomicLong day = new AtomicLong(1);
+        Bank bank = new Bank(day::get);
+        BankAccount a = BankAccount.ofCents("A1", "Fares", 10_000, 5_000);
+        BankAccount b = BankAccount.ofCents("B1", "Sara", 0, 5_000);
+        bank.addAccount(a);
+        BankMetrics metrics = bank.enableMetrics();
+        bank.addAccount(b); // Added after enabling: recorded too
+
+        assertTrue(a.depositCents(100));
+        assertFalse(a.depositCents(0));
+        assertTrue(a.withdrawCents(5_000));
+        assertFalse(a.withdrawCents(1)); // Daily limit reached
+        day.incrementAndGet();
+        assertFalse(b.withdrawCents(1)); // Empty
+        assertFalse(a.transferToCents(a, 1));
+        assertFalse(a.transferToCents(null, 1));
+        assertTrue(b.depositCents(1));
+        b.setStatus(AccountStatus.FROZEN);
+        assertFalse(b.depositCents(1));
+
+        BankMetrics.Snapshot s = metrics.snapshot();
+        assertEquals(2, s.count(BankMetrics.Operation.DEPOSIT, ResultCode.OK));
+        assertEquals(1, s.count(BankMetrics.Operation.DEPOSIT, ResultCode.NON_POSITIVE_AMOUNT));
+        assertEquals(1, s.count(BankMetrics.Operation.DEPOSIT, ResultCode.NOT_ACTIVE));
+        assertEquals(1, s.count(BankMetrics.Operation.WITHDRAW, ResultCode.OK));
+        assertEquals(1, s.count(BankMetrics.Operation.WITHDRAW, ResultCode.DAILY_LIMIT_EXCEEDED));
+        assertEquals(1, s.count(BankMetrics.Operation.WITHDRAW, ResultCode.INSUFFICIENT_BALANCE));
+        assertEquals(1, s.count(BankMetrics.Operation.TRANSFER, ResultCode.SAME_ACCOUNT));
+        assertEquals(1, s.count(BankMetrics.Operation.TRANSFER, ResultCode.UNKNOWN_ACCOUNT));
+        assertEquals(4, s.total(BankMetrics.Operation.DEPOSIT));
+        assertEquals(4, s.latency(BankMetrics.Operation.DEPOSIT).count());
+    }
+
+    // M2: bank operations are recorded once each, with their own rejection reasons
+    @Test
+    void bankOperations_recordedOnce() {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 10_000, 50_000));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, 50_000));
+        BankMetrics metrics = bank.enableMetrics();
+        assertSame(metrics, bank.enableMetrics());
+
+        assertTrue(bank.transferCents("A1", "B1", 100));
+        assertFalse(bank.transferCents("A1", "Z9", 100));
+        assertFalse(bank.changeStatus("A1", AccountStatus.ACTIVE));
+        assertFalse(bank.setDailyLimitCents("A1", 1));
+        assertTrue(bank.setDailyLimitCents("A1", 20_000));
+
+        BankMetrics.Snapshot s = metrics.snapshot();
+        assertEquals(1, s.count(BankMetrics.Operation.TRANSFER, ResultCode.OK));
+        assertEquals(1, s.count(BankMetrics.Operation.TRANSFER, ResultCode.UNKNOWN_ACCOUNT));
+        assertEquals(2, s.total(BankMetrics.Operation.TRANSFER));
+        assertEquals(1, s.count(BankMetrics.Operation.CHANGE_STATUS, ResultCode.NO_CHANGE));
+        assertEquals(1, s.count(BankMetrics.Operation.SET_DAILY_LIMIT, ResultCode.LIMIT_OUT_OF_RANGE));
+        assertEquals(1, s.count(BankMetrics.Operation.SET_DAILY_LIMIT, ResultCode.OK));
+    }
+
+    // M3: histogram percentiles stay within the bucket precision
+    @Test
+    void histogram_percentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1_000);
+        }
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals(100_001, s.count());
+        assertEquals(100_000_000, s.max());
+        assertEquals(0, s.valueAtPercentile(0));
+        assertEquals(50_000_000, s.valueAtPercentile(50), 50_000_000 / 64.0);
+        assertEquals(99_000_000, s.valueAtPercentile(99), 99_000_000 / 64.0);
+        assertEquals(100_000_000, s.valueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().snapshot().valueAtPercentile(99));
+
+        for (long v : new long[]{0, 1, 127, 128, 129, 1_000, 123_456_789, LatencyHistogram.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(index < LatencyHistogram.BUCKETS);
+            assertTrue(LatencyHistogram.highestValueIn(index) >= v);
+            assertTrue(index == 0 || LatencyHistogram.highestValueIn(index - 1) < v);
+        }
+    }
+
+    // M4: Prometheus dump lists counters and latency summaries
+    @Test
+    void writePrometheus_writesTextFormat(@TempDir Path dir) throws Exception {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 10_000, 50_000));
+        BankMetrics metrics = bank.enableMetrics();
+        bank.findAccount("A1").withdrawCents(100);
+        bank.findAccount("A1").withdrawCents(20_000);
+
+        Path file = dir.resolve("bank.prom");
+        metrics.writePrometheus(file);
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+        assertTrue(text.contains("# TYPE bank_operations_total counter\n"));
+        assertTrue(text.contains("bank_operations_total{operation=\"withdraw\",result=\"ok\"} 1\n"));
+        assertTrue(text.contains(
+                "bank_operations_total{operation=\"withdraw\",result=\"insufficient_balance\"} 1\n"));
+        assertTrue(text.contains("bank_operations_total{operation=\"deposit\",result=\"ok\"} 0\n"));
+        assertFalse(text.contains("result=\"no_change\""));
+        assertTrue(text.contains("# TYPE bank_operation_latency_seconds summary\n"));
+        assertTrue(text.contains("bank_operation_latency_seconds{operation=\"withdraw\",quantile=\"0.99\"} "));
+        assertTrue(text.contains("bank_operation_latency_seconds_count{operation=\"withdraw\"} 2\n"));
+        assertFalse(Files.exists(dir.resolve("bank.prom.tmp")));
+    }
+}
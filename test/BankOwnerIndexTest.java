@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankOwnerIndexTest {
+
+    private static List<String> numbers(List<BankAccount> accounts) {
+        List<String> result = new ArrayList<>();
+        for (BankAccount account : accounts) {
+            result.add(account.getAccountNumber());
+        }
+        return result;
+    }
+
+    // O1: exact owner lookup returns every account of that owner and nothing else
+    @Test
+    void findAccountsByOwner_exactMatch() {
+        Bank bank = new Bank();
+        bank.addAccount(new BankAccount("A2", "Ann", 0, 100));
+        bank.addAccount(new BankAccount("A1", " Ann ", 0, 100));
+        bank.addAccount(new BankAccount("B1", "Anna", 0, 100));
+        bank.addAccount(new BankAccount("C1", "ann", 0, 100));
+        assertFalse(bank.addAccount(new BankAccount("A1", "Other", 0, 100))); // Duplicate number
+
+        assertEquals(List.of("A1", "A2"), numbers(bank.findAccountsByOwner("Ann")));
+        assertEquals(List.of("A1", "A2"), numbers(bank.findAccountsByOwner(" Ann")));
+        assertEquals(List.of("B1"), numbers(bank.findAccountsByOwner("Anna")));
+        assertTrue(bank.findAccountsByOwner("An").isEmpty());
+        assertTrue(bank.findAccountsByOwner("Other").isEmpty());
+        assertTrue(bank.findAccountsByOwner(null).isEmpty());
+    }
+
+    // O2: prefix lookup is ordered by owner then account number, and respects the limit
+    @Test
+    void findAccountsByOwnerPrefix_orderedAndLimited() {
+        Bank bank = new Bank();
+        bank.addAccount(new BankAccount("B1", "Anna", 0, 100));
+        bank.addAccount(new BankAccount("A2", "Ann", 0, 100));
+        bank.addAccount(new BankAccount("A1", "Ann", 0, 100));
+        bank.addAccount(new BankAccount("D1", "Bob", 0, 100));
+        bank.addAccount(new BankAccount("E1", "Am", 0, 100));
+
+        assertEquals(List.of("A1", "A2", "B1"), numbers(bank.findAccountsByOwnerPrefix("Ann", 10)));
+        assertEquals(List.of("E1", "A1"), numbers(bank.findAccountsByOwnerPrefix("A", 2)));
+        assertEquals(5, bank.findAccountsByOwnerPrefix("", 10).size());
+        assertTrue(bank.findAccountsByOwnerPrefix("Ann", 0).isEmpty());
+        assertTrue(bank.findAccountsByOwnerPrefix("C", 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bank.findAccountsByOwnerPrefix("A", -1));
+    }
+
+    // O3: a bank recovered from its journal rebuilds the owner index
+    @Test
+    void open_rebuildsOwnerIndex(@TempDir Path dir) throws Exception {
+        Path journal = dir.resolve("bank.journal");
+        try (Bank bank = Bank.open(journal, 1, 1 << 16)) {
+            bank.addAccount(new BankAccount("A1", "Ann", 10, 100));
+            bank.addAccount(new BankAccount("A2", "Ann", 20, 100));
+        }
+        try (Bank bank = Bank.open(journal, 1, 1 << 16)) {
+            assertEquals(List.of("A1", "A2"), numbers(bank.findAccountsByOwner("Ann")));
+        }
+    }
+
+    // O4: accounts added concurrently are all found by owner
+    @Test
+    void concurrentAdds_allIndexed() throws Exception {
+        Bank bank = new Bank();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        bank.addAccount(new BankAccount("T" + thread + "-" + i, "Owner " + (i % 10), 0, 100));
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int owner = 0; owner < 10; owner++) {
+            assertEquals(800, bank.findAccountsByOwner("Owner " + owner).size());
+        }
+        assertEquals(8_000, bank.findAccountsByOwnerPrefix("Owner ", Integer.MAX_VALUE).size());
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankReplicationTest {
+
+    @TempDir
+    Path dir;
+
+    private static void assertReplicated(Bank leader, ReplicationFollower follower, String accountNumber) {
+        BankAccount expected = leader.findAccount(accountNumber);
+        AccountView actual = follower.findAccount(accountNumber);
+        assertNotNull(actual, accountNumber);
+        assertEquals(expected.getBalanceCents(), actual.balanceCents(), accountNumber);
+        assertEquals(expected.getDailyWithdrawalLimitCents(), actual.dailyWithdrawalLimitCents(), accountNumber);
+        assertEquals(expected.getDailyWithdrawnAmountCents(), actual.dailyWithdrawnAmountCents(), accountNumber);
+        assertEquals(expected.getStatus(), actual.status(), accountNumber);
+    }
+
+    // R1: a follower replays what happened before it connected, then keeps up
+    @Test
+    void follower_appliesEveryKindOfRecord() throws Exception {
+        Path file = dir.resolve("leader.journal");
+        try (Bank bank = Bank.open(file, 1, 64 * 1024);
+             ReplicationLeader leader = ReplicationLeader.start(bank, file, 0)) {
+            bank.addAccount(BankAccount.ofCents("A1", "Fares", 1_000_00, 1_000_00));
+            bank.addAccount(BankAccount.ofCents("B1", "Sara", 300_00, 400_00));
+            assertTrue(bank.transferCents("A1", "B1", 75_50));
+
+            try (ReplicationFollower follower = ReplicationFollower.connect(leader.port())) {
+                bank.addAccount(BankAccount.ofCents("C1", "Omar", 50_00, 200_00));
+                assertTrue(bank.findAccount("A1").withdrawCents(150_00));
+                assertTrue(bank.findAccount("B1").depositCents(20_00));
+                assertTrue(bank.setDailyLimitCents("B1", 2_500_00));
+                assertTrue(bank.changeStatus("C1", AccountStatus.FROZEN));
+                assertTrue(bank.transferAtomic(new TransferInstruction[]{
+                        TransferInstruction.ofCents("A1", "B1", 10_00),
+                        TransferInstruction.ofCents("B1", "A1", 1_00)}));
+                bank.awaitDurable();
+
+                assertTrue(follower.awaitPosition(leader.durablePosition(), 10_000));
+                assertEquals(3, follower.size());
+                for (String number : new String[]{"A1", "B1", "C1"}) {
+                    assertReplicated(bank, follower, number);
+                }
+                assertNull(follower.findAccount("X1"));
+                assertTrue(follower.isConnected());
+            }
+        }
+    }
+
+    // R2: lag is reported on both sides and drops to zero once caught up
+    @Test
+    void leader_reportsLagAndLatency() throws Exception {
+        Path file = dir.resolve("lag.journal");
+        try (Bank bank = Bank.open(file, 1, 64 * 1024);
+             ReplicationLeader leader = ReplicationLeader.start(bank, file, 0);
+             ReplicationFollower follower = ReplicationFollower.connect(leader.port())) {
+            bank.addAccount(BankAccount.ofCents("A1", "Fares", 1_000_000, Long.MAX_VALUE));
+            bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, Long.MAX_VALUE));
+            for (int i = 0; i < 1_000; i++) {
+                assertTrue(bank.transferCents("A1", "B1", 1));
+            }
+            long durable = leader.durablePosition();
+            assertTrue(follower.awaitPosition(durable, 10_000));
+            assertEquals(1_000, follower.findAccount("B1").balanceCents());
+            assertEquals(0, follower.lagBytes());
+
+            // The leader learns of the acknowledgement asynchronously
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (leader.lagBytes() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, leader.lagBytes());
+            assertEquals(1, leader.followerCount());
+            assertTrue(leader.shippedBytes() >= durable);
+            assertTrue(leader.replicationLatency().count() > 0);
+        }
+    }
+
+    // R3: reads on the follower see each replicated transfer on both sides or neither
+    @Test
+    void follower_readsDuringReplication_areConsistent() throws Exception {
+        Path file = dir.resolve("reads.journal");
+        try (Bank bank = Bank.open(file, 0, 64 * 1024);
+             ReplicationLeader leader = ReplicationLeader.start(bank, file, 0);
+             ReplicationFollower follower = ReplicationFollower.connect(leader.port())) {
+            bank.addAccount(BankAccount.ofCents("A1", "Fares", 500_000, Long.MAX_VALUE));
+            bank.addAccount(BankAccount.ofCents("B1", "Sara", 500_000, Long.MAX_VALUE));
+            bank.awaitDurable();
+            assertTrue(follower.awaitPosition(leader.durablePosition(), 10_000));
+
+            AtomicBoolean stop = new AtomicBoolean();
+            Thread writer = new Thread(() -> {
+                for (int i = 0; !stop.get() && i < 20_000; i++) {
+                    bank.transferCents((i & 1) == 0 ? "A1" : "B1", (i & 1) == 0 ? "B1" : "A1", 1 + i % 7);
+                }
+            });
+            writer.start();
+            try {
+                for (int i = 0; i < 20_000; i++) {
+                    AccountView[] views = follower.readAccounts("A1", "B1");
+                    assertEquals(1_000_000, views[0].balanceCents() + views[1].balanceCents());
+                }
+            } finally {
+                stop.set(true);
+                writer.join();
+            }
+            assertTrue(follower.awaitPosition(leader.durablePosition(), 10_000));
+            assertReplicated(bank, follower, "A1");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class BankResultCodeTest {
+
+    // C1: account operations name the check that rejected them
+    @Test
+    void accountOperations_returnFailingCheck() {
+        AtomicLong day = new AtomicLong(1);
+        Bank bank = new Bank(day::get);
+        BankAccount a = BankAccount.ofCents("A1", "Fares", 10_000, 5_000);
+        BankAccount b = BankAccount.ofCents("B1", "Sara", Long.MAX_VALUE - 10, 5_000);
+        bank.addAccount(a);
+        bank.addAccount(b);
+
+        assertEquals(ResultCode.OK, a.tryDeposit(1.00));
+        assertEquals(ResultCode.NON_POSITIVE_AMOUNT, a.tryDepositCents(0));
+        assertEquals(ResultCode.BALANCE_OVERFLOW, b.tryDepositCents(11));
+
+        assertEquals(ResultCode.OK, a.tryWithdraw(50.00));
+        assertEquals(ResultCode.DAILY_LIMIT_EXCEEDED, a.tryWithdrawCents(1));
+        day.incrementAndGet();
+        a.setDailyWithdrawalLimitCents(1_000_000);
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, a.tryWithdrawCents(5_101));
+        assertEquals(ResultCode.NON_POSITIVE_AMOUNT, a.tryWithdrawCents(-1));
+
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, a.tryTransferToCents(null, 1));
+        assertEquals(ResultCode.SAME_ACCOUNT, a.tryTransferTo(a, 1.00));
+        assertEquals(ResultCode.BALANCE_OVERFLOW, a.tryTransferToCents(b, 11));
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, b.tryTransferToCents(a, Long.MAX_VALUE));
+
+        a.setStatus(AccountStatus.FROZEN);
+        assertEquals(ResultCode.NOT_ACTIVE, a.tryDepositCents(1));
+        assertEquals(ResultCode.NOT_ACTIVE, a.tryWithdrawCents(1));
+        assertEquals(ResultCode.NOT_ACTIVE, b.tryTransferToCents(a, 1));
+        assertEquals(5_100, a.getBalanceCents());
+    }
+
+    // C2: bank operations by account number, and the same codes from ColumnarBank
+    @Test
+    void bankOperations_matchColumnarBank() {
+        Bank bank = new Bank();
+        ColumnarBank columnar = new ColumnarBank(16);
+        for (String number : new String[]{"A1", "B1"}) {
+            bank.addAccount(BankAccount.ofCents(number, "Owner", 10_000, 50_000));
+            columnar.addAccountCents(number, "Owner", 10_000, 50_000);
+        }
+
+        assertEquals(ResultCode.OK, bank.tryTransfer("A1", "B1", 1.00));
+        assertEquals(ResultCode.OK, columnar.tryTransfer("A1", "B1", 1.00));
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, bank.tryTransferCents("A1", "Z9", 1));
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, columnar.tryTransferCents("A1", "Z9", 1));
+        assertEquals(ResultCode.SAME_ACCOUNT, bank.tryTransferCents("A1", "A1", 1));
+        assertEquals(ResultCode.SAME_ACCOUNT, columnar.tryTransferCents("A1", "A1", 1));
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, bank.tryTransferCents("A1", "B1", 1_000_000));
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, columnar.tryTransferCents("A1", "B1", 1_000_000));
+
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, bank.tryChangeStatus(" ", AccountStatus.FROZEN));
+        assertEquals(ResultCode.INVALID_ARGUMENT, bank.tryChangeStatus("A1", null));
+        assertEquals(ResultCode.INVALID_ARGUMENT, columnar.tryChangeStatus("A1", null));
+        assertEquals(ResultCode.NO_CHANGE, bank.tryChangeStatus("A1", AccountStatus.ACTIVE));
+        assertEquals(ResultCode.NO_CHANGE, columnar.tryChangeStatus("A1", AccountStatus.ACTIVE));
+
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, bank.trySetDailyLimit("A1", 99.99));
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, columnar.trySetDailyLimit("A1", 5000.01));
+        assertEquals(ResultCode.NO_CHANGE, bank.trySetDailyLimitCents("A1", 50_000));
+        assertEquals(ResultCode.NO_CHANGE, columnar.trySetDailyLimitCents("A1", 50_000));
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, bank.trySetDailyLimitCents("Z9", 20_000));
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, columnar.trySetDailyLimitCents("Z9", 20_000));
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, columnar.tryDepositCents("Z9", 1));
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, columnar.tryWithdrawCents("Z9", 1));
+    }
+
+    // C3: rejected operations allocate nothing
+    @Test
+    void rejections_doNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        Bank bank = new Bank();
+        BankAccount a = BankAccount.ofCents("A1", "Fares", 100, 50_000);
+        bank.addAccount(a);
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 100, 50_000));
+        String from = new String("A1");
+        String to = new String("B1");
+
+        long thread = Thread.currentThread().getId();
+        long rejected = 0;
+        // First round warms up; measure the second
+        long before = 0;
+        for (int round = 0; round < 2; round++) {
+            before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 100_000; i++) {
+                rejected += bank.tryTransferCents(from, to, 1_000).ordinal();
+                rejected += a.tryWithdrawCents(1_000).ordinal();
+                rejected += a.tryDepositCents(-1).ordinal();
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(rejected > 0);
+        // Allow for incidental JVM allocations, far below one object per call
+        assertTrue(allocated < 10_000, "allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,229 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankServerTest {
+
+    private static SocketChannel connect(BankServer server) throws IOException {
+        return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()));
+    }
+
+    // Sends the request in buf (write mode) and returns the response body: status byte + payload
+    private static ByteBuffer call(SocketChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        ByteBuffer length = ByteBuffer.allocate(BankProtocol.LENGTH_BYTES);
+        readFully(channel, length);
+        ByteBuffer body = ByteBuffer.allocate(length.flip().getInt());
+        readFully(channel, body);
+        return body.flip();
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+
+    private static Bank newBank() {
+        Bank bank = new Bank();
+        bank.addAccount(new BankAccount("A1", "Fares", 1000.0, 1000.0));
+        bank.addAccount(new BankAccount("B1", "Mohammed", 300.0, 400.0));
+        return bank;
+    }
+
+    // S1: each request type reaches the bank and reports its outcome
+    @Test
+    void requests_dispatchToBank() throws IOException {
+        Bank bank = newBank();
+        try (BankServer server = BankServer.start(bank, 0);
+             SocketChannel client = connect(server)) {
+            ByteBuffer buf = ByteBuffer.allocate(256);
+
+            BankProtocol.putTransfer(buf, "A1", "B1", 25_050);
+            assertEquals(BankProtocol.STATUS_OK, call(client, buf).get());
+
+            buf.clear();
+            BankProtocol.putTransfer(buf, "B1", "A1", 1_000_000);
+            assertEquals(BankProtocol.STATUS_REJECTED, call(client, buf).get());
+
+            buf.clear();
+            BankProtocol.putFindAccount(buf, "B1");
+            ByteBuffer found = call(client, buf);
+            assertEquals(BankProtocol.STATUS_OK, found.get());
+            assertEquals("Mohammed", BankProtocol.getString(found));
+            assertEquals(55_050, found.getLong());
+            assertEquals(40_000, found.getLong());
+            assertEquals(0, found.getLong());
+            assertEquals(AccountStatus.ACTIVE, AccountStatus.fromCode(found.get()));
+
+            buf.clear();
+            BankProtocol.putFindAccount(buf, "Z9");
+            assertEquals(BankProtocol.STATUS_NOT_FOUND, call(client, buf).get());
+
+            buf.clear();
+            BankProtocol.putChangeStatus(buf, "A1", AccountStatus.FROZEN);
+            assertEquals(BankProtocol.STATUS_OK, call(client, buf).get());
+
+            buf.clear();
+            BankProtocol.putSetDailyLimit(buf, "B1", 250_000);
+            assertEquals(BankProtocol.STATUS_OK, call(client, buf).get());
+        }
+
+        assertEquals(AccountStatus.FROZEN, bank.findAccount("A1").getStatus());
+        assertEquals(2500.0, bank.findAccount("B1").getDailyWithdrawalLimit(), 0.0001);
+    }
+
+    // S2: malformed requests get BAD_REQUEST and the connection stays usable
+    @Test
+    void malformedRequest_returnsBadRequest() throws IOException {
+        try (BankServer server = BankServer.start(newBank(), 0);
+             SocketChannel client = connect(server)) {
+            ByteBuffer buf = ByteBuffer.allocate(64);
+            buf.putInt(2).put((byte) 99).put((byte) 0);
+            assertEquals(BankProtocol.STATUS_BAD_REQUEST, call(client, buf).get());
+
+            buf.clear();
+            buf.putInt(3).put(BankProtocol.TRANSFER).putShort((short) 5); // String cut short
+            assertEquals(BankProtocol.STATUS_BAD_REQUEST, call(client, buf).get());
+
+            buf.clear();
+            BankProtocol.putFindAccount(buf, "A1");
+            assertEquals(BankProtocol.STATUS_OK, call(client, buf).get());
+        }
+    }
+
+    // S3: pipelined requests on one connection are answered in order
+    @Test
+    void pipelinedRequests_answeredInOrder() throws IOException {
+        try (BankServer server = BankServer.start(newBank(), 0);
+             SocketChannel client = connect(server)) {
+            ByteBuffer buf = ByteBuffer.allocate(4096);
+            for (int i = 0; i < 50; i++) {
+                BankProtocol.putFindAccount(buf, i % 2 == 0 ? "A1" : "none");
+            }
+            buf.flip();
+            while (buf.hasRemaining()) {
+                client.write(buf);
+            }
+            for (int i = 0; i < 50; i++) {
+                ByteBuffer header = ByteBuffer.allocate(BankProtocol.LENGTH_BYTES + 1);
+                readFully(client, header);
+                byte status = header.get(BankProtocol.LENGTH_BYTES);
+                assertEquals(i % 2 == 0 ? BankProtocol.STATUS_OK : BankProtocol.STATUS_NOT_FOUND, status);
+                readFully(client, ByteBuffer.allocate(header.getInt(0) - 1));
+            }
+        }
+    }
+
+    // S4: many concurrent connections transferring in both directions conserve money
+    @Test
+    void concurrentConnections_conserveTotalBalance() throws Exception {
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 1_000_000, 100));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 1_000_000, 100));
+
+        int clients = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try (BankServer server = BankServer.start(bank, 0)) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                boolean forward = c % 2 == 0;
+                done.add(pool.submit(() -> {
+                    try (SocketChannel client = connect(server)) {
+                        ByteBuffer buf = ByteBuffer.allocate(64);
+                        for (int i = 0; i < 50; i++) {
+                            buf.clear();
+                            BankProtocol.putTransfer(buf, forward ? "A1" : "B1", forward ? "B1" : "A1", 7);
+                            assertEquals(BankProtocol.STATUS_OK, call(client, buf).get());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(2_000_000, bank.findAccount("A1").getBalanceCents() + bank.findAccount("B1").getBalanceCents());
+        assertEquals(1_000_000, bank.findAccount("A1").getBalanceCents());
+    }
+
+    // S5: FIND_ACCOUNT answers with fields from one moment while withdrawals run
+    @Test
+    void findAccount_duringWithdrawals_isConsistent() throws Exception {
+        Bank bank = new Bank(() -> 0);
+        BankAccount account = BankAccount.ofCents("A1", "Fares", 1_000_000, Long.MAX_VALUE);
+        bank.addAccount(account);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            while (!stop.get() && account.withdrawCents(1)) {
+                // Keep changing balance and withdrawn amount together
+            }
+        });
+        try (BankServer server = BankServer.start(bank, 0);
+             SocketChannel client = connect(server)) {
+            writer.start();
+            ByteBuffer buf = ByteBuffer.allocate(64);
+            for (int i = 0; i < 2_000; i++) {
+                buf.clear();
+                BankProtocol.putFindAccount(buf, "A1");
+                ByteBuffer found = call(client, buf);
+                assertEquals(BankProtocol.STATUS_OK, found.get());
+                BankProtocol.getString(found);
+                long balance = found.getLong();
+                found.getLong();
+                assertEquals(1_000_000, balance + found.getLong());
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    // S6: the longest legal account numbers and owner name fit in a frame both ways
+    @Test
+    void longestNames_fitInFrames() throws IOException {
+        String owner = "o".repeat(BankAccount.MAX_TEXT_BYTES);
+        String from = "1".repeat(BankAccount.MAX_TEXT_BYTES);
+        String to = "2".repeat(BankAccount.MAX_TEXT_BYTES);
+        Bank bank = new Bank();
+        bank.addAccount(BankAccount.ofCents(from, owner, 10_000, 100_000));
+        bank.addAccount(BankAccount.ofCents(to, "Sara", 0, 100_000));
+        try (BankServer server = BankServer.start(bank, 0);
+             SocketChannel client = connect(server)) {
+            ByteBuffer buf = ByteBuffer.allocate(2 * BankProtocol.MAX_FRAME_BYTES);
+            BankProtocol.putTransfer(buf, from, to, 2_500);
+            assertEquals(BankProtocol.STATUS_OK, call(client, buf).get());
+
+            buf.clear();
+            BankProtocol.putFindAccount(buf, from);
+            ByteBuffer found = call(client, buf);
+            ByteBuffer frame = ByteBuffer.allocate(BankProtocol.LENGTH_BYTES + found.remaining());
+            frame.putInt(found.remaining()).put(found.duplicate()).flip();
+            assertEquals(frame.capacity(), BankProtocol.frameLength(frame));
+            assertEquals(BankProtocol.STATUS_OK, found.get());
+            assertEquals(owner, BankProtocol.getString(found));
+            assertEquals(7_500, found.getLong());
+        }
+    }
+}
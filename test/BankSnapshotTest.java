@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private static final int GROUP_BYTES = 64 * 1024;
+
+    private void assertSameAccount(BankAccount expected, BankAccount actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getOwnerName(), actual.getOwnerName());
+        assertEquals(expected.getBalanceCents(), actual.getBalanceCents());
+        assertEquals(expected.getDailyWithdrawalLimitCents(), actual.getDailyWithdrawalLimitCents());
+        assertEquals(expected.getDailyWithdrawnAmountCents(), actual.getDailyWithdrawnAmountCents());
+        assertEquals(expected.getStatus(), actual.getStatus());
+    }
+
+    // S1: snapshot + journal tail rebuilds changes made before and after the snapshot
+    @Test
+    void open_withSnapshotAndTail_rebuildsAllChanges() throws IOException {
+        Path journal = dir.resolve("bank.journal");
+        Path snapshot = dir.resolve("bank.snapshot");
+        BankAccount a;
+        BankAccount b;
+        BankAccount c;
+        try (Bank bank = Bank.open(journal, snapshot, 0, GROUP_BYTES)) {
+            a = new BankAccount("A1", "Fares", 1000.0, 1000.0);
+            b = new BankAccount("B1", "Mohammed", 300.0, 400.0);
+            bank.addAccount(a);
+            bank.addAccount(b);
+            assertTrue(bank.transfer("A1", "B1", 100.0));
+            assertTrue(a.withdraw(50.0));
+
+            bank.writeSnapshot(snapshot);
+
+            // Changes after the snapshot come from the journal tail
+            assertTrue(bank.transfer("B1", "A1", 25.0));
+            assertTrue(bank.changeStatus("A1", AccountStatus.FROZEN));
+            c = new BankAccount("C1", "Sara", 10.0, 100.0);
+            bank.addAccount(c);
+            assertTrue(c.deposit(5.0));
+        }
+
+        try (Bank reopened = Bank.open(journal, snapshot, 0, GROUP_BYTES)) {
+            assertSameAccount(a, reopened.findAccount("A1"));
+            assertSameAccount(b, reopened.findAccount("B1"));
+            assertSameAccount(c, reopened.findAccount("C1"));
+        }
+    }
+
+    // S2: replaying the whole journal and starting from the snapshot give the same state
+    @Test
+    void open_fromSnapshot_matchesFullReplay() throws IOException {
+        Path journal = dir.resolve("bank.journal");
+        Path snapshot = dir.resolve("bank.snapshot");
+        try (Bank bank = Bank.open(journal, 0, GROUP_BYTES)) {
+            for (int i = 0; i < 200; i++) {
+                bank.addAccount(new BankAccount("N" + i, "Owner " + i, 100.0 + i, 1000.0));
+            }
+            for (int i = 0; i < 200; i++) {
+                bank.transfer("N" + i, "N" + ((i * 31 + 7) % 200), 1.0 + (i % 13));
+                if (i == 100) {
+                    bank.writeSnapshot(snapshot);
+                }
+            }
+        }
+
+        Files.copy(journal, dir.resolve("full.journal"));
+        try (Bank fromSnapshot = Bank.open(journal, snapshot, 0, GROUP_BYTES)) {
+            try (Bank full = Bank.open(dir.resolve("full.journal"), 0, GROUP_BYTES)) {
+                for (int i = 0; i < 200; i++) {
+                    assertSameAccount(full.findAccount("N" + i), fromSnapshot.findAccount("N" + i));
+                }
+            }
+        }
+    }
+
+    // S3: a snapshot of a bank without journal loads on its own
+    @Test
+    void writeSnapshot_withoutJournal_canBeLoaded() throws IOException {
+        Path snapshot = dir.resolve("plain.snapshot");
+        Bank bank = new Bank();
+        BankAccount acc = new BankAccount("P1", "Ünïcödé Owner", 12.34, 500.0);
+        bank.addAccount(acc);
+        acc.withdraw(2.34);
+        bank.writeSnapshot(snapshot);
+
+        try (Bank loaded = Bank.open(dir.resolve("new.journal"), snapshot, 0, GROUP_BYTES)) {
+            assertSameAccount(acc, loaded.findAccount("P1"));
+        }
+    }
+
+    // S4: a failing periodic snapshot is reported to the caller and clears once one succeeds
+    @Test
+    void startPeriodicSnapshots_failure_isReportedThenCleared() throws Exception {
+        Path missingDir = dir.resolve("missing");
+        try (Bank bank = new Bank()) {
+            bank.addAccount(new BankAccount("A1", "Fares", 100.0, 1000.0));
+            assertNull(bank.getLastSnapshotFailure());
+            bank.startPeriodicSnapshots(missingDir.resolve("bank.snapshot"), 5);
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (bank.getLastSnapshotFailure() == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertNotNull(bank.getLastSnapshotFailure());
+
+            Files.createDirectory(missingDir);
+            while (bank.getLastSnapshotFailure() != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertNull(bank.getLastSnapshotFailure());
+            assertTrue(Files.exists(missingDir.resolve("bank.snapshot")));
+        }
+    }
+}
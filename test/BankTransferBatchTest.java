@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankTransferBatchTest {
+
+    private Bank createBank() {
+        Bank bank = new Bank();
+        assertTrue(bank.addAccount(new BankAccount("A", "Owner A", 1000.0, 1000.0)));
+        assertTrue(bank.addAccount(new BankAccount("B", "Owner B", 500.0, 1000.0)));
+        assertTrue(bank.addAccount(new BankAccount("C", "Owner C", 0.0, 1000.0)));
+        return bank;
+    }
+
+    // B1: each rejection reason is reported per line, valid lines are applied
+    @Test
+    void transferBatch_mixedInstructions_reportsReasonPerLine() {
+        Bank bank = createBank();
+        bank.changeStatus("C", AccountStatus.FROZEN);
+
+        byte[] results = bank.transferBatch(new TransferInstruction[]{
+                TransferInstruction.of("A", "B", 100.0),
+                TransferInstruction.of("A", "X", 100.0),
+                TransferInstruction.of("A", "A", 100.0),
+                TransferInstruction.of("A", "C", 100.0),
+                TransferInstruction.of("A", "B", 0.0),
+                TransferInstruction.of("B", "A", 10_000.0),
+        });
+
+        assertEquals(ResultCode.OK, ResultCode.fromCode(results[0]));
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, ResultCode.fromCode(results[1]));
+        assertEquals(ResultCode.SAME_ACCOUNT, ResultCode.fromCode(results[2]));
+        assertEquals(ResultCode.NOT_ACTIVE, ResultCode.fromCode(results[3]));
+        assertEquals(ResultCode.NON_POSITIVE_AMOUNT, ResultCode.fromCode(results[4]));
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, ResultCode.fromCode(results[5]));
+        assertEquals(900.0, bank.findAccount("A").getBalance(), 0.0001);
+        assertEquals(600.0, bank.findAccount("B").getBalance(), 0.0001);
+    }
+
+    // B2: later lines see the effect of earlier ones (sequential semantics)
+    @Test
+    void transferBatch_dependentLines_appliedInOrder() {
+        Bank bank = createBank();
+
+        byte[] results = bank.transferBatch(List.of(
+                TransferInstruction.of("C", "A", 50.0),
+                TransferInstruction.of("A", "C", 50.0),
+                TransferInstruction.of("C", "B", 50.0)));
+
+        assertEquals(ResultCode.INSUFFICIENT_BALANCE, ResultCode.fromCode(results[0]));
+        assertEquals(ResultCode.OK, ResultCode.fromCode(results[1]));
+        assertEquals(ResultCode.OK, ResultCode.fromCode(results[2]));
+        assertEquals(0.0, bank.findAccount("C").getBalance(), 0.0001);
+        assertEquals(550.0, bank.findAccount("B").getBalance(), 0.0001);
+    }
+
+    // B3: batch larger than one chunk gives the same result as single transfers
+    @Test
+    void transferBatch_manyChunks_matchesSingleTransfers() {
+        Bank batched = createBank();
+        Bank single = createBank();
+        List<TransferInstruction> batch = new ArrayList<>();
+        String[] names = {"A", "B", "C"};
+        for (int i = 0; i < 10_000; i++) {
+            batch.add(TransferInstruction.ofCents(names[i % 3], names[(i * 7 + 1) % 3], 1 + (i % 500)));
+        }
+
+        byte[] results = batched.transferBatch(batch);
+
+        for (int i = 0; i < batch.size(); i++) {
+            TransferInstruction t = batch.get(i);
+            boolean ok = single.transferCents(t.getFromAccountNumber(), t.getToAccountNumber(), t.getAmountCents());
+            assertEquals(ok, results[i] == ResultCode.OK.code(), "line " + i);
+        }
+        for (String name : names) {
+            assertEquals(single.findAccount(name).getBalanceCents(), batched.findAccount(name).getBalanceCents());
+        }
+    }
+}
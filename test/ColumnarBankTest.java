@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarBankTest {
+
+    private ColumnarBank createBank() {
+        ColumnarBank bank = new ColumnarBank(16);
+        assertTrue(bank.addAccount("A1", "Fares", 1000.0, 1000.0));
+        assertTrue(bank.addAccount("B1", "Mohammed", 300.0, 400.0));
+        return bank;
+    }
+
+    // K1: same deposit/withdraw rules as BankAccount
+    @Test
+    void depositAndWithdraw_followBankAccountRules() {
+        ColumnarBank bank = createBank();
+
+        assertTrue(bank.deposit("A1", 200.0));
+        assertFalse(bank.deposit("A1", 0.0));
+        assertTrue(bank.withdraw("A1", 800.0));
+        assertTrue(bank.withdraw("A1", 200.0));   // reaches daily limit exactly
+        assertFalse(bank.withdraw("A1", 0.01));   // over daily limit
+        assertFalse(bank.withdraw("B1", 301.0));  // over balance
+        assertFalse(bank.deposit("X9", 10.0));    // unknown account
+
+        assertEquals(200.0, bank.getBalance("A1"), 0.0001);
+        assertEquals(100_000, bank.getDailyWithdrawnAmountCents("A1"));
+    }
+
+    // K2: transfers, status and limit changes follow Bank rules
+    @Test
+    void transferStatusAndLimit_followBankRules() {
+        ColumnarBank bank = createBank();
+
+        assertTrue(bank.transfer("A1", "B1", 100.0));
+        assertFalse(bank.transfer("A1", "A1", 1.0));
+        assertFalse(bank.transfer("A1", "X9", 1.0));
+        assertTrue(bank.changeStatus("B1", AccountStatus.FROZEN));
+        assertFalse(bank.changeStatus("B1", AccountStatus.FROZEN));
+        assertFalse(bank.transfer("A1", "B1", 1.0));
+        assertFalse(bank.deposit("B1", 1.0));
+        assertFalse(bank.setDailyLimit("A1", 99.0));
+        assertTrue(bank.setDailyLimit("A1", 2500.0));
+        assertFalse(bank.setDailyLimit("A1", 2500.0));
+
+        assertEquals(900.0, bank.getBalance("A1"), 0.0001);
+        assertEquals(400.0, bank.getBalance("B1"), 0.0001);
+        assertEquals(AccountStatus.FROZEN, bank.getStatus("B1"));
+        assertEquals(250_000, bank.getDailyWithdrawalLimitCents("A1"));
+    }
+
+    // K3: duplicates rejected, capacity enforced, constructor rules applied
+    @Test
+    void addAccount_duplicateFullAndInvalid() {
+        ColumnarBank bank = new ColumnarBank(2);
+        assertTrue(bank.addAccount(" A1 ", "Fares", 0.0, 100.0));
+        assertFalse(bank.addAccount("A1", "Other", 0.0, 100.0));
+        assertTrue(bank.addAccount("B1", "Mohammed", 0.0, 100.0));
+        assertThrows(IllegalStateException.class, () -> bank.addAccount("C1", "Sara", 0.0, 100.0));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarBank(4).addAccount("D1", " ", 0.0, 100.0));
+        assertEquals("Fares", bank.getOwnerName("A1"));
+        assertEquals(2, bank.size());
+    }
+
+    // K4: concurrent transfers conserve money
+    @Test
+    void transfer_concurrent_conservesMoney() throws InterruptedException {
+        int accounts = 10_000;
+        ColumnarBank bank = new ColumnarBank(accounts);
+        for (int i = 0; i < accounts; i++) {
+            bank.addAccountCents("K" + i, "Owner " + i, 10_000, 100_000);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50_000; i++) {
+                    bank.transferCents("K" + random.nextInt(accounts), "K" + random.nextInt(accounts),
+                            1 + random.nextInt(100));
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        long total = 0;
+        for (int i = 0; i < accounts; i++) {
+            total += bank.getBalanceCents("K" + i);
+        }
+        assertEquals(10_000L * accounts, total);
+    }
+
+    // K5: the daily limit starts over on the next day without any reset call
+    @Test
+    void withdraw_nextDay_limitStartsOver() {
+        AtomicLong day = new AtomicLong(20_000);
+        ColumnarBank bank = new ColumnarBank(4, day::get);
+        assertTrue(bank.addAccount("A1", "Fares", 1000.0, 100.0));
+
+        assertTrue(bank.withdraw("A1", 100.0));
+        assertEquals(ResultCode.DAILY_LIMIT_EXCEEDED, bank.tryWithdraw("A1", 1.0));
+
+        day.incrementAndGet();
+        assertEquals(0, bank.getDailyWithdrawnAmountCents("A1"));
+        assertTrue(bank.withdraw("A1", 60.0));
+        assertEquals(6_000, bank.getDailyWithdrawnAmountCents("A1"));
+        assertEquals(840.0, bank.getBalance("A1"), 0.0001);
+    }
+
+    // K6: limit checks follow Bank's order and the standard policy's range
+    @Test
+    void trySetDailyLimit_checksAccountFirst_thenStandardRange() {
+        ColumnarBank bank = createBank();
+        long min = AccountPolicy.STANDARD.minDailyLimitCents();
+        long max = AccountPolicy.STANDARD.maxDailyLimitCents();
+
+        assertEquals(ResultCode.UNKNOWN_ACCOUNT, bank.trySetDailyLimitCents("X9", max + 1));
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, bank.trySetDailyLimitCents("A1", min - 1));
+        assertEquals(ResultCode.LIMIT_OUT_OF_RANGE, bank.trySetDailyLimitCents("A1", max + 1));
+        assertEquals(ResultCode.OK, bank.trySetDailyLimitCents("A1", min));
+        assertEquals(ResultCode.OK, bank.trySetDailyLimitCents("A1", max));
+        assertEquals(ResultCode.NO_CHANGE, bank.trySetDailyLimitCents("A1", max));
+    }
+}
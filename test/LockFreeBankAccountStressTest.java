@@ -0,0 +1,186 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LockFreeBankAccountStressTest {
+
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 50_000;
+
+    // Runs task on THREADS threads at once and returns what each returned;
+    // results are checked on the test thread, where a failed assert counts
+    private long runConcurrently(Callable<Long> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        long total = 0;
+        try {
+            for (Future<Long> future : futures) {
+                total += future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return total;
+    }
+
+    // S1: concurrent deposits → no lost updates
+    @Test
+    void depositCents_manyThreads_noLostUpdates() throws Exception {
+        LockFreeBankAccount acc = LockFreeBankAccount.ofCents("L1", "Payroll", 0, 1000);
+
+        long rejected = runConcurrently(() -> {
+            long count = 0;
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                if (!acc.depositCents(3)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        assertEquals(0, rejected);
+        assertEquals(3L * THREADS * OPS_PER_THREAD, acc.getBalanceCents());
+    }
+
+    // S2: concurrent deposits and withdrawals → balance equals deposits minus successful withdrawals
+    @Test
+    void depositAndWithdraw_manyThreads_balanceMatchesSuccessfulOperations() throws Exception {
+        LockFreeBankAccount acc = LockFreeBankAccount.ofCents("L2", "Mixed", 10_000, Long.MAX_VALUE);
+        AtomicLong withdrawn = new AtomicLong();
+
+        long rejectedDeposits = runConcurrently(() -> {
+            long count = 0;
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                if (i % 2 == 0) {
+                    if (!acc.depositCents(5)) {
+                        count++;
+                    }
+                } else if (acc.withdrawCents(7)) {
+                    withdrawn.addAndGet(7);
+                }
+            }
+            return count;
+        });
+
+        assertEquals(0, rejectedDeposits);
+        long deposited = 5L * THREADS * (OPS_PER_THREAD / 2);
+        assertEquals(10_000 + deposited - withdrawn.get(), acc.getBalanceCents());
+        assertEquals(withdrawn.get(), acc.getDailyWithdrawnAmountCents());
+    }
+
+    // S3: racing withdrawals never exceed the daily limit nor the balance
+    @Test
+    void withdrawCents_manyThreads_neverExceedsLimitOrBalance() throws Exception {
+        LockFreeBankAccount limited = LockFreeBankAccount.ofCents("L3", "Limit", 1_000_000, 10_000);
+        LockFreeBankAccount poor = LockFreeBankAccount.ofCents("L4", "Balance", 10_000, 1_000_000);
+        AtomicLong limitedTotal = new AtomicLong();
+        AtomicLong poorTotal = new AtomicLong();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                if (limited.withdrawCents(3)) {
+                    limitedTotal.addAndGet(3);
+                }
+                if (poor.withdrawCents(3)) {
+                    poorTotal.addAndGet(3);
+                }
+            }
+            return 0L;
+        });
+
+        assertEquals(9_999, limitedTotal.get());
+        assertEquals(1_000_000 - 9_999, limited.getBalanceCents());
+        assertEquals(9_999, poorTotal.get());
+        assertEquals(1, poor.getBalanceCents());
+    }
+
+    // S4: transfers in both directions → money conserved
+    @Test
+    void transferToCents_bothDirections_conservesMoney() throws Exception {
+        LockFreeBankAccount a = LockFreeBankAccount.ofCents("LA", "A", 1_000_000, 1000);
+        LockFreeBankAccount b = LockFreeBankAccount.ofCents("LB", "B", 1_000_000, 1000);
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                if (i % 2 == 0) {
+                    a.transferToCents(b, 11);
+                } else {
+                    b.transferToCents(a, 13);
+                }
+            }
+            return 0L;
+        });
+
+        assertTrue(a.getBalanceCents() >= 0);
+        assertTrue(b.getBalanceCents() >= 0);
+        assertEquals(2_000_000, a.getBalanceCents() + b.getBalanceCents());
+    }
+
+    // S5: frozen account rejects deposits and withdrawals
+    @Test
+    void operations_onFrozenAccount_returnFalse() {
+        LockFreeBankAccount acc = LockFreeBankAccount.ofCents("L5", "Frozen", 1000, 1000);
+        acc.setStatus(AccountStatus.FROZEN);
+
+        assertFalse(acc.depositCents(100));
+        assertFalse(acc.withdrawCents(100));
+        assertEquals(1000, acc.getBalanceCents());
+    }
+
+    // S6: the daily limit starts over on the next day without any reset call
+    @Test
+    void withdrawCents_nextDay_limitStartsOver() {
+        AtomicLong day = new AtomicLong(20_000);
+        LockFreeBankAccount acc = LockFreeBankAccount.ofCents("L6", "Daily", 100_000, 10_000);
+        acc.setClock(day::get);
+
+        assertTrue(acc.withdrawCents(10_000));
+        assertFalse(acc.withdrawCents(1));
+
+        day.incrementAndGet();
+        assertEquals(0, acc.getDailyWithdrawnAmountCents());
+        assertTrue(acc.withdrawCents(6_000));
+        assertEquals(6_000, acc.getDailyWithdrawnAmountCents());
+        assertEquals(84_000, acc.getBalanceCents());
+    }
+
+    // S7: a refunded transfer still fits when deposits filled the source up meanwhile
+    @Test
+    void transferToCents_refundAfterConcurrentDeposits_neverOverflows() {
+        LockFreeBankAccount source = LockFreeBankAccount.ofCents("L7", "Source", 1_000, 1_000);
+        boolean[] deposits = new boolean[2];
+        LockFreeBankAccount target = new LockFreeBankAccount("L8", "Target", 0.0, 10.0) {
+            @Override
+            public boolean depositCents(long amount) {
+                // While 600 is in flight the source takes deposits only up to the maximum minus it
+                deposits[0] = source.depositCents(Long.MAX_VALUE - 999);
+                deposits[1] = source.depositCents(Long.MAX_VALUE - 1_000);
+                return false; // Credit rejected: the 600 goes back
+            }
+        };
+
+        assertFalse(source.transferToCents(target, 600));
+        assertFalse(deposits[0]);
+        assertTrue(deposits[1]);
+        assertEquals(Long.MAX_VALUE, source.getBalanceCents());
+        assertFalse(source.depositCents(1));
+    }
+}
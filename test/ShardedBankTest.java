@@ -0,0 +1,128 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedBankTest {
+
+    // H1: single-account commands follow the BankAccount rules
+    @Test
+    void commands_applyBankAccountRules() {
+        AtomicLong day = new AtomicLong(1);
+        try (ShardedBank bank = new ShardedBank(4, 64, day::get)) {
+            assertTrue(bank.addAccount("A1", "Fares", 100_000, 50_000));
+            assertFalse(bank.addAccount("A1", "Other", 0, 100));
+            assertThrows(IllegalArgumentException.class, () -> bank.addAccount("A2", "Sara", -1, 100));
+
+            assertTrue(bank.deposit("A1", 20_000));
+            assertFalse(bank.deposit("A1", 0));
+            assertFalse(bank.deposit("Z9", 100));
+
+            assertTrue(bank.withdraw("A1", 50_000));
+            assertFalse(bank.withdraw("A1", 1)); // Daily limit reached
+            day.incrementAndGet();
+            assertTrue(bank.withdraw("A1", 1));
+
+            assertTrue(bank.setDailyLimit("A1", 200_000));
+            assertFalse(bank.setDailyLimit("A1", 200_000)); // Same as current
+            assertFalse(bank.setDailyLimit("A1", 9_999));
+
+            assertTrue(bank.changeStatus("A1", AccountStatus.FROZEN));
+            assertFalse(bank.changeStatus("A1", AccountStatus.FROZEN));
+            assertFalse(bank.deposit("A1", 100));
+
+            assertEquals(69_999, bank.getBalanceCents("A1"));
+            assertEquals(-1, bank.getBalanceCents("Z9"));
+        }
+    }
+
+    // H2: rejected transfers (same or cross shard) leave both balances unchanged
+    @Test
+    void transfer_rejectedByTarget_refundsSource() {
+        try (ShardedBank bank = new ShardedBank(4)) {
+            for (int i = 0; i < 16; i++) {
+                bank.addAccount("A" + i, "Owner " + i, 1_000, 100);
+            }
+            for (int i = 0; i < 16; i += 2) {
+                assertTrue(bank.changeStatus("A" + i, AccountStatus.FROZEN));
+            }
+
+            for (int from = 1; from < 16; from += 2) {
+                for (int to = 0; to < 16; to += 2) {
+                    assertFalse(bank.transfer("A" + from, "A" + to, 10));
+                }
+                assertFalse(bank.transfer("A" + from, "missing", 10));
+                assertFalse(bank.transfer("A" + from, "A" + from, 10));
+                assertFalse(bank.transfer("A" + from, "A1", 1_001));
+            }
+            for (int i = 0; i < 16; i++) {
+                assertEquals(1_000, bank.getBalanceCents("A" + i));
+            }
+
+            assertTrue(bank.transfer("A1", "A3", 400));
+            assertEquals(600, bank.getBalanceCents("A1"));
+            assertEquals(1_400, bank.getBalanceCents("A3"));
+        }
+    }
+
+    // H3: concurrent random transfers across shards conserve money and never overdraw
+    @Test
+    void concurrentTransfers_conserveTotalBalance() throws Exception {
+        int accounts = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (ShardedBank bank = new ShardedBank(4, 128, BankClock.systemDefault())) {
+            for (int i = 0; i < accounts; i++) {
+                bank.addAccount("A" + i, "Owner " + i, 1_000, 100);
+            }
+
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                done.add(pool.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        pending.add(bank.transferAsync("A" + random.nextInt(accounts),
+                                "A" + random.nextInt(accounts), 1 + random.nextInt(300)));
+                    }
+                    pending.forEach(CompletableFuture::join);
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+
+            long total = 0;
+            for (int i = 0; i < accounts; i++) {
+                long balance = bank.getBalanceCents("A" + i);
+                assertTrue(balance >= 0);
+                total += balance;
+            }
+            assertEquals(accounts * 1_000L, total);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // H4: commands after close fail instead of hanging
+    @Test
+    void close_rejectsLaterCommands() {
+        ShardedBank bank = new ShardedBank(2);
+        bank.addAccount("A1", "Fares", 100, 100);
+        CompletableFuture<Boolean> beforeClose = bank.depositAsync("A1", 5);
+        bank.close();
+
+        assertTrue(beforeClose.join());
+        CompletionException e = assertThrows(CompletionException.class, () -> bank.deposit("A1", 5));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TransactionHistoryTest {
+
+    private static long[] sequences(List<Transaction> transactions) {
+        return transactions.stream().mapToLong(Transaction::sequence).toArray();
+    }
+
+    // H1: successful operations are recorded oldest first with type, amount, counterparty and time
+    @Test
+    void getRecentTransactions_recordsSuccessfulOperations() {
+        AtomicLong millis = new AtomicLong(1_000);
+        Bank bank = new Bank(new BankClock() {
+            @Override
+            public long epochDay() {
+                return 0;
+            }
+
+            @Override
+            public long currentTimeMillis() {
+                return millis.getAndIncrement();
+            }
+        });
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 100_00, 500_00));
+        bank.enableHistory(16);
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, 500_00));
+        BankAccount a1 = bank.findAccount("A1");
+
+        assertTrue(a1.depositCents(5_00));
+        assertTrue(a1.withdrawCents(2_00));
+        assertFalse(a1.withdrawCents(1_000_00)); // Rejected, not recorded
+        assertTrue(bank.transferCents("A1", "B1", 3_00));
+
+        List<Transaction> history = a1.getRecentTransactions(10);
+        assertEquals(3, history.size());
+        assertEquals(Transaction.Type.DEPOSIT, history.get(0).type());
+        assertEquals(5_00, history.get(0).amountCents());
+        assertNull(history.get(0).counterparty());
+        assertEquals(1_000, history.get(0).timestampMillis());
+        assertEquals(Transaction.Type.WITHDRAWAL, history.get(1).type());
+        assertEquals(Transaction.Type.TRANSFER_OUT, history.get(2).type());
+        assertEquals("B1", history.get(2).counterparty());
+        assertArrayEquals(new long[]{1, 2}, sequences(a1.getRecentTransactions(2)));
+
+        List<Transaction> incoming = bank.findAccount("B1").getRecentTransactions(10);
+        assertEquals(1, incoming.size());
+        assertEquals(Transaction.Type.TRANSFER_IN, incoming.get(0).type());
+        assertEquals("A1", incoming.get(0).counterparty());
+        assertEquals(history.get(2).timestampMillis(), incoming.get(0).timestampMillis());
+
+        assertTrue(BankAccount.ofCents("C1", "Omar", 0, 100).getRecentTransactions(5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> a1.getRecentTransactions(-1));
+        assertThrows(IllegalArgumentException.class, () -> bank.enableHistory(0));
+    }
+
+    // H2: once the ring is full the oldest entries are replaced
+    @Test
+    void getRecentTransactions_keepsOnlyCapacity() {
+        BankAccount account = BankAccount.ofCents("A1", "Fares", 0, 500_00);
+        account.enableHistory(4);
+        for (int i = 1; i <= 10; i++) {
+            account.depositCents(i);
+        }
+
+        List<Transaction> history = account.getRecentTransactions(100);
+        assertArrayEquals(new long[]{6, 7, 8, 9}, sequences(history));
+        assertEquals(7, history.get(0).amountCents());
+        assertEquals(10, history.get(3).amountCents());
+    }
+
+    // H3: spilling writes only new entries; overwritten ones are skipped
+    @Test
+    void spill_appendsNewEntries(@TempDir Path dir) throws Exception {
+        Bank bank = new Bank();
+        bank.enableHistory(4);
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 0, 500_00));
+        bank.addAccount(BankAccount.ofCents("B1", "Sara", 0, 500_00));
+        BankAccount a1 = bank.findAccount("A1");
+        Path file = dir.resolve("history.bin");
+
+        for (int i = 0; i < 3; i++) {
+            a1.depositCents(100 + i);
+        }
+        assertEquals(3, TransactionHistory.spill(bank, file));
+        for (int i = 3; i < 8; i++) {
+            a1.depositCents(100 + i);
+        }
+        bank.transferCents("A1", "B1", 1);
+        assertEquals(5, TransactionHistory.spill(bank, file));
+        assertEquals(0, TransactionHistory.spill(bank, file));
+
+        List<Transaction> spilled = TransactionHistory.read(file, "A1");
+        assertArrayEquals(new long[]{0, 1, 2, 5, 6, 7, 8}, sequences(spilled));
+        assertEquals(107, spilled.get(5).amountCents());
+        assertEquals("B1", spilled.get(6).counterparty());
+        assertEquals(Transaction.Type.TRANSFER_IN, TransactionHistory.read(file, "B1").get(0).type());
+        assertTrue(TransactionHistory.read(file, "C1").isEmpty());
+    }
+
+    // H4: recording a transaction allocates nothing
+    @Test
+    void recording_doesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        Bank bank = new Bank();
+        bank.enableHistory(64);
+        BankAccount a = BankAccount.ofCents("A1", "Fares", 1_000_000_00, Long.MAX_VALUE);
+        BankAccount b = BankAccount.ofCents("B1", "Sara", 1_000_000_00, Long.MAX_VALUE);
+        bank.addAccount(a);
+        bank.addAccount(b);
+
+        long thread = Thread.currentThread().getId();
+        long before = 0;
+        // First round warms up; measure the second
+        for (int round = 0; round < 2; round++) {
+            before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 100_000; i++) {
+                a.depositCents(1);
+                a.withdrawCents(1);
+                a.transferToCents(b, 1);
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(64, a.getRecentTransactions(100).size());
+        // Allow for incidental JVM allocations, far below one object per call
+        assertTrue(allocated < 10_000, "allocated " + allocated + " bytes");
+    }
+
+    // H5: a torn entry left by a crash is skipped by read and truncated by the next spill
+    @Test
+    void spill_afterTornEntry_truncatesItAndAppends(@TempDir Path dir) throws Exception {
+        Bank bank = new Bank();
+        bank.enableHistory(16);
+        bank.addAccount(BankAccount.ofCents("A1", "Fares", 0, 500_00));
+        BankAccount a1 = bank.findAccount("A1");
+        Path file = dir.resolve("history.bin");
+
+        for (int i = 0; i < 3; i++) {
+            a1.depositCents(100 + i);
+        }
+        assertEquals(3, TransactionHistory.spill(bank, file));
+        long validSize = Files.size(file);
+        // Length and the first bytes of an entry that was being written
+        Files.write(file, new byte[]{0, 0, 0, 40, 0, 2, 'A'}, StandardOpenOption.APPEND);
+        assertArrayEquals(new long[]{0, 1, 2}, sequences(TransactionHistory.read(file, "A1")));
+
+        a1.depositCents(103);
+        assertEquals(1, TransactionHistory.spill(bank, file));
+        List<Transaction> spilled = TransactionHistory.read(file, "A1");
+        assertArrayEquals(new long[]{0, 1, 2, 3}, sequences(spilled));
+        assertEquals(103, spilled.get(3).amountCents());
+        // The torn bytes are gone: the file grew by exactly one entry
+        assertEquals(validSize + (validSize - 8) / 3, Files.size(file));
+    }
+}